@@ -0,0 +1,43 @@
+package org.example.bench;
+
+import org.example.currency.CbuClient;
+import org.example.currency.RatesSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one CBU response body into a {@link RatesSnapshot}: streaming deserialization of all
+ * records, fixed-point parsing of rates, and building the lookup indexes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CbuPayloadBenchmark {
+
+    private final byte[] payload = RecordedRates.payload();
+
+    @Benchmark
+    public RatesSnapshot parseSnapshot() throws IOException {
+        return CbuClient.parseSnapshot(new ByteArrayInputStream(payload));
+    }
+
+    /** Snapshot plus the cross-rate table that the first conversion after a refresh builds. */
+    @Benchmark
+    public Object parseSnapshotWithCrossRates() throws IOException {
+        return CbuClient.parseSnapshot(new ByteArrayInputStream(payload)).crossRates();
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for the CBU endpoint that serves the recorded payload from src/jmh/resources.
+ * <p>
+ * Every request waits {@code latency} (±50 % jitter) and then fails with 503 with probability
+ * {@code failureRate}. Responses carry an ETag and honour {@code If-None-Match}, so the bot's conditional
+ * polling sees 304s until {@link #publish} puts out a new version of the rates.
+ */
+final class CbuStub implements AutoCloseable {
+    static final String PATH = "/json/";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private record Version(byte[] payload, String etag) {}
+
+    private final long latencyNanos;
+    private final double failureRate;
+    private final ArrayNode base;
+    private final HttpServer server;
+
+    private volatile Version current;
+    private int version;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    CbuStub(Duration latency, double failureRate) throws IOException {
+        this.latencyNanos = latency.toNanos();
+        this.failureRate = failureRate;
+        this.base = (ArrayNode) MAPPER.readTree(RecordedRates.payload());
+        this.current = new Version(RecordedRates.payload(), "\"v0\"");
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+    }
+
+    /** Publishes a new version: every rate moved by up to ±0.5 % from the recorded one. */
+    synchronized void publish() {
+        ArrayNode rates = base.deepCopy();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (JsonNode node : rates) {
+            BigDecimal rate = new BigDecimal(node.path("Rate").asText("0"));
+            BigDecimal moved = rate.multiply(BigDecimal.valueOf(1 + (random.nextDouble() - 0.5) / 100))
+                    .setScale(2, RoundingMode.HALF_UP);
+            ((ObjectNode) node).put("Rate", moved.toPlainString());
+            ((ObjectNode) node).put("Diff", moved.subtract(rate).toPlainString());
+        }
+        try {
+            current = new Version(MAPPER.writeValueAsBytes(rates), "\"v" + ++version + "\"");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long requestCount() {
+        return requests.sum();
+    }
+
+    long notModifiedCount() {
+        return notModified.sum();
+    }
+
+    long failureCount() {
+        return failures.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            if (latencyNanos > 0) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Thread.sleep(Duration.ofNanos(latencyNanos / 2 + random.nextLong(latencyNanos + 1)));
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failures.increment();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            Version v = current;
+            exchange.getResponseHeaders().set("ETag", v.etag());
+            if (v.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.increment();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, v.payload().length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(v.payload());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
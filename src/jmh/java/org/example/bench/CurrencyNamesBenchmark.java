@@ -0,0 +1,53 @@
+package org.example.bench;
+
+import org.example.InputParser;
+import org.example.currency.CurrencyNames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving currency names in free text with {@link CurrencyNames}: exact and suffixed words, Cyrillic,
+ * multi-word names, a typo that needs the trigram index, and a word that matches nothing. {@code parse} is
+ * the whole message through {@link InputParser} with the index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CurrencyNamesBenchmark {
+
+    @Param({"dollar", "rublga", "евро", "kanada dollari", "dolllar", "100 yevro rubl", "salom"})
+    public String text;
+
+    private CurrencyNames names;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        names = RecordedRates.snapshot().names();
+    }
+
+    @Benchmark
+    public List<String> resolve() {
+        return names.resolve(text, 0, text.length());
+    }
+
+    @Benchmark
+    public InputParser.Query parse() {
+        return InputParser.parse(text, 0, names);
+    }
+}
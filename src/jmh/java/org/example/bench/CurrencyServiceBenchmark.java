@@ -0,0 +1,97 @@
+package org.example.bench;
+
+import org.example.currency.AmountFormat;
+import org.example.currency.CurrencyRate;
+import org.example.currency.CurrencyService;
+import org.example.currency.RatesCache;
+import org.example.currency.RatesSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and message rendering in {@link CurrencyService} against a warm cache.
+ * <p>
+ * Rate cards and /list are memoized per snapshot version, so {@code rateMessage} and {@code listMessage}
+ * measure the memo hit; the conversion messages are rendered on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CurrencyServiceBenchmark {
+
+    private RatesSnapshot snapshot;
+    private CurrencyService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RatesCache cache = new RatesCache(new RecordedRates(), Duration.ofDays(1));
+        cache.refresh().get();
+        snapshot = cache.getSnapshot();
+        service = new CurrencyService(cache);
+    }
+
+    @Benchmark
+    public CurrencyRate findByCcy() {
+        return snapshot.find("eur");
+    }
+
+    @Benchmark
+    public CurrencyRate findByCode() {
+        return snapshot.find("978");
+    }
+
+    @Benchmark
+    public int crossIndexOf() {
+        return snapshot.crossRates().indexOf("rub");
+    }
+
+    @Benchmark
+    public String usdMessage() {
+        return service.getUsdToUzsMessage();
+    }
+
+    @Benchmark
+    public String rateMessage() {
+        return service.getRateMessage("EUR");
+    }
+
+    @Benchmark
+    public String listMessage() {
+        return service.listCurrenciesMessage();
+    }
+
+    @Benchmark
+    public String conversionMessage() {
+        return service.getConversionMessageScaled("USD", 12_000L);
+    }
+
+    @Benchmark
+    public String reverseConversionMessage() {
+        return service.getReverseConversionMessageScaled("RUB", 12_000_000L);
+    }
+
+    @Benchmark
+    public String crossConversionMessage() {
+        return service.getCrossConversionMessage("EUR", "RUB", 10_000L);
+    }
+
+    @Benchmark
+    public String formatAmount() {
+        return AmountFormat.amount(1_561_771_597_683_84L);
+    }
+}
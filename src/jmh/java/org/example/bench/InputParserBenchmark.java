@@ -0,0 +1,67 @@
+package org.example.bench;
+
+import org.example.InputParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message cost of turning user text into a query: the previous split/regex parser
+ * (kept here verbatim as the baseline) versus {@link InputParser}.
+ * <p>
+ * Run with {@code -prof gc} to compare allocation per message as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputParserBenchmark {
+
+    @Param({"120", "EUR 120", "200000 UZS USD", "UZS 120000 RUB", "RUB"})
+    public String text;
+
+    @Benchmark
+    public void legacyRegex(Blackhole bh) {
+        String[] parts = text.split("\\s+");
+        String ccy = null;
+        Double amount = null;
+        boolean isUzsInput = false;
+        for (String p : parts) {
+            if (p.isBlank()) continue;
+            String t = p.trim();
+            if (t.matches("(?i)^(UZS|so['’`]?m|som|sum)$")) {
+                isUzsInput = true;
+            } else if (p.matches("^-?\\d+(?:[.,]\\d+)?$")) {
+                amount = Double.parseDouble(p.replace(',', '.'));
+            } else if (t.matches("^[A-Za-z]{3}$") || t.matches("^\\d{3}$")) {
+                String c = t.matches("^[A-Za-z]{3}$") ? t.toUpperCase(Locale.ROOT) : t;
+                if ("UZS".equalsIgnoreCase(c)) {
+                    isUzsInput = true;
+                } else {
+                    ccy = c;
+                }
+            }
+        }
+        bh.consume(ccy);
+        bh.consume(amount);
+        bh.consume(isUzsInput);
+    }
+
+    @Benchmark
+    public InputParser.Query lexer() {
+        return InputParser.parse(text);
+    }
+}
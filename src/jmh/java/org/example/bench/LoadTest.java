@@ -0,0 +1,300 @@
+package org.example.bench;
+
+import org.example.FloodControl;
+import org.example.MessageSender;
+import org.example.MyBot;
+import org.example.UpdateDispatcher;
+import org.example.currency.CbuClient;
+import org.example.currency.CurrencyService;
+import org.example.currency.RatesCache;
+import org.example.currency.ResilientRatesSource;
+import org.example.metrics.Histogram;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Open-loop load test: a stream of simulated Telegram updates from many chats through {@link MyBot}, with
+ * {@link CbuClient} pointed at a local {@link CbuStub}.
+ * <p>
+ * Updates arrive as a Poisson process at {@code load.rate} per second, each from a random one of
+ * {@code load.chats} chats, with a fixed mix of commands, free-text amounts and currency codes. Each one goes
+ * the way the bot's own {@code dispatch} sends it: the flood check, then the per-chat queue on virtual threads
+ * ({@link UpdateDispatcher}), then {@link MyBot#process}. The replies are handed to a fake
+ * {@link MessageSender}. The outbound queue is skipped on purpose: it paces replies to Telegram's 30 msg/s and
+ * would measure only that.
+ * <p>
+ * Latency runs from the update's scheduled arrival to the last reply being sent. Measuring from the schedule
+ * rather than from submission keeps a stalled generator from hiding queueing (coordinated omission). Allocation
+ * is the whole JVM's allocated bytes minus the generator thread's own, divided by updates handled.
+ * <p>
+ * Settings are system properties (defaults in brackets): {@code load.rate} [2000], {@code load.chats} [20000],
+ * {@code load.warmup.seconds} [10], {@code load.seconds} [30], {@code load.cbu.latency.ms} [50],
+ * {@code load.cbu.failure} [0.05], {@code load.cbu.ttl.seconds} [5], {@code load.cbu.publish.seconds} [15]
+ * and {@code load.telegram.latency.ms} [0]. For example:
+ * <pre>
+ * mvn -Pbench -DskipTests package
+ * java -Dload.rate=5000 -cp target/RogueProject-1.0-SNAPSHOT.jar org.example.bench.LoadTest
+ * </pre>
+ */
+public final class LoadTest {
+    /** Strong reference: a level set on an unreferenced logger can be garbage collected. */
+    private static final Logger BOT_LOGGER = Logger.getLogger("org.example");
+
+    /** Message mix, weight and text. */
+    private static final List<Mix> MIX = List.of(
+            new Mix(20, "/kurs"),
+            new Mix(8, "/kurs EUR"),
+            new Mix(8, "/kurs 120 EUR"),
+            new Mix(4, "/list"),
+            new Mix(2, "/start"),
+            new Mix(10, "120"),
+            new Mix(5, "1 000 000"),
+            new Mix(8, "RUB"),
+            new Mix(6, "EUR"),
+            new Mix(3, "CNY"),
+            new Mix(8, "EUR 120"),
+            new Mix(8, "200000 UZS USD"),
+            new Mix(5, "100 EUR RUB"),
+            new Mix(5, "usd 250.50"),
+            new Mix(4, "dollar"),
+            new Mix(2, "100 yevro rubl"));
+
+    private record Mix(int weight, String text) {}
+
+    private final double rate;
+    private final int chats;
+    private final long warmupNanos;
+    private final long measureNanos;
+    private final String[] texts;
+
+    private final LongAdder replies = new LongAdder();
+    private final LongAdder replyChars = new LongAdder();
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final long[] latencies;
+    private volatile long measureFrom = Long.MAX_VALUE;
+    private volatile long measureTo = Long.MAX_VALUE;
+
+    private long allocatedPerUpdate;
+    private long gcCount;
+    private long gcMillis;
+
+    private LoadTest(double rate, int chats, Duration warmup, Duration measure) {
+        this.rate = rate;
+        this.chats = chats;
+        this.warmupNanos = warmup.toNanos();
+        this.measureNanos = measure.toNanos();
+        int total = MIX.stream().mapToInt(Mix::weight).sum();
+        this.texts = new String[total];
+        int i = 0;
+        for (Mix m : MIX) {
+            for (int w = 0; w < m.weight(); w++) {
+                texts[i++] = m.text();
+            }
+        }
+        // 20 % headroom over the expected count for the Poisson spread
+        long expected = (long) (rate * measure.toNanos() / 1e9 * 1.2) + 1024;
+        this.latencies = new long[(int) Math.min(expected, 1 << 26)];
+    }
+
+    public static void main(String[] args) throws Exception {
+        BOT_LOGGER.setLevel(Level.WARNING);
+        double rate = Double.parseDouble(System.getProperty("load.rate", "2000"));
+        int chats = Integer.getInteger("load.chats", 20_000);
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup.seconds", 10));
+        Duration measure = Duration.ofSeconds(Long.getLong("load.seconds", 30));
+        Duration cbuLatency = Duration.ofMillis(Long.getLong("load.cbu.latency.ms", 50));
+        double cbuFailure = Double.parseDouble(System.getProperty("load.cbu.failure", "0.05"));
+        Duration cacheTtl = Duration.ofSeconds(Long.getLong("load.cbu.ttl.seconds", 5));
+        long publishSeconds = Long.getLong("load.cbu.publish.seconds", 15);
+        long telegramLatencyMs = Long.getLong("load.telegram.latency.ms", 0);
+
+        LoadTest test = new LoadTest(rate, chats, warmup, measure);
+        MessageSender sender = message -> {
+            if (telegramLatencyMs > 0) {
+                try {
+                    Thread.sleep(telegramLatencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            test.replies.increment();
+            test.replyChars.add(message.getText().length());
+        };
+
+        try (CbuStub cbu = new CbuStub(cbuLatency, cbuFailure);
+             UpdateDispatcher dispatcher = new UpdateDispatcher();
+             ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor()) {
+            CbuClient client = new CbuClient(cbu.endpoint());
+            RatesCache cache = new RatesCache(new ResilientRatesSource(List.of(client)), cacheTtl);
+            cache.refresh().get();
+            if (publishSeconds > 0) {
+                publisher.scheduleAtFixedRate(cbu::publish, publishSeconds, publishSeconds, TimeUnit.SECONDS);
+            }
+            MyBot bot = new MyBot("load_bot", "0:load", new CurrencyService(cache), dispatcher, sender);
+            try {
+                System.out.printf(Locale.ROOT, "Load: %.0f updates/s from %d chats, warmup %ds, measure %ds; "
+                                + "CBU stub %s, latency %dms, failure %.0f%%, cache TTL %ds, publish every %ds%n",
+                        rate, chats, warmup.toSeconds(), measure.toSeconds(), cbu.endpoint(), cbuLatency.toMillis(),
+                        cbuFailure * 100, cacheTtl.toSeconds(), publishSeconds);
+                test.run(bot, dispatcher, sender);
+                test.report(bot, cache, client, cbu);
+            } finally {
+                bot.outbound().close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private void run(MyBot bot, UpdateDispatcher dispatcher, MessageSender sender) throws InterruptedException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        FloodControl flood = bot.floodControl();
+        SplittableRandom random = new SplittableRandom(42);
+        long start = System.nanoTime();
+        measureFrom = start + warmupNanos;
+        measureTo = measureFrom + measureNanos;
+        long scheduled = start;
+        int messageId = 0;
+
+        long allocatedBefore = 0;
+        long ownBefore = 0;
+        long handledBefore = 0;
+        long[] gcBefore = null;
+        boolean measuring = false;
+        while (scheduled < measureTo) {
+            if (!measuring && scheduled >= measureFrom) {
+                measuring = true;
+                allocatedBefore = threads.getTotalThreadAllocatedBytes();
+                ownBefore = threads.getCurrentThreadAllocatedBytes();
+                handledBefore = handled.sum();
+                gcBefore = gcTotals();
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long chatId = 1_000_000L + random.nextInt(chats);
+            String text = texts[random.nextInt(texts.length)];
+            Update update = update(++messageId, chatId, text);
+            long arrival = scheduled;
+            if (flood.check(chatId, text) != FloodControl.Verdict.ALLOW) {
+                shed.increment();
+            } else if (!dispatcher.submit(chatId, () -> handle(bot, sender, update, arrival))) {
+                dropped.increment();
+            }
+            scheduled += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (dispatcher.queueDepth() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedBefore;
+        long own = threads.getCurrentThreadAllocatedBytes() - ownBefore;
+        long n = handled.sum() - handledBefore;
+        long[] gc = gcTotals();
+        this.allocatedPerUpdate = allocated < 0 || n == 0 ? -1 : (allocated - own) / n;
+        this.gcCount = gc[0] - gcBefore[0];
+        this.gcMillis = gc[1] - gcBefore[1];
+    }
+
+    private void handle(MyBot bot, MessageSender sender, Update update, long arrival) {
+        try {
+            for (SendMessage m : bot.process(update)) {
+                sender.send(m);
+            }
+        } catch (Exception e) {
+            BOT_LOGGER.log(Level.WARNING, "Load test update failed", e);
+        }
+        handled.increment();
+        if (arrival >= measureFrom && arrival < measureTo) {
+            int i = recorded.getAndIncrement();
+            if (i < latencies.length) {
+                latencies[i] = System.nanoTime() - arrival;
+            }
+        }
+    }
+
+    private void report(MyBot bot, RatesCache cache, CbuClient client, CbuStub cbu) {
+        int n = Math.min(recorded.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        double seconds = measureNanos / 1e9;
+        System.out.printf(Locale.ROOT, "Throughput: %.0f updates/s handled (%d in %.0fs)%n", n / seconds, n, seconds);
+        System.out.printf(Locale.ROOT, "Latency: p50 %s  p99 %s  p999 %s  max %s%n",
+                millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 0.999), millis(sorted, 1.0));
+        System.out.printf(Locale.ROOT, "Allocation: %s per update; GC: %d collections, %d ms%n",
+                allocatedPerUpdate < 0 ? "n/a" : allocatedPerUpdate + " B", gcCount, gcMillis);
+        System.out.printf(Locale.ROOT, "Updates: %d handled, %d shed by flood control, %d dropped by dispatcher; "
+                        + "%d replies, %.0f chars avg%n",
+                handled.sum(), shed.sum(), dropped.sum(), replies.sum(),
+                replies.sum() == 0 ? 0.0 : (double) replyChars.sum() / replies.sum());
+        StringBuilder perCommand = new StringBuilder("Per command (count, mean, ~p99):");
+        for (String command : MyBot.COMMANDS) {
+            Histogram h = bot.commandLatency(command);
+            if (h.count() > 0) {
+                perCommand.append(String.format(Locale.ROOT, " %s %d %.1fus %.0fus;",
+                        command, h.count(), h.mean() * 1e6, h.quantile(0.99) * 1e6));
+            }
+        }
+        System.out.println(perCommand);
+        System.out.printf(Locale.ROOT, "Cache: %d hits, %d stale hits, %d misses, %d refresh failures; "
+                        + "CBU stub: %d requests, %d not modified, %d failed; client errors %d%n",
+                cache.hitCount(), cache.staleHitCount(), cache.missCount(), cache.refreshFailureCount(),
+                cbu.requestCount(), cbu.notModifiedCount(), cbu.failureCount(), client.fetchErrorCount());
+    }
+
+    private static String millis(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        int i = (int) Math.min(sorted.length - 1, Math.ceil(q * sorted.length) - 1);
+        return String.format(Locale.ROOT, "%.3fms", sorted[Math.max(i, 0)] / 1e6);
+    }
+
+    /** Collections and milliseconds spent in them so far, over all collectors. */
+    private static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+            time += Math.max(gc.getCollectionTime(), 0);
+        }
+        return new long[] {count, time};
+    }
+
+    private static Update update(int messageId, long chatId, String text) {
+        User from = new User(chatId, "Load", false);
+        from.setUserName("load" + chatId);
+        Message message = new Message();
+        message.setMessageId(messageId);
+        message.setDate((int) (System.currentTimeMillis() / 1000));
+        message.setChat(new Chat(chatId, "private"));
+        message.setFrom(from);
+        message.setText(text);
+        Update update = new Update();
+        update.setUpdateId(messageId);
+        update.setMessage(message);
+        return update;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.MyBot;
+import org.example.UpdateDispatcher;
+import org.example.currency.CurrencyService;
+import org.example.currency.RatesCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * One text update through {@link MyBot}: command routing, parsing, lookup, rendering and building the
+ * {@link SendMessage}, with a no-op sender behind it.
+ * <p>
+ * {@code onUpdateReceived} only hands the update to the dispatcher, and replies then pass the outbound
+ * rate limits (30 msg/s), so the benchmark calls {@link MyBot#process}, which is the work that runs on
+ * the chat's virtual thread. The per-update INFO log line is switched off.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MyBotBenchmark {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    /** Strong reference: a level set on an unreferenced logger can be garbage collected. */
+    private static final Logger BOT_LOGGER = Logger.getLogger("org.example");
+
+    @Param({"/kurs", "RUB", "EUR 120", "200000 UZS USD", "100 EUR RUB", "/list"})
+    public String text;
+
+    private MyBot bot;
+    private UpdateDispatcher dispatcher;
+    private Update update;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BOT_LOGGER.setLevel(java.util.logging.Level.WARNING);
+        RatesCache cache = new RatesCache(new RecordedRates(), Duration.ofDays(1));
+        cache.refresh().get();
+        dispatcher = new UpdateDispatcher();
+        bot = new MyBot("bench_bot", "0:bench", new CurrencyService(cache), dispatcher, message -> { });
+        update = MAPPER.convertValue(Map.of(
+                "update_id", 1,
+                "message", Map.of(
+                        "message_id", 1,
+                        "date", 1_760_000_000,
+                        "chat", Map.of("id", 42, "type", "private"),
+                        "from", Map.of("id", 42, "is_bot", false, "first_name", "Bench", "username", "bench"),
+                        "text", text)), Update.class);
+        if (bot.process(update).isEmpty()) {
+            throw new IllegalStateException("No reply for '" + text + "'");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bot.outbound().close();
+        dispatcher.close();
+    }
+
+    @Benchmark
+    public List<SendMessage> handleText() {
+        return bot.process(update);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.bench;
+
+import org.example.RateCharts;
+import org.example.currency.CurrencyRate;
+import org.example.currency.CurrencyService;
+import org.example.currency.FixedPoint;
+import org.example.currency.RateChart;
+import org.example.currency.RateHistory;
+import org.example.currency.RatesCache;
+import org.example.currency.RatesSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * /grafik: drawing and encoding one PNG chart against serving it from {@link RateCharts}.
+ * <p>
+ * {@code render} is the work of a cache miss, a random-walk series with weekend gaps through
+ * {@link RateChart#render}. {@code cached} is every later request for the same currency, range and rate date:
+ * a key lookup in the LRU that returns the already encoded PNG (and, once sent, its Telegram {@code file_id}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateChartBenchmark {
+
+    @Param({"30", "365"})
+    public int days;
+
+    private Path dir;
+    private RateHistory history;
+    private RateCharts charts;
+    private CurrencyRate usd;
+    private LocalDate from;
+    private long[] series;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RatesCache cache = new RatesCache(new RecordedRates(), Duration.ofDays(1));
+        cache.refresh().get();
+        RatesSnapshot snapshot = cache.getSnapshot();
+        usd = snapshot.find("USD");
+        LocalDate to = LocalDate.parse(usd.getDate().trim(), DateTimeFormatter.ofPattern("dd.MM.yyyy"));
+        from = to.minusDays(days - 1L);
+
+        dir = Files.createTempDirectory("chart-bench");
+        history = RateHistory.open(dir);
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            history.record(day, snapshot);
+        }
+        charts = new RateCharts(new CurrencyService(cache, history));
+        if (charts.chart(usd, days) == null) {
+            throw new IllegalStateException("No chart for " + days + " days");
+        }
+
+        Random random = new Random(days);
+        series = new long[days];
+        long rate = usd.getPerUnitScaled();
+        for (int i = 0; i < days; i++) {
+            rate += (random.nextInt(200) - 95) * FixedPoint.RATE_ONE / 10;
+            series[i] = from.plusDays(i).getDayOfWeek().getValue() >= 6 ? FixedPoint.NONE : rate;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        history.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] render() {
+        return RateChart.render("USD", from, series);
+    }
+
+    @Benchmark
+    public RateCharts.Chart cached() {
+        return charts.chart(usd, days);
+    }
+}
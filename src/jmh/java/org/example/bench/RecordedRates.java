@@ -0,0 +1,51 @@
+package org.example.bench;
+
+import org.example.currency.CbuClient;
+import org.example.currency.FetchResult;
+import org.example.currency.RatesSnapshot;
+import org.example.currency.RatesSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A CBU "today" payload for all 75 currencies, kept in src/jmh/resources, standing in for {@link CbuClient}.
+ * <p>
+ * Every fetch answers "unchanged" once a snapshot is held, like a conditional poll against an idle CBU,
+ * so benchmarks never touch the network.
+ */
+final class RecordedRates implements RatesSource {
+    static final String RESOURCE = "/cbu-rates.json";
+
+    private static final byte[] PAYLOAD = load();
+
+    static byte[] payload() {
+        return PAYLOAD;
+    }
+
+    static RatesSnapshot snapshot() {
+        try {
+            return CbuClient.parseSnapshot(new ByteArrayInputStream(PAYLOAD));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public FetchResult fetch(RatesSnapshot current) {
+        return current != null ? FetchResult.unchanged() : FetchResult.changed(snapshot());
+    }
+
+    private static byte[] load() {
+        try (InputStream in = RecordedRates.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException(RESOURCE + " is not on the classpath; build with -Pbench");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.bench;
+
+import org.example.Main;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cold start: time from launching the bot process to its first reply.
+ * <p>
+ * Each run starts the bot in local webhook mode (no {@code WEBHOOK_URL}, so Telegram is never contacted) with
+ * its CBU endpoint pointed at a {@link CbuStub} and the snapshot, history, alerts and digest files switched off,
+ * so every run starts equally cold. It then POSTs a {@code /kurs} update every few milliseconds, each from a new
+ * chat, until the HTTP response carries the reply. That covers JVM or native startup, class loading and
+ * initialisation, the first CBU fetch and the first render. Reported per run: when the webhook port started
+ * accepting connections, when the first reply came back, and the process's peak RSS ({@code VmHWM}, Linux only).
+ * <p>
+ * The command to launch is given as arguments; without them it is {@code java -jar} on the jar this class came
+ * from. Settings are system properties: {@code startup.runs} [5], {@code startup.timeout.seconds} [60] and
+ * {@code startup.cbu.latency.ms} [0]. For example:
+ * <pre>
+ * java -cp target/RogueProject-1.0-SNAPSHOT.jar org.example.bench.StartupBenchmark
+ * java -cp target/RogueProject-1.0-SNAPSHOT.jar org.example.bench.StartupBenchmark \
+ *     java -XX:SharedArchiveFile=app.jsa -jar target/RogueProject-1.0-SNAPSHOT.jar
+ * java -cp target/RogueProject-1.0-SNAPSHOT.jar org.example.bench.StartupBenchmark target/currency-bot
+ * </pre>
+ */
+public final class StartupBenchmark {
+    private static final Duration POLL = Duration.ofMillis(5);
+
+    private record Run(long listenNanos, long replyNanos, long peakRssKb) {}
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.getInteger("startup.runs", 5);
+        Duration timeout = Duration.ofSeconds(Long.getLong("startup.timeout.seconds", 60));
+        Duration cbuLatency = Duration.ofMillis(Long.getLong("startup.cbu.latency.ms", 0));
+        List<String> command = args.length > 0 ? List.of(args) : defaultCommand();
+
+        System.out.println("Startup: " + String.join(" ", command) + ", " + runs + " runs");
+        Run[] results = new Run[runs];
+        try (CbuStub cbu = new CbuStub(cbuLatency, 0);
+             HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build()) {
+            for (int i = 0; i < runs; i++) {
+                results[i] = run(command, cbu.endpoint(), http, timeout, i);
+                System.out.printf(Locale.ROOT, "  run %d: listening %7.1f ms, first reply %7.1f ms, peak RSS %s%n",
+                        i + 1, results[i].listenNanos() / 1e6, results[i].replyNanos() / 1e6,
+                        results[i].peakRssKb() < 0 ? "n/a" : results[i].peakRssKb() / 1024 + " MiB");
+            }
+        }
+        long[] reply = Arrays.stream(results).mapToLong(Run::replyNanos).sorted().toArray();
+        long[] rss = Arrays.stream(results).mapToLong(Run::peakRssKb).sorted().toArray();
+        System.out.printf(Locale.ROOT, "Time to first reply: min %.1f ms, median %.1f ms; peak RSS median %s%n",
+                reply[0] / 1e6, reply[reply.length / 2] / 1e6,
+                rss[rss.length / 2] < 0 ? "n/a" : rss[rss.length / 2] / 1024 + " MiB");
+    }
+
+    private static Run run(List<String> command, String cbuEndpoint, HttpClient http, Duration timeout, int index)
+            throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Path workDir = Files.createTempDirectory("startup-bench");
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Map<String, String> env = builder.environment();
+        env.put("TELEGRAM_BOT_TOKEN", "0:startup");
+        env.put("BOT_MODE", "webhook");
+        env.put("WEBHOOK_PORT", Integer.toString(port));
+        env.remove("WEBHOOK_URL");
+        env.remove("WEBHOOK_SECRET");
+        env.remove("METRICS_PORT");
+        env.remove("CBU_SHARED_FILE");
+        env.put("CBU_ENDPOINTS", cbuEndpoint);
+        env.put("CBU_HISTORY_DAYS", "0");
+        env.put("CBU_SNAPSHOT_FILE", "off");
+        env.put("BOT_ALERTS_FILE", "off");
+        env.put("BOT_DIGEST_FILE", "off");
+
+        URI uri = URI.create("http://127.0.0.1:" + port + "/telegram");
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long deadline = start + timeout.toNanos();
+            long listening = -1;
+            for (int attempt = 0; System.nanoTime() < deadline; attempt++) {
+                if (!process.isAlive()) {
+                    throw new IOException("Bot process exited with " + process.exitValue());
+                }
+                if (listening < 0) {
+                    try {
+                        new Socket(InetAddress.getLoopbackAddress(), port).close();
+                        listening = System.nanoTime() - start;
+                    } catch (ConnectException e) {
+                        Thread.sleep(POLL);
+                        continue;
+                    }
+                }
+                long chatId = (long) index << 20 | attempt;
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .timeout(Duration.ofSeconds(10))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(update(chatId)))
+                        .build();
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200 && response.body().contains("\"method\"")) {
+                    return new Run(listening, System.nanoTime() - start, peakRssKb(process.pid()));
+                }
+                Thread.sleep(POLL); // the reply missed the webhook's wait; ask again from a new chat
+            }
+            throw new IOException("No reply within " + timeout.toSeconds() + "s");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            try (Stream<Path> files = Files.walk(workDir)) {
+                for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+
+    private static String update(long chatId) {
+        return """
+                {"update_id":%d,"message":{"message_id":1,"date":0,"text":"/kurs",\
+                "chat":{"id":%d,"type":"private"},"from":{"id":%d,"is_bot":false,"first_name":"S"}}}"""
+                .formatted(chatId, chatId, chatId);
+    }
+
+    /** {@code VmHWM} from /proc in KiB, or -1 where that is not available. */
+    private static long peakRssKb(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not Linux, or the process is gone
+        }
+        return -1;
+    }
+
+    private static List<String> defaultCommand() throws Exception {
+        Path jar = Path.of(Main.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        return List.of(java.toString(), "-jar", jar.toString());
+    }
+}
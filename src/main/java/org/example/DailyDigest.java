@@ -0,0 +1,447 @@
+package org.example;
+
+import org.example.currency.CurrencyService;
+import org.example.currency.RatesSnapshot;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Kunlik dayjest: CBU yangi kurslarni e'lon qilganda obunachilarga USD/EUR/RUB (yoki tanlangan valyutalar)
+ * kursi va o'zgarishi yuboriladi.
+ * <p>
+ * Xabar har bir snapshot va valyutalar to'plami uchun bir marta tuziladi
+ * ({@link CurrencyService#getDigestMessage}). Tarqatish chat id tartibida, {@link #BATCH} talik bo'laklarda
+ * boradi: bo'lak ichidagi xabarlar parallel virtual threadlarda, har biri {@link OutboundSender#tryReserveBroadcast}
+ * dan token olgandan keyin yuboriladi — tarqatish Telegram limitining bo'sh qismini to'liq ishlatadi, lekin
+ * undan oshmaydi va oddiy javoblarni kechiktirmaydi. Har bir bo'lakdan keyin nazorat nuqtasi yoziladi: jarayon
+ * o'rtada to'xtasa, tarqatish keyingi ishga tushishda shu joydan davom etadi. Botni bloklagan (403) chatlar
+ * obunadan chiqariladi.
+ * <p>
+ * Obunalar {@link RateAlerts} kabi qo'shimcha jurnalda saqlanadi: {@code S chatId USD,EUR} — obuna,
+ * {@code U chatId} — bekor qilish.
+ */
+public class DailyDigest implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(DailyDigest.class.getName());
+
+    public static final List<String> DEFAULT_CCYS = List.of("USD", "EUR", "RUB");
+    public static final int MAX_CCYS = 6;
+    /** Nazorat nuqtalari orasidagi chatlar soni. */
+    static final int BATCH = 64;
+    /** Bir vaqtda yuborilayotgan xabarlar; limit sekundiga 30 ta bo'lganda Bot API kechikishini yopishga yetadi. */
+    static final int MAX_IN_FLIGHT = 16;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RESERVE_POLL_MILLIS = 10;
+    private static final DateTimeFormatter KEY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /** {@code key} kunining dayjesti {@code after} chatigacha (u ham) yuborilgan; {@code done} — hammasiga. */
+    private record Checkpoint(String key, long after, boolean done) {}
+
+    private final Path file;
+    private final Path checkpointFile;
+    private final ConcurrentSkipListMap<Long, List<String>> subscribers = new ConcurrentSkipListMap<>();
+    private final BufferedWriter journal;
+    private final LinkedBlockingQueue<RatesSnapshot> published = new LinkedBlockingQueue<>();
+    private final ExecutorService sendExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("digest-send-", 0).factory());
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    /**
+     * Umumiy bucket bir sekundlik portlashga ruxsat beradi; tarqatish esa bir tekis boradi, shunda istalgan
+     * sekundda {@link OutboundSender#GLOBAL_PER_SECOND} dan oshmaydi.
+     */
+    private final TokenBucket pace = new TokenBucket(OutboundSender.GLOBAL_PER_SECOND, 1);
+    private final AtomicLong pausedUntilNanos = new AtomicLong(System.nanoTime());
+    private final AtomicInteger remaining = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile Checkpoint checkpoint;
+    private volatile Thread runner;
+
+    private DailyDigest(Path file, BufferedWriter journal, Checkpoint checkpoint) {
+        this.file = file;
+        this.checkpointFile = checkpointFile(file);
+        this.journal = journal;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Obunalar jurnalini va nazorat nuqtasini ({@code <file>.checkpoint}) o'qiydi, jurnalni yozishga ochadi.
+     */
+    public static DailyDigest open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Map<Long, List<String>> live = new HashMap<>();
+        int lines = 0;
+        if (Files.exists(file)) {
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines++;
+                    String[] f = line.split(" ");
+                    try {
+                        if (f.length == 3 && f[0].equals("S")) {
+                            live.put(Long.parseLong(f[1]), List.of(f[2].split(",")));
+                        } else if (f.length == 2 && f[0].equals("U")) {
+                            live.remove(Long.parseLong(f[1]));
+                        }
+                    } catch (RuntimeException e) {
+                        int n = lines;
+                        LOGGER.warning(() -> "Dayjest jurnalida buzilgan qator " + n + " o'tkazib yuborildi");
+                    }
+                }
+            }
+        }
+        if (lines > 2 * live.size() + 1_000) {
+            compact(file, live);
+        }
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        DailyDigest digest = new DailyDigest(file, writer, readCheckpoint(checkpointFile(file)));
+        digest.subscribers.putAll(live);
+        int n = live.size();
+        LOGGER.info(() -> "Dayjest obunachilari yuklandi: " + n + " ta (" + file + ")");
+        return digest;
+    }
+
+    private static Path checkpointFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".checkpoint");
+    }
+
+    private static void compact(Path file, Map<Long, List<String>> live) throws IOException {
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<Long, List<String>> e : live.entrySet()) {
+                    out.write(subscribeLine(e.getKey(), e.getValue()));
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static Checkpoint readCheckpoint(Path path) throws IOException {
+        String[] f;
+        try {
+            f = Files.readString(path, StandardCharsets.UTF_8).trim().split(" ");
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            return new Checkpoint(f[0], Long.parseLong(f[1]), f[2].equals("done"));
+        } catch (RuntimeException e) {
+            LOGGER.warning(() -> "Dayjest nazorat nuqtasi buzilgan, e'tiborga olinmadi: " + path);
+            return null;
+        }
+    }
+
+    private void writeCheckpoint(Checkpoint cp) throws IOException {
+        Path tmp = Files.createTempFile(checkpointFile.toAbsolutePath().getParent(),
+                checkpointFile.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(tmp, cp.key() + " " + cp.after() + " " + (cp.done() ? "done" : "run") + "\n");
+            Files.move(tmp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        checkpoint = cp;
+    }
+
+    /**
+     * Tarqatuvchi fon threadini ishga tushiradi. Oldingi tarqatish tugamagan bo'lsa, joriy snapshot bilan
+     * davom ettiriladi (sanasi mos kelsa).
+     *
+     * @param sender Bot API ga to'g'ridan-to'g'ri yuboruvchi: 403 va 429 javoblari shu yerda ko'rinadi
+     */
+    public synchronized void start(OutboundSender outbound, MessageSender sender, CurrencyService currencyService) {
+        if (runner != null) {
+            throw new IllegalStateException("Allaqachon ishga tushirilgan");
+        }
+        runner = Thread.ofVirtual().name("daily-digest").start(() -> run(outbound, sender, currencyService));
+    }
+
+    /** {@link org.example.currency.RatesCache} tinglovchisi: CBU yangi kurs e'lon qildi. */
+    public void publish(RatesSnapshot snapshot) {
+        published.add(snapshot);
+    }
+
+    /**
+     * Obuna yoki valyutalarni almashtirish.
+     */
+    public void subscribe(long chatId, List<String> ccys) throws IOException {
+        List<String> copy = List.copyOf(ccys);
+        synchronized (journal) {
+            journal.write(subscribeLine(chatId, copy));
+            journal.flush();
+            subscribers.put(chatId, copy);
+        }
+    }
+
+    /**
+     * @return {@code false} bo'lsa, chat obuna emas edi
+     */
+    public boolean unsubscribe(long chatId) throws IOException {
+        synchronized (journal) {
+            if (subscribers.remove(chatId) == null) {
+                return false;
+            }
+            journal.write("U " + chatId + "\n");
+            journal.flush();
+        }
+        return true;
+    }
+
+    /** @return chat obuna bo'lgan valyutalar yoki {@code null} */
+    public List<String> subscription(long chatId) {
+        return subscribers.get(chatId);
+    }
+
+    public int size() {
+        return subscribers.size();
+    }
+
+    public long sentCount() {
+        return sent.sum();
+    }
+
+    /** Botni bloklagani uchun obunadan chiqarilgan chatlar. */
+    public long prunedCount() {
+        return pruned.sum();
+    }
+
+    public long failedCount() {
+        return failed.sum();
+    }
+
+    /** Joriy tarqatishda hali yuborilmagan chatlar. */
+    public int remaining() {
+        return remaining.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread t = runner;
+        if (t != null) {
+            t.interrupt();
+        }
+        sendExecutor.close(); // yuborilayotganlar tugasin; nazorat nuqtasidan keyingilari qayta yuboriladi
+        synchronized (journal) {
+            journal.close();
+        }
+    }
+
+    private void run(OutboundSender outbound, MessageSender sender, CurrencyService currencyService) {
+        try {
+            Checkpoint cp = checkpoint;
+            if (cp != null && !cp.done()) {
+                try {
+                    published.add(currencyService.currentSnapshot());
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Tugamagan dayjestni davom ettirib bo'lmadi, yangi kurslar kutiladi", e);
+                }
+            }
+            while (true) {
+                RatesSnapshot snapshot = published.take();
+                RatesSnapshot newer;
+                while ((newer = published.poll()) != null) {
+                    snapshot = newer;
+                }
+                try {
+                    broadcast(snapshot, outbound, sender, currencyService);
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Dayjest nazorat nuqtasini yozib bo'lmadi: " + checkpointFile, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void broadcast(RatesSnapshot snapshot, OutboundSender outbound, MessageSender sender,
+                           CurrencyService currencyService) throws IOException, InterruptedException {
+        String key = CurrencyService.digestDate(snapshot);
+        Checkpoint cp = checkpoint;
+        if (key == null || key.indexOf(' ') >= 0) {
+            return;
+        }
+        boolean resume = cp != null && cp.key().equals(key);
+        if (resume ? cp.done() : cp != null && !isAfter(key, cp.key())) {
+            return; // shu kun yuborilgan yoki snapshot eskiroq
+        }
+        long after = resume ? cp.after() : Long.MIN_VALUE;
+        if (!resume) {
+            writeCheckpoint(new Checkpoint(key, after, false));
+        }
+        remaining.set(subscribers.tailMap(after, false).size());
+        long start = System.nanoTime();
+        long before = sent.sum();
+        List<Long> batch = new ArrayList<>(BATCH);
+        for (Long chatId : subscribers.tailMap(after, false).keySet()) {
+            batch.add(chatId);
+            if (batch.size() == BATCH) {
+                sendBatch(batch, snapshot, outbound, sender, currencyService);
+                after = chatId;
+                writeCheckpoint(new Checkpoint(key, after, false));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            sendBatch(batch, snapshot, outbound, sender, currencyService);
+            after = batch.get(batch.size() - 1);
+        }
+        writeCheckpoint(new Checkpoint(key, after, true));
+        remaining.set(0);
+        long count = sent.sum() - before;
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOGGER.info(() -> "Dayjest " + key + (resume ? " (davom ettirildi)" : "") + ": " + count + " ta xabar, "
+                + millis + " ms");
+    }
+
+    private void sendBatch(List<Long> batch, RatesSnapshot snapshot, OutboundSender outbound, MessageSender sender,
+                           CurrencyService currencyService) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(batch.size());
+        for (Long chatId : batch) {
+            List<String> ccys = subscribers.get(chatId);
+            if (ccys == null) { // shu orada obunadan chiqqan
+                remaining.decrementAndGet();
+                done.countDown();
+                continue;
+            }
+            String html = currencyService.getDigestMessage(snapshot, ccys);
+            inFlight.acquire();
+            try {
+                acquire(outbound, chatId);
+            } catch (InterruptedException e) {
+                inFlight.release();
+                throw e;
+            }
+            sendExecutor.execute(() -> {
+                try {
+                    deliver(outbound, sender, chatId, html);
+                } finally {
+                    inFlight.release();
+                    remaining.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    /** Chat va umumiy limitdan token olguncha (429 dan keyingi pauzani ham hisobga olib) kutadi. */
+    private void acquire(OutboundSender outbound, long chatId) throws InterruptedException {
+        long wait = pace.reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        while (true) {
+            long pause = pausedUntilNanos.get() - System.nanoTime();
+            if (pause > 0) {
+                TimeUnit.NANOSECONDS.sleep(pause);
+            } else if (outbound.tryReserveBroadcast(chatId)) {
+                return;
+            } else {
+                TimeUnit.MILLISECONDS.sleep(RESERVE_POLL_MILLIS);
+            }
+        }
+    }
+
+    private void deliver(OutboundSender outbound, MessageSender sender, long chatId, String html) {
+        SendMessage sm = new SendMessage();
+        sm.setChatId(Long.toString(chatId));
+        sm.setText(html);
+        sm.setParseMode("HTML");
+        sm.disableWebPagePreview();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sender.send(sm);
+                sent.increment();
+                return;
+            } catch (TelegramApiRequestException e) {
+                Integer code = e.getErrorCode();
+                if (code != null && code == 403) {
+                    prune(chatId);
+                    return;
+                }
+                if (code != null && code == 429 && attempt < MAX_ATTEMPTS) {
+                    ResponseParameters params = e.getParameters();
+                    int retryAfter = params != null && params.getRetryAfter() != null ? params.getRetryAfter() : 1;
+                    long pause = TimeUnit.SECONDS.toNanos(Math.max(1, retryAfter));
+                    outbound.penalize(chatId, pause); // interaktiv javoblar ham shu muddatda to'xtaydi
+                    long until = System.nanoTime() + pause;
+                    pausedUntilNanos.accumulateAndGet(until, (a, b) -> a - b > 0 ? a : b);
+                    LOGGER.warning(() -> "Dayjest: Telegram 429, tarqatish " + retryAfter + " s to'xtatildi");
+                    try {
+                        acquire(outbound, chatId);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    continue;
+                }
+                failed.increment();
+                LOGGER.log(Level.WARNING, "Dayjest yuborilmadi (chat=" + chatId + ")", e);
+                return;
+            } catch (TelegramApiException | RuntimeException e) {
+                failed.increment();
+                LOGGER.log(Level.WARNING, "Dayjest yuborilmadi (chat=" + chatId + ")", e);
+                return;
+            }
+        }
+    }
+
+    private void prune(long chatId) {
+        try {
+            if (unsubscribe(chatId)) {
+                pruned.increment();
+                LOGGER.fine(() -> "Dayjest: chat " + chatId + " botni bloklagan, obunadan chiqarildi");
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Dayjest jurnaliga yozib bo'lmadi: " + file, e);
+        }
+    }
+
+    /** CBU sanalari {@code dd.MM.yyyy}; tushunarsiz bo'lsa, har qanday yangi kalit yangi kun hisoblanadi. */
+    private static boolean isAfter(String key, String previous) {
+        try {
+            return LocalDate.parse(key, KEY_FORMAT).isAfter(LocalDate.parse(previous, KEY_FORMAT));
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+    }
+
+    private static String subscribeLine(long chatId, List<String> ccys) {
+        return "S " + chatId + " " + String.join(",", ccys) + "\n";
+    }
+}
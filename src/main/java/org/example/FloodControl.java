@@ -0,0 +1,209 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bitta chatdan keladigan xabarlar oqimini cheklaydi.
+ * <p>
+ * Har bir chat uchun GCRA (token bucketning bitta sonli ko'rinishi): {@code perMinute} tezlik va {@code burst}
+ * talik portlash. Shuningdek, chat {@code duplicateWindow} ichida aynan bir xil matnni qayta yuborsa, u
+ * tashlab yuboriladi — birinchisining javobi ikkalasiga ham yetadi.
+ * <p>
+ * Jadval xotirada chegaralangan: o'lchami o'zgarmas, {@link #STRIPES} ta bo'lakka bo'lingan va har bir bo'lak
+ * o'z qulfi ostida. Chat yozuvi bucket to'lib, takror oynasi o'tgach, yangi yozuvdan farq qilmaydi va uning
+ * o'rni boshqa chatga beriladi; bo'sh joy topilmasa, eng "to'la" yozuv siqib chiqariladi (bu chat limitini
+ * yo'qotadi, lekin xotira o'smaydi). Fon tozalovchi thread kerak emas.
+ */
+public class FloodControl {
+
+    public static final int DEFAULT_PER_MINUTE = 20;
+    public static final int DEFAULT_BURST = 8;
+    public static final Duration DEFAULT_DUPLICATE_WINDOW = Duration.ofSeconds(3);
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    static final int STRIPES = 64;
+    /** Bir chat uchun ko'rib chiqiladigan ketma-ket o'rinlar. */
+    private static final int PROBE = 8;
+
+    /** Tekshiruv natijasi. */
+    public enum Verdict {
+        ALLOW,
+        /** Xuddi shu so'rov yaqinda kelgan. */
+        DUPLICATE,
+        /** Limitdan oshdi. */
+        THROTTLE,
+        /** Limitdan oshdi va bu shu cheklovdagi birinchi xabar: chatga bir marta ogohlantirish yuborish mumkin. */
+        NOTIFY
+    }
+
+    /** Bo'lak: parallel massivlar, {@code synchronized (this)} ostida. */
+    private static final class Stripe {
+        final boolean[] used;
+        final long[] chat;
+        /** GCRA: keyingi xabarning "nazariy" kelish vaqti. */
+        final long[] tat;
+        final long[] queryHash;
+        final long[] queryAt;
+        final boolean[] notified;
+
+        Stripe(int slots) {
+            used = new boolean[slots];
+            chat = new long[slots];
+            tat = new long[slots];
+            queryHash = new long[slots];
+            queryAt = new long[slots];
+            notified = new boolean[slots];
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final int slotMask;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final long duplicateNanos;
+
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public FloodControl() {
+        this(DEFAULT_PER_MINUTE, DEFAULT_BURST, DEFAULT_DUPLICATE_WINDOW, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity bir vaqtda kuzatiladigan chatlar soni (ikkining darajasiga yaxlitlanadi)
+     */
+    public FloodControl(int perMinute, int burst, Duration duplicateWindow, int capacity) {
+        if (perMinute <= 0 || burst < 1 || capacity < STRIPES) {
+            throw new IllegalArgumentException("Noto'g'ri limit: " + perMinute + "/min, " + burst + ", " + capacity);
+        }
+        int slots = Integer.highestOneBit(Math.max(PROBE, (capacity - 1) / STRIPES) * 2 - 1);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(slots);
+        }
+        this.slotMask = slots - 1;
+        this.intervalNanos = Duration.ofMinutes(1).toNanos() / perMinute;
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.duplicateNanos = duplicateWindow.toNanos();
+    }
+
+    /**
+     * Chatdan kelgan xabarni qabul qilish kerakmi. {@link Verdict#ALLOW} bo'lsa, limitdan bitta joy band qilinadi.
+     */
+    public Verdict check(long chatId, String text) {
+        long now = System.nanoTime();
+        long hash = hash(text);
+        long h = mix(chatId);
+        Stripe s = stripes[(int) h & (STRIPES - 1)];
+        synchronized (s) {
+            int i = slot(s, chatId, (int) (h >>> 32), now);
+            if (s.queryHash[i] == hash && now - s.queryAt[i] < duplicateNanos) {
+                duplicates.increment();
+                return Verdict.DUPLICATE;
+            }
+            long tat = s.tat[i] - now > 0 ? s.tat[i] : now;
+            if (tat - now > toleranceNanos) {
+                throttled.increment();
+                if (s.notified[i]) {
+                    return Verdict.THROTTLE;
+                }
+                s.notified[i] = true;
+                return Verdict.NOTIFY;
+            }
+            s.tat[i] = tat + intervalNanos;
+            s.notified[i] = false;
+            s.queryHash[i] = hash;
+            s.queryAt[i] = now;
+            return Verdict.ALLOW;
+        }
+    }
+
+    /** Takror bo'lgani uchun tashlangan xabarlar. */
+    public long duplicateCount() {
+        return duplicates.sum();
+    }
+
+    /** Limitdan oshgani uchun tashlangan xabarlar. */
+    public long throttledCount() {
+        return throttled.sum();
+    }
+
+    /** Joy yetmagani uchun hali amal qilayotgan holati bilan siqib chiqarilgan chatlar. */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /** Hozir cheklov holati saqlanayotgan chatlar (jadvalni aylanib chiqadi; monitoring uchun). */
+    public int trackedChats() {
+        long now = System.nanoTime();
+        int n = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (int i = 0; i <= slotMask; i++) {
+                    if (s.used[i] && !isFresh(s, i, now)) n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Chatning o'rni: mavjud yozuv, bo'lmasa birinchi bo'sh yoki eskirgan o'rin, bo'lmasa eng to'la bucketli yozuv.
+     */
+    private int slot(Stripe s, long chatId, int start, long now) {
+        int free = -1;
+        int victim = -1;
+        for (int p = 0; p < PROBE; p++) {
+            int i = (start + p) & slotMask;
+            if (!s.used[i]) {
+                if (free < 0) free = i;
+                continue;
+            }
+            if (s.chat[i] == chatId) {
+                return i;
+            }
+            if (free < 0 && isFresh(s, i, now)) {
+                free = i;
+            } else if (victim < 0 || s.tat[i] - s.tat[victim] < 0) {
+                victim = i;
+            }
+        }
+        int i = free;
+        if (i < 0) {
+            i = victim;
+            evictions.increment();
+        }
+        s.used[i] = true;
+        s.chat[i] = chatId;
+        s.tat[i] = now;
+        s.queryHash[i] = 0;
+        s.queryAt[i] = now - duplicateNanos;
+        s.notified[i] = false;
+        return i;
+    }
+
+    /** Yozuv yangi chat holatidan farq qilmaydi: bucket to'lgan va takror oynasi o'tgan. */
+    private boolean isFresh(Stripe s, int i, long now) {
+        return s.tat[i] - now <= 0 && now - s.queryAt[i] >= duplicateNanos;
+    }
+
+    /** Bo'sh joy va katta-kichik harf farqisiz matn xeshi, nusxa olmasdan. */
+    static long hash(String text) {
+        int from = 0;
+        int to = text.length();
+        while (from < to && Character.isWhitespace(text.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(text.charAt(to - 1))) to--;
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h = (h ^ Character.toLowerCase(text.charAt(i))) * 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    private static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+        x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return x ^ (x >>> 33);
+    }
+}
@@ -0,0 +1,226 @@
+package org.example;
+
+import org.example.currency.AmountFormat;
+import org.example.currency.CrossRates;
+import org.example.currency.CurrencyRate;
+import org.example.currency.CurrencyService;
+import org.example.currency.FixedPoint;
+import org.example.currency.RatesSnapshot;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.inputmessagecontent.InputTextMessageContent;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResult;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Inline rejim ({@code @CurrencyUzb_bot 100 usd}) uchun javoblar.
+ * <p>
+ * Inline so'rovlar har bir bosilgan tugmada keladi, shuning uchun javob tarmoqsiz, joriy snapshotdan
+ * tuziladi: barcha valyutalarning kurs kartalari snapshot versiyasi bo'yicha oldindan qurilgan maqolalar
+ * sifatida saqlanadi, faqat miqdorli so'rovlar uchun bitta maqola yangidan yasaladi. Natijalar foydalanuvchiga
+ * bog'liq emas, shuning uchun Telegram ularni {@link #CACHE_TIME_SECONDS} davomida o'zida keshlaydi.
+ * <p>
+ * Bir foydalanuvchining yangi so'rovi eskisini bekor qiladi: {@link #accept} oxirgi so'rov id sini eslab
+ * qoladi, navbatda kutib qolgan eski so'rovlar {@link #isCurrent} orqali javobsiz tashlab yuboriladi.
+ */
+public final class InlineAnswers {
+
+    /** Bo'sh so'rovda ko'rsatiladigan valyutalar, tartib bilan. */
+    public static final List<String> POPULAR = List.of("USD", "EUR", "RUB", "GBP", "CNY", "KZT", "TRY", "JPY", "CHF", "KRW");
+    public static final int CACHE_TIME_SECONDS = 120;
+    /** Telegram bitta javobda 50 tagacha natija qabul qiladi. */
+    private static final int MAX_RESULTS = 50;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final CurrencyService currencyService;
+    private final AtomicReference<Prebuilt> prebuilt = new AtomicReference<>();
+    private final ConcurrentHashMap<Long, String> latestQuery = new ConcurrentHashMap<>();
+    private final LongAdder superseded = new LongAdder();
+
+    /** Bitta snapshot (va eskirganlik holati) uchun tayyor maqolalar. */
+    private record Prebuilt(long version, boolean stale, Map<String, InlineQueryResultArticle> byCcy,
+                            List<InlineQueryResult> popular) {}
+
+    public InlineAnswers(CurrencyService currencyService) {
+        this.currencyService = currencyService;
+    }
+
+    /** Foydalanuvchining eng so'nggi so'rovini qayd etadi. */
+    public void accept(InlineQuery query) {
+        latestQuery.put(query.getFrom().getId(), query.getId());
+    }
+
+    /**
+     * So'rov hali ham foydalanuvchining oxirgisimi; aks holda uni hisoblashning keragi yo'q.
+     */
+    public boolean isCurrent(InlineQuery query) {
+        if (query.getId().equals(latestQuery.get(query.getFrom().getId()))) {
+            return true;
+        }
+        superseded.increment();
+        return false;
+    }
+
+    /** Javob berilgandan keyin: yangiroq so'rov kelmagan bo'lsa, yozuv o'chiriladi. */
+    public void done(InlineQuery query) {
+        latestQuery.remove(query.getFrom().getId(), query.getId());
+    }
+
+    /** Yangirog'i kelgani uchun javobsiz qolgan so'rovlar soni. */
+    public long supersededCount() {
+        return superseded.sum();
+    }
+
+    /**
+     * So'rov matniga javob tuzadi.
+     */
+    public AnswerInlineQuery answer(InlineQuery query) throws IOException, InterruptedException {
+        RatesSnapshot snapshot = currencyService.currentSnapshot();
+        Prebuilt p = prebuilt(snapshot);
+        String text = query.getQuery() == null ? "" : query.getQuery().trim();
+        InputParser.Query q = InputParser.parse(text, 0, snapshot.names());
+
+        List<InlineQueryResult> results;
+        if (text.isEmpty()) {
+            results = p.popular();
+        } else if (q.isEmpty()) {
+            results = byPrefix(p, text);
+        } else if (q.isHistory()) {
+            results = List.of(historyArticle(q));
+        } else if (!q.hasAmount() && q.toCcy() == null) {
+            InlineQueryResultArticle a = p.byCcy().get(ccyOf(snapshot, q.ccy()));
+            results = a != null ? List.of(a) : List.of();
+        } else {
+            results = conversion(snapshot, p, q);
+        }
+
+        AnswerInlineQuery answer = new AnswerInlineQuery();
+        answer.setInlineQueryId(query.getId());
+        answer.setResults(results);
+        answer.setCacheTime(CACHE_TIME_SECONDS);
+        answer.setIsPersonal(false);
+        return answer;
+    }
+
+    private Prebuilt prebuilt(RatesSnapshot snapshot) {
+        boolean stale = currencyService.isStale();
+        Prebuilt p = prebuilt.get();
+        if (p != null && p.version() == snapshot.version() && p.stale() == stale) {
+            return p;
+        }
+        Map<String, InlineQueryResultArticle> byCcy = new HashMap<>();
+        for (CurrencyRate r : snapshot.sortedUnique()) {
+            String ccy = r.getCcy().trim().toUpperCase(Locale.ROOT);
+            long perUnit = r.getPerUnitScaled();
+            String title = perUnit == FixedPoint.NONE
+                    ? ccy
+                    : ccy + " — " + AmountFormat.rate(perUnit) + " so'm";
+            byCcy.put(ccy, article("rate:" + ccy, title, r.getDisplayName(), currencyService.getRateMessage(snapshot, r)));
+        }
+        List<InlineQueryResult> popular = new ArrayList<>(POPULAR.size());
+        for (String ccy : POPULAR) {
+            InlineQueryResultArticle a = byCcy.get(ccy);
+            if (a != null) popular.add(a);
+        }
+        Prebuilt fresh = new Prebuilt(snapshot.version(), stale, Map.copyOf(byCcy), List.copyOf(popular));
+        prebuilt.set(fresh);
+        return fresh;
+    }
+
+    /** "us" → USD; "ro" → nomi "Rossiya rubli" kabi shu bilan boshlanadiganlar (o'zbekcha nom bo'yicha). */
+    private static List<InlineQueryResult> byPrefix(Prebuilt p, String text) {
+        String prefix = text.toLowerCase(Locale.ROOT);
+        List<InlineQueryResult> out = new ArrayList<>();
+        for (String ccy : POPULAR) {
+            InlineQueryResultArticle a = p.byCcy().get(ccy);
+            if (a != null && matches(a, ccy, prefix)) out.add(a);
+        }
+        for (Map.Entry<String, InlineQueryResultArticle> e : p.byCcy().entrySet()) {
+            if (out.size() >= MAX_RESULTS) break;
+            if (!POPULAR.contains(e.getKey()) && matches(e.getValue(), e.getKey(), prefix)) out.add(e.getValue());
+        }
+        return out;
+    }
+
+    private static boolean matches(InlineQueryResultArticle a, String ccy, String prefix) {
+        return ccy.toLowerCase(Locale.ROOT).startsWith(prefix)
+                || (a.getDescription() != null && a.getDescription().toLowerCase(Locale.ROOT).startsWith(prefix));
+    }
+
+    private List<InlineQueryResult> conversion(RatesSnapshot snapshot, Prebuilt p, InputParser.Query q) {
+        CrossRates cross = snapshot.crossRates();
+        String ccy = q.ccy() != null ? ccyOf(snapshot, q.ccy()) : "USD";
+        int foreign = cross.indexOf(ccy);
+        if (foreign == CrossRates.NONE) {
+            return List.of();
+        }
+        long amount = q.hasAmount() ? q.amount() : FixedPoint.AMOUNT_ONE;
+        String a = AmountFormat.amount(amount);
+        List<InlineQueryResult> out = new ArrayList<>(2);
+        if (q.toCcy() != null) {
+            String toCcy = ccyOf(snapshot, q.toCcy());
+            int to = cross.indexOf(toCcy);
+            if (to == CrossRates.NONE) {
+                return List.of();
+            }
+            String title = a + " " + ccy + " = " + AmountFormat.amount(cross.convert(amount, foreign, to)) + " " + toCcy;
+            out.add(article("x:" + ccy + ":" + toCcy + ":" + amount, title, "Kross-kurs",
+                    currencyService.getCrossConversionMessage(ccy, toCcy, amount)));
+        } else if (q.fromUzs()) {
+            String title = a + " so'm = " + AmountFormat.amount(cross.convert(amount, 0, foreign)) + " " + ccy;
+            out.add(article("r:" + ccy + ":" + amount, title, "So'mdan " + ccy + "ga",
+                    currencyService.getReverseConversionMessageScaled(ccy, amount)));
+        } else {
+            String title = a + " " + ccy + " = " + AmountFormat.amount(cross.convert(amount, foreign, 0)) + " so'm";
+            out.add(article("c:" + ccy + ":" + amount, title, ccy + " dan so'mga",
+                    currencyService.getConversionMessageScaled(ccy, amount)));
+        }
+        InlineQueryResultArticle rate = p.byCcy().get(ccy);
+        if (rate != null) out.add(rate);
+        return out;
+    }
+
+    /**
+     * Maqolalar va kross-kurs jadvali alifboli CCY bo'yicha: uch raqamli kod ("840") chatdagi kabi
+     * {@link RatesSnapshot#find} orqali CCY ga aylantiriladi. Topilmasa, kalit o'zgarishsiz qaytadi.
+     */
+    private static String ccyOf(RatesSnapshot snapshot, String key) {
+        CurrencyRate r = snapshot.find(key);
+        return r == null || r.getCcy() == null ? key : r.getCcy().trim().toUpperCase(Locale.ROOT);
+    }
+
+    private InlineQueryResultArticle historyArticle(InputParser.Query q) {
+        String ccy = q.ccy() != null ? q.ccy() : "USD";
+        if (q.date() != null) {
+            return article("h:" + ccy + ":" + q.date() + ":" + q.amount() + ":" + q.fromUzs(),
+                    ccy + ", " + DAY_FORMAT.format(q.date()), "Tarixiy kurs",
+                    currencyService.getHistoryMessage(ccy, q.date(), q.amount(), q.fromUzs()));
+        }
+        return article("d:" + ccy + ":" + q.days(), ccy + ", oxirgi " + q.days() + " kun", "Kurs tarixi",
+                currencyService.getHistoryRangeMessage(ccy, q.days()));
+    }
+
+    private static InlineQueryResultArticle article(String id, String title, String description, String html) {
+        InputTextMessageContent content = new InputTextMessageContent();
+        content.setMessageText(html);
+        content.setParseMode("HTML");
+        content.setDisableWebPagePreview(true);
+        InlineQueryResultArticle a = new InlineQueryResultArticle();
+        a.setId(id);
+        a.setTitle(title);
+        a.setDescription(description);
+        a.setInputMessageContent(content);
+        return a;
+    }
+}
@@ -0,0 +1,481 @@
+package org.example;
+
+import org.example.currency.CurrencyNames;
+import org.example.currency.FixedPoint;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Foydalanuvchi matnini bir o'tishda tahlil qiluvchi qo'lda yozilgan lekser.
+ * <p>
+ * Regex va oraliq massivlarsiz ishlaydi: tokenlar matn ichidagi indekslar bilan ko'riladi.
+ * Tanilgan tokenlar:
+ * <ul>
+ *     <li>son: {@code 120}, {@code 12,5}, {@code 1.000,50}, {@code 1,000.50}, {@code 1 000 000};</li>
+ *     <li>so'm: {@code UZS}, {@code so'm}, {@code som}, {@code sum} (registr muhim emas);</li>
+ *     <li>valyuta: uch harfli kod ({@code usd}); ikkinchi valyuta — maqsad ({@code 100 EUR RUB});</li>
+ *     <li>sana: {@code 2024-03-01} yoki {@code 01.03.2024};</li>
+ *     <li>davr: {@code 30 kun} ({@code kun}, {@code kunlik}, {@code day}, {@code days}).</li>
+ * </ul>
+ * Bitta ajratgich ({@code 12,500}) kasr deb olinadi; bir xil ajratgich bir necha marta kelsa yoki
+ * ikkala ajratgich ham bo'lsa, oxirgisi kasr, qolganlari minglik ajratgichi hisoblanadi.
+ * Bir nechta son bo'lsa, oxirgisi olinadi; birinchi valyuta — manba, keyingilarining oxirgisi — maqsad.
+ * Valyutadan keyin kelgan {@code UZS} maqsad hisoblanadi, oldin kelgani esa miqdor so'mda ekanini bildiradi.
+ * Tanilmagan tokenlar e'tiborsiz qoldiriladi.
+ * <p>
+ * {@link CurrencyNames} berilsa, ketma-ket so'zlar ("yevro", "kanada dollari", kod bo'lmagan "yen") valyuta
+ * nomi sifatida qidiriladi; hech narsa topilmasa, uch harfli so'z avvalgidek kod deb olinadi.
+ */
+public final class InputParser {
+
+    /**
+     * Tahlil natijasi.
+     *
+     * @param ccy     valyuta kodi (katta harflarda) yoki {@code null}
+     * @param toCcy   maqsad valyuta (kross-kurs uchun) yoki {@code null} — so'm
+     * @param amount  miqdor, {@link FixedPoint#AMOUNT_SCALE} masshtabida; yo'q bo'lsa {@link FixedPoint#NONE}
+     * @param fromUzs miqdor so'mda berilgan (UZS → valyuta)
+     * @param date    tarixiy sana yoki {@code null}
+     * @param days    oxirgi necha kunlik tarix; so'ralmagan bo'lsa {@code 0}
+     */
+    public record Query(String ccy, String toCcy, long amount, boolean fromUzs, LocalDate date, int days) {
+        public boolean hasAmount() {
+            return amount != FixedPoint.NONE;
+        }
+
+        /** Tarix so'ralganmi (sana yoki davr). */
+        public boolean isHistory() {
+            return date != null || days > 0;
+        }
+
+        public boolean isEmpty() {
+            return ccy == null && amount == FixedPoint.NONE && !isHistory();
+        }
+    }
+
+    /** "30 kun" da qabul qilinadigan eng katta davr (10 yil). */
+    public static final int MAX_DAYS = 3660;
+
+    private static final long INVALID = FixedPoint.NONE;
+
+    private InputParser() {
+    }
+
+    public static Query parse(String text) {
+        return parse(text, 0);
+    }
+
+    /**
+     * {@code text} ni {@code from} indeksidan boshlab tahlil qiladi (masalan, {@code /kurs} buyrug'idan keyin).
+     */
+    public static Query parse(String text, int from) {
+        return parse(text, from, null);
+    }
+
+    /**
+     * @param names valyuta nomlari indeksi; {@code null} bo'lsa, faqat kodlar taniladi
+     */
+    public static Query parse(String text, int from, CurrencyNames names) {
+        String ccy = null;
+        String toCcy = null;
+        long amount = FixedPoint.NONE;
+        boolean fromUzs = false;
+        LocalDate date = null;
+        int days = 0;
+        // oxirgi son tokeni va undan oldingi miqdor: "30 kun" da son miqdor emas, davr
+        long lastNumber = FixedPoint.NONE;
+        long amountBeforeNumber = FixedPoint.NONE;
+        // hali qidirilmagan ketma-ket so'zlar va ulardagi birinchi uch harfli so'z
+        int phraseStart = -1;
+        int phraseEnd = -1;
+        int phraseCode = -1;
+
+        int n = text.length();
+        int i = from;
+        while (true) {
+            while (i < n && Character.isWhitespace(text.charAt(i))) i++;
+            if (i >= n) break;
+            int start = i;
+            while (i < n && !Character.isWhitespace(text.charAt(i))) i++;
+            int end = i;
+
+            char c = text.charAt(start);
+            if (names != null && isNameWord(text, start, end, names)) {
+                if (phraseStart < 0) phraseStart = start;
+                if (phraseCode < 0 && isLetters3(text, start, end)) phraseCode = start;
+                phraseEnd = end;
+                continue;
+            }
+            if (phraseStart >= 0) {
+                for (String found : names(text, phraseStart, phraseEnd, phraseCode, names)) {
+                    if (ccy == null) ccy = found;
+                    else toCcy = found;
+                }
+                phraseStart = -1;
+                phraseCode = -1;
+            }
+            LocalDate parsedDate = isDigit(c) ? parseDate(text, start, end) : null;
+            if (parsedDate != null) {
+                date = parsedDate;
+                lastNumber = FixedPoint.NONE;
+                continue;
+            }
+            if (isDaysWord(text, start, end)) {
+                if (lastNumber != FixedPoint.NONE && lastNumber > 0 && lastNumber % FixedPoint.AMOUNT_ONE == 0
+                        && lastNumber / FixedPoint.AMOUNT_ONE <= MAX_DAYS) {
+                    days = (int) (lastNumber / FixedPoint.AMOUNT_ONE);
+                    amount = amountBeforeNumber;
+                }
+                lastNumber = FixedPoint.NONE;
+                continue;
+            }
+            long previousAmount = amount;
+            lastNumber = FixedPoint.NONE;
+            if (isDigit(c) || ((c == '-' || c == '+') && end - start > 1)) {
+                long value = parseAmount(text, start, end);
+                if (value == INVALID) continue;
+                if (isShortInteger(text, start, end)) {
+                    // "1 000 000" yoki "1 000,50": keyingi uch xonali guruhlarni qo'shib olamiz
+                    int groupsEnd = groupsEnd(text, i, n);
+                    value = joinGroups(text, value, c == '-', i, groupsEnd, FixedPoint.AMOUNT_SCALE);
+                    // sig'masa ham guruhlar oxirigacha o'qiladi: qolgan "000" alohida son bo'lib qolmasin
+                    i = groupsEnd;
+                    if (value == INVALID) continue; // juda katta son: bitta uzun token kabi yaroqsiz
+                }
+                amountBeforeNumber = previousAmount;
+                lastNumber = value;
+                amount = value;
+            } else if (isUzsWord(text, start, end)) {
+                fromUzs = true;
+            } else if (isLetters3(text, start, end)) {
+                if (text.regionMatches(true, start, "UZS", 0, 3)) {
+                    // "100 EUR UZS" — maqsad so'm (odatiy yo'nalish); "UZS 100 EUR" — miqdor so'mda
+                    if (ccy == null) {
+                        fromUzs = true;
+                    }
+                } else if (ccy == null) {
+                    ccy = upper3(text, start);
+                } else {
+                    toCcy = upper3(text, start);
+                }
+            }
+        }
+        if (phraseStart >= 0) {
+            for (String found : names(text, phraseStart, phraseEnd, phraseCode, names)) {
+                if (ccy == null) ccy = found;
+                else toCcy = found;
+            }
+        }
+        if (fromUzs && toCcy != null) {
+            // "so'm" bilan faqat bitta yo'nalish bor: so'm → oxirgi valyuta
+            ccy = toCcy;
+            toCcy = null;
+        }
+        if (toCcy != null && toCcy.equals(ccy)) {
+            toCcy = null;
+        }
+        return new Query(ccy, toCcy, amount, fromUzs, date, days);
+    }
+
+    /** Nom qidiruviga beriladigan so'z: harf bilan boshlanadi va kod, so'm yoki "kun" emas. */
+    private static boolean isNameWord(String s, int start, int end, CurrencyNames names) {
+        if (!Character.isLetter(s.charAt(start)) || isUzsWord(s, start, end) || isDaysWord(s, start, end)) {
+            return false;
+        }
+        return !isLetters3(s, start, end)
+                || (!s.regionMatches(true, start, "UZS", 0, 3) && !names.isCode(s.substring(start, end)));
+    }
+
+    /** So'zlar qaysi valyutalarni bildiradi; topilmasa, birinchi uch harfli so'z kod deb olinadi. */
+    private static List<String> names(String s, int start, int end, int code, CurrencyNames names) {
+        List<String> found = names.resolve(s, start, end);
+        if (found.isEmpty() && code >= 0) {
+            return List.of(upper3(s, code));
+        }
+        return found;
+    }
+
+    private static boolean isLetters3(CharSequence s, int start, int end) {
+        return end - start == 3 && isLetter(s.charAt(start)) && isLetter(s.charAt(start + 1)) && isLetter(s.charAt(start + 2));
+    }
+
+    /**
+     * {@code [from, to)} da faqat bitta son bo'lsa, uni {@code scale} masshtabida o'qiydi: ajratgichlar va minglik
+     * guruhlari ({@code 12 800,50}) {@link #parse} dagi qoidalar bilan. Masalan, {@code /alert} chegarasi uchun.
+     *
+     * @return qiymat yoki son bo'lmasa (yoki undan keyin boshqa narsa bo'lsa) {@link FixedPoint#NONE}
+     */
+    public static long parseNumber(String text, int from, int to, int scale) {
+        int start = from;
+        while (start < to && Character.isWhitespace(text.charAt(start))) start++;
+        int end = start;
+        while (end < to && !Character.isWhitespace(text.charAt(end))) end++;
+        if (start == end) return INVALID;
+        long value = parseDecimal(text, start, end, scale);
+        if (value == INVALID) return INVALID;
+        if (isShortInteger(text, start, end)) {
+            int groupsEnd = groupsEnd(text, end, to);
+            value = joinGroups(text, value, text.charAt(start) == '-', end, groupsEnd, scale);
+            end = groupsEnd;
+        }
+        while (end < to && Character.isWhitespace(text.charAt(end))) end++;
+        return end == to ? value : INVALID;
+    }
+
+    /**
+     * {@code from} dan keyingi minglik guruhlari ("000", oxirgisi "000,50" ham bo'lishi mumkin) tugaydigan indeks;
+     * guruh bo'lmasa {@code from}.
+     */
+    private static int groupsEnd(CharSequence s, int from, int to) {
+        int i = from;
+        while (true) {
+            int j = i;
+            while (j < to && Character.isWhitespace(s.charAt(j))) j++;
+            int k = j;
+            while (k < to && !Character.isWhitespace(s.charAt(k))) k++;
+            int groupEnd = trailingGroupEnd(s, j, k);
+            if (groupEnd < 0) return i;
+            i = k;
+            if (groupEnd != k) return i; // kasr qismi bor: guruhlar tugadi
+        }
+    }
+
+    /**
+     * 1..3 xonali {@code first} ga {@code [from, to)} dagi guruhlarni qo'shadi.
+     *
+     * @return {@code scale} masshtabidagi qiymat yoki sig'masa {@link #INVALID}
+     */
+    private static long joinGroups(CharSequence s, long first, boolean negative, int from, int to, int scale) {
+        long abs = Math.abs(first);
+        int i = from;
+        while (true) {
+            while (i < to && Character.isWhitespace(s.charAt(i))) i++;
+            if (i >= to) break;
+            int k = i;
+            while (k < to && !Character.isWhitespace(s.charAt(k))) k++;
+            long group = parseDecimal(s, i, k, scale);
+            if (group == INVALID || abs > (Long.MAX_VALUE - group) / 1000) return INVALID;
+            abs = abs * 1000 + group;
+            i = k;
+        }
+        return negative ? -abs : abs;
+    }
+
+    /**
+     * Bitta tokenni miqdor sifatida o'qiydi.
+     *
+     * @return {@link FixedPoint#AMOUNT_SCALE} masshtabidagi qiymat yoki {@link #INVALID}
+     */
+    static long parseAmount(CharSequence s, int start, int end) {
+        return parseDecimal(s, start, end, FixedPoint.AMOUNT_SCALE);
+    }
+
+    /**
+     * Bitta tokenni o'nli son sifatida o'qiydi; kasr qismi {@code scale} xonagacha yaxlitlanadi.
+     *
+     * @return {@code scale} masshtabidagi qiymat yoki {@link #INVALID}
+     */
+    private static long parseDecimal(CharSequence s, int start, int end, int scale) {
+        long one = 1;
+        for (int d = 0; d < scale; d++) one *= 10;
+        int i = start;
+        boolean negative = false;
+        char first = s.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        if (i >= end) return INVALID;
+
+        // Qaysi belgi kasr ajratgichi ekanini aniqlaymiz
+        int dots = 0, commas = 0, lastDot = -1, lastComma = -1;
+        for (int p = i; p < end; p++) {
+            char c = s.charAt(p);
+            if (c == '.') { dots++; lastDot = p; }
+            else if (c == ',') { commas++; lastComma = p; }
+            else if (!isDigit(c) && !isGroupChar(c)) return INVALID;
+        }
+        int decimalAt;
+        if (dots > 0 && commas > 0) {
+            decimalAt = Math.max(lastDot, lastComma);
+        } else if (dots == 1) {
+            decimalAt = lastDot;
+        } else if (commas == 1) {
+            decimalAt = lastComma;
+        } else {
+            decimalAt = -1; // faqat minglik ajratgichlar (yoki umuman yo'q)
+        }
+        if (decimalAt >= 0 && (s.charAt(decimalAt) == '.' ? dots : commas) > 1) {
+            return INVALID; // "1.000.5" yoki "1,5,5"
+        }
+
+        long whole = 0;
+        int groupDigits = 0;
+        int groups = 0;
+        boolean grouped = false;
+        int intEnd = decimalAt >= 0 ? decimalAt : end;
+        for (int p = i; p < intEnd; p++) {
+            char c = s.charAt(p);
+            if (isDigit(c)) {
+                if (whole > (Long.MAX_VALUE / 10 - 9) / one) return INVALID;
+                whole = whole * 10 + (c - '0');
+                groupDigits++;
+            } else {
+                // minglik ajratgich: birinchi guruh 1..3, keyingilari aynan 3 raqam
+                if (groupDigits == 0 || groupDigits > 3 || (groups > 0 && groupDigits != 3)) return INVALID;
+                grouped = true;
+                groups++;
+                groupDigits = 0;
+            }
+        }
+        if (groupDigits == 0 || (grouped && groupDigits != 3)) return INVALID;
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (decimalAt >= 0) {
+            if (decimalAt + 1 >= end) return INVALID;
+            for (int p = decimalAt + 1; p < end; p++) {
+                char c = s.charAt(p);
+                if (!isDigit(c)) return INVALID;
+                if (fractionDigits < scale) {
+                    fraction = fraction * 10 + (c - '0');
+                } else if (fractionDigits == scale) {
+                    roundUp = c >= '5';
+                }
+                fractionDigits++;
+            }
+            for (int d = fractionDigits; d < scale; d++) fraction *= 10;
+        }
+        long value = whole * one + fraction + (roundUp ? 1 : 0);
+        return negative ? -value : value;
+    }
+
+    /** Ishorali yoki ishorasiz 1..3 xonali butun son ("1", "-12", "120"). */
+    private static boolean isShortInteger(CharSequence s, int start, int end) {
+        int i = s.charAt(start) == '-' || s.charAt(start) == '+' ? start + 1 : start;
+        int len = end - i;
+        if (len < 1 || len > 3) return false;
+        for (int p = i; p < end; p++) {
+            if (!isDigit(s.charAt(p))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Token minglik guruhimi: aynan uch raqam, ixtiyoriy ravishda kasr qismi bilan ("000", "000,50").
+     *
+     * @return guruh raqamlaridan keyingi indeks yoki guruh bo'lmasa {@code -1}
+     */
+    private static int trailingGroupEnd(CharSequence s, int start, int end) {
+        if (end - start < 3) return -1;
+        for (int p = start; p < start + 3; p++) {
+            if (!isDigit(s.charAt(p))) return -1;
+        }
+        int after = start + 3;
+        if (after == end) return end;
+        char sep = s.charAt(after);
+        if ((sep != '.' && sep != ',') || after + 1 >= end) return -1;
+        for (int p = after + 1; p < end; p++) {
+            if (!isDigit(s.charAt(p))) return -1;
+        }
+        return after;
+    }
+
+    /**
+     * {@code yyyy-MM-dd} yoki {@code dd.MM.yyyy} ko'rinishidagi sana.
+     *
+     * @return sana yoki token sana bo'lmasa {@code null}
+     */
+    private static LocalDate parseDate(CharSequence s, int start, int end) {
+        if (end - start != 10) return null;
+        int year, month, day;
+        if (s.charAt(start + 4) == '-' && s.charAt(start + 7) == '-') {
+            year = digits(s, start, 4);
+            month = digits(s, start + 5, 2);
+            day = digits(s, start + 8, 2);
+        } else if (s.charAt(start + 2) == '.' && s.charAt(start + 5) == '.') {
+            day = digits(s, start, 2);
+            month = digits(s, start + 3, 2);
+            year = digits(s, start + 6, 4);
+        } else {
+            return null;
+        }
+        if (year < 0 || month < 0 || day < 0) return null;
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(CharSequence s, int start, int len) {
+        int v = 0;
+        for (int p = start; p < start + len; p++) {
+            char c = s.charAt(p);
+            if (!isDigit(c)) return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    /** kun, kunlik, day, days. */
+    private static boolean isDaysWord(CharSequence s, int start, int end) {
+        int len = end - start;
+        return (len == 3 && (regionEqualsIgnoreCase(s, start, "kun") || regionEqualsIgnoreCase(s, start, "day")))
+                || (len == 4 && regionEqualsIgnoreCase(s, start, "days"))
+                || (len == 6 && regionEqualsIgnoreCase(s, start, "kunlik"));
+    }
+
+    /** UZS, so'm (har xil apostrof bilan), som, sum. */
+    private static boolean isUzsWord(CharSequence s, int start, int end) {
+        int len = end - start;
+        if (len == 3) {
+            return regionEqualsIgnoreCase(s, start, "som") || regionEqualsIgnoreCase(s, start, "sum");
+        }
+        if (len == 4) {
+            char apostrophe = s.charAt(start + 2);
+            return (apostrophe == '\'' || apostrophe == '’' || apostrophe == '`' || apostrophe == 'ʻ' || apostrophe == 'ʼ')
+                    && lower(s.charAt(start)) == 's' && lower(s.charAt(start + 1)) == 'o' && lower(s.charAt(start + 3)) == 'm';
+        }
+        return false;
+    }
+
+    private static boolean regionEqualsIgnoreCase(CharSequence s, int start, String lowerWord) {
+        for (int p = 0; p < lowerWord.length(); p++) {
+            if (lower(s.charAt(start + p)) != lowerWord.charAt(p)) return false;
+        }
+        return true;
+    }
+
+    private static String upper3(String s, int start) {
+        char a = s.charAt(start), b = s.charAt(start + 1), c = s.charAt(start + 2);
+        if (a <= 'Z' && b <= 'Z' && c <= 'Z') {
+            return s.substring(start, start + 3);
+        }
+        return new String(new char[]{upper(a), upper(b), upper(c)});
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    /** Token ichidagi minglik ajratgichlari: bo'linmas bo'sh joylar, apostrof, pastki chiziq. */
+    private static boolean isGroupChar(char c) {
+        return c == '\u00A0' || c == '\u202F' || c == '\'' || c == '_';
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+
+    private static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - 32) : c;
+    }
+}
@@ -1,11 +1,44 @@
 package org.example;
 
+import org.example.currency.CbuClient;
+import org.example.currency.CurrencyService;
+import org.example.currency.HistoryBackfill;
+import org.example.currency.RateHistory;
+import org.example.currency.RatesCache;
+import org.example.currency.RatesSource;
+import org.example.currency.ResilientRatesSource;
+import org.example.currency.SharedSnapshot;
+import org.example.currency.SnapshotStore;
+import org.example.metrics.MetricsMBean;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.MetricsServer;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class Main {
+    /** Kurslar o'zgarmasa ham saqlangan snapshotning {@code savedAt} i shu oraliqda yangilanadi. */
+    private static final Duration SNAPSHOT_CONFIRM_INTERVAL = Duration.ofHours(1);
+
+    /** Ogohlantirishlar yoki dayjest yoqilgan, CBU_POLL_SECONDS esa berilmagan bo'lsa, CBU shu oraliqda tekshiriladi. */
+    private static final Duration DEFAULT_POLL_PERIOD = Duration.ofMinutes(5);
+
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--train")) {
+            train();
+            return;
+        }
         try {
             String token = firstNonBlank(
                     System.getenv("TELEGRAM_BOT_TOKEN"),
@@ -25,12 +58,354 @@ public class Main {
                 System.exit(1);
             }
 
+            Duration cacheTtl = secondsOrDefault(RatesCache.DEFAULT_TTL, firstNonBlank(
+                    System.getenv("CBU_CACHE_TTL_SECONDS"),
+                    System.getProperty("cbu.cache.ttl.seconds")
+            ));
+            String endpoints = firstNonBlank(
+                    System.getenv("CBU_ENDPOINTS"),
+                    System.getProperty("cbu.endpoints")
+            );
+            List<CbuClient> mirrors = (endpoints == null ? CbuClient.DEFAULT_ENDPOINTS : List.of(endpoints.split(",")))
+                    .stream()
+                    .map(String::trim)
+                    .filter(e -> !e.isEmpty())
+                    .map(CbuClient::new)
+                    .toList();
+            RatesSource upstream = new ResilientRatesSource(mirrors);
+            SharedSnapshot shared = openShared(upstream);
+            RatesCache ratesCache = new RatesCache(shared != null ? shared : upstream, cacheTtl);
+            RateAlerts alerts = openAlerts(ratesCache); // tinglovchilar birinchi yangilanishdan oldin qo'shilsin
+            DailyDigest digest = openDigest(ratesCache);
+            warmStart(ratesCache, shared);
+            if (shared != null) {
+                shared.watch(ratesCache, cacheTtl, SharedSnapshot.DEFAULT_WATCH_PERIOD);
+            }
+            // Ogohlantirishlar va dayjest faqat yangi kurslar kelganda ishlaydi: so'rovlar bo'lmasa, ular jim qoladi.
+            boolean needsPolling = alerts != null || digest != null;
+            Duration pollPeriod = secondsOrDefault(needsPolling ? DEFAULT_POLL_PERIOD : Duration.ZERO, firstNonBlank(
+                    System.getenv("CBU_POLL_SECONDS"),
+                    System.getProperty("cbu.poll.seconds")
+            ));
+            if (!pollPeriod.isZero() && !pollPeriod.isNegative()) {
+                ratesCache.startPolling(pollPeriod);
+            }
+            int historyDays = intOrDefault(HistoryBackfill.DEFAULT_DEPTH_DAYS, firstNonBlank(
+                    System.getenv("CBU_HISTORY_DAYS"),
+                    System.getProperty("cbu.history.days")
+            ));
+            RateHistory history = null;
+            if (historyDays > 0) {
+                String historyDir = firstNonBlank(
+                        System.getenv("CBU_HISTORY_DIR"),
+                        System.getProperty("cbu.history.dir"),
+                        "data/history"
+                );
+                try {
+                    history = RateHistory.open(Path.of(historyDir));
+                    new HistoryBackfill(history, mirrors.get(0), historyDays).start(HistoryBackfill.DEFAULT_INTERVAL);
+                } catch (IOException e) {
+                    System.err.println("Kurslar tarixini ochib bo'lmadi (" + historyDir + "): " + e.getMessage());
+                }
+            }
+            CurrencyService currencyService = new CurrencyService(ratesCache, history);
+
+            int maxBacklog = intOrDefault(UpdateDispatcher.DEFAULT_MAX_BACKLOG, firstNonBlank(
+                    System.getenv("BOT_MAX_BACKLOG"),
+                    System.getProperty("bot.max.backlog")
+            ));
+            UpdateDispatcher dispatcher = new UpdateDispatcher(
+                    maxBacklog, UpdateDispatcher.DEFAULT_MAX_PER_CHAT, UpdateDispatcher.DEFAULT_MAX_WAIT);
+
+            MyBot bot = new MyBot(username, token, currencyService, dispatcher, null, alerts, digest);
+            MetricsRegistry metrics = registerMetrics(mirrors, ratesCache, dispatcher, bot);
+            if (alerts != null) {
+                metrics.gauge("rate_alerts_active", "Faol kurs ogohlantirishlari", alerts::size)
+                        .counter("rate_alerts_triggered_total", "Ishlagan ogohlantirishlar", alerts::triggeredCount)
+                        .gauge("rate_alerts_pending", "Yuborilishini kutayotgan bildirishnomalar", alerts::pendingCount);
+            }
+            if (digest != null) {
+                metrics.gauge("digest_subscribers", "Kunlik dayjest obunachilari", digest::size)
+                        .counter("digest_sent_total", "Yuborilgan dayjestlar", digest::sentCount)
+                        .counter("digest_pruned_total", "Botni bloklagani uchun obunadan chiqarilganlar", digest::prunedCount)
+                        .counter("digest_failed_total", "Yuborilmagan dayjestlar", digest::failedCount)
+                        .gauge("digest_remaining", "Joriy tarqatishda qolgan chatlar", digest::remaining);
+            }
+            if (shared != null) {
+                metrics.gauge("shared_snapshot_leader", "Bu jarayon umumiy snapshot yetakchisimi (1/0)", () -> shared.isLeader() ? 1 : 0)
+                        .gauge("shared_snapshot_sequence", "Umumiy snapshot seqlock hisoblagichi", shared::sequence)
+                        .counter("shared_snapshot_decodes_total", "Umumiy fayldan tiklangan snapshotlar", shared::decodeCount)
+                        .counter("shared_snapshot_writes_total", "Umumiy faylga yozilgan snapshotlar", shared::writeCount)
+                        .counter("shared_snapshot_read_retries_total", "Yozuvchi bilan to'qnashgan o'qishlar", shared::readRetryCount);
+            }
+            startMetrics(metrics);
+            String mode = firstNonBlank(
+                    System.getenv("BOT_MODE"),
+                    System.getProperty("bot.mode"),
+                    "polling"
+            );
+            if (mode.equalsIgnoreCase("webhook")) {
+                startWebhook(bot, token);
+                System.out.println("MyBot started as @" + username + " (webhook). Press Ctrl+C to stop.");
+                return;
+            }
+
             TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            botsApi.registerBot(new MyBot(username, token));
+            botsApi.registerBot(bot);
             System.out.println("MyBot started as @" + username + ". Press Ctrl+C to stop.");
-        } catch (TelegramApiException e) {
+        } catch (TelegramApiException | IOException e) {
             System.err.println("Failed to start MyBot: " + e.getMessage());
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * CDS arxivi yoki native-image metama'lumotlari uchun mashq yurishi ({@link Training}).
+     */
+    private static void train() {
+        try {
+            Training.run();
+            System.out.println("Mashq yurishi tugadi.");
+        } catch (IOException e) {
+            System.err.println("Mashq yurishi muvaffaqiyatsiz: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Diskdagi oxirgi snapshotni keshga yuklaydi va har bir yangi snapshotni u yerga saqlab boradi.
+     * Yuklangan snapshot darhol fonda jonli ma'lumot bilan solishtiriladi. Umumiy snapshot rejimida u
+     * JSON fayldan oldin o'qiladi, faylni esa faqat yetakchi jarayon yozadi.
+     */
+    private static void warmStart(RatesCache ratesCache, SharedSnapshot shared) {
+        String file = firstNonBlank(
+                System.getenv("CBU_SNAPSHOT_FILE"),
+                System.getProperty("cbu.snapshot.file"),
+                "data/rates-snapshot.json"
+        );
+        if (file.equalsIgnoreCase("off") && shared == null) {
+            return;
+        }
+        Duration maxStaleness = secondsOrDefault(SnapshotStore.DEFAULT_MAX_STALENESS, firstNonBlank(
+                System.getenv("CBU_MAX_STALENESS_SECONDS"),
+                System.getProperty("cbu.max.staleness.seconds")
+        ));
+        SnapshotStore store = file.equalsIgnoreCase("off") ? null : new SnapshotStore(Path.of(file));
+        try {
+            SnapshotStore.Saved saved = shared != null ? shared.read() : null;
+            if (saved == null && store != null) {
+                saved = store.load();
+            }
+            if (saved == null) {
+                System.out.println("Saqlangan snapshot yo'q (" + file + "), kurslar CBU dan olinadi.");
+            } else if (saved.age(Instant.now()).compareTo(maxStaleness) > 0) {
+                System.err.println("Saqlangan snapshot juda eski (" + saved.savedAt() + "), e'tiborga olinmadi.");
+            } else if (ratesCache.seed(saved.snapshot(), saved.savedAt())) {
+                System.out.println("Kurslar diskdan tiklandi: " + saved.snapshot().sortedUnique().size()
+                        + " ta valyuta, saqlangan " + saved.savedAt());
+            }
+        } catch (IOException e) {
+            System.err.println("Saqlangan snapshotni o'qib bo'lmadi (" + file + "): " + e.getMessage());
+        }
+        if (store != null) {
+            // "O'zgarmagan" javob ham snapshotni tasdiqlaydi: savedAt faqat kurs o'zgarganda yangilansa, bayramlarda
+            // to'g'ri snapshot qayta ishga tushishda "juda eski" bo'lib qoladi. O'zgarmaganda soatiga bir marta yoziladi.
+            AtomicReference<SnapshotStore.Saved> lastSaved = new AtomicReference<>();
+            ratesCache.addConfirmListener(snapshot -> {
+                if (shared != null && !shared.isLeader()) {
+                    return;
+                }
+                Instant now = Instant.now();
+                SnapshotStore.Saved last = lastSaved.get();
+                if (last != null && last.snapshot() == snapshot && last.age(now).compareTo(SNAPSHOT_CONFIRM_INTERVAL) < 0) {
+                    return;
+                }
+                try {
+                    store.save(snapshot, now);
+                    lastSaved.set(new SnapshotStore.Saved(snapshot, now));
+                } catch (IOException e) {
+                    System.err.println("Snapshotni diskka yozib bo'lmadi (" + file + "): " + e.getMessage());
+                }
+            });
+        }
+        ratesCache.refresh();
+    }
+
+    /**
+     * Bir hostdagi bir nechta jarayon uchun umumiy snapshot ({@code CBU_SHARED_FILE}); berilmagan bo'lsa, {@code null}.
+     */
+    private static SharedSnapshot openShared(RatesSource upstream) {
+        String file = firstNonBlank(
+                System.getenv("CBU_SHARED_FILE"),
+                System.getProperty("cbu.shared.file")
+        );
+        if (file == null || file.equalsIgnoreCase("off")) {
+            return null;
+        }
+        try {
+            return SharedSnapshot.open(Path.of(file), upstream);
+        } catch (IOException e) {
+            System.err.println("Umumiy snapshot faylini ochib bo'lmadi (" + file + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Dayjest obunalarini ochadi va har bir yangi snapshotni tarqatishga beradi.
+     */
+    private static DailyDigest openDigest(RatesCache ratesCache) {
+        String file = firstNonBlank(
+                System.getenv("BOT_DIGEST_FILE"),
+                System.getProperty("bot.digest.file"),
+                "data/digest.log"
+        );
+        if (file.equalsIgnoreCase("off")) {
+            return null;
+        }
+        try {
+            DailyDigest digest = DailyDigest.open(Path.of(file));
+            ratesCache.addListener(digest::publish);
+            return digest;
+        } catch (IOException e) {
+            System.err.println("Dayjest obunalarini ochib bo'lmadi (" + file + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ogohlantirishlar jurnalini ochadi va ularni har bir yangi snapshotda tekshiradi.
+     */
+    private static RateAlerts openAlerts(RatesCache ratesCache) {
+        String file = firstNonBlank(
+                System.getenv("BOT_ALERTS_FILE"),
+                System.getProperty("bot.alerts.file"),
+                "data/alerts.log"
+        );
+        if (file.equalsIgnoreCase("off")) {
+            return null;
+        }
+        try {
+            RateAlerts alerts = RateAlerts.open(Path.of(file));
+            ratesCache.addListener(alerts::evaluate);
+            return alerts;
+        } catch (IOException e) {
+            System.err.println("Ogohlantirishlar jurnalini ochib bo'lmadi (" + file + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static MetricsRegistry registerMetrics(List<CbuClient> mirrors, RatesCache ratesCache,
+                                                   UpdateDispatcher dispatcher, MyBot bot) {
+        MetricsRegistry registry = new MetricsRegistry();
+        for (CbuClient mirror : mirrors) {
+            registry.histogram("cbu_fetch_seconds", "CBU so'rovlari davomiyligi", mirror.fetchLatency(), "endpoint", mirror.endpoint())
+                    .histogram("cbu_payload_bytes", "CBU javob tanasi hajmi", mirror.payloadSize(), "endpoint", mirror.endpoint())
+                    .counter("cbu_fetch_errors_total", "Muvaffaqiyatsiz CBU so'rovlari", mirror::fetchErrorCount, "endpoint", mirror.endpoint());
+        }
+        registry.counter("rates_cache_requests_total", "Kesh so'rovlari", ratesCache::hitCount, "result", "hit")
+                .counter("rates_cache_requests_total", "Kesh so'rovlari", ratesCache::staleHitCount, "result", "stale")
+                .counter("rates_cache_requests_total", "Kesh so'rovlari", ratesCache::missCount, "result", "miss")
+                .counter("rates_cache_refresh_failures_total", "Muvaffaqiyatsiz yangilashlar", ratesCache::refreshFailureCount)
+                .gauge("rates_snapshot_age_seconds", "Snapshot oxirgi marta tasdiqlanganidan beri o'tgan vaqt", () -> {
+                    Instant updated = ratesCache.lastUpdated();
+                    return updated == null ? Double.NaN : (System.currentTimeMillis() - updated.toEpochMilli()) / 1000d;
+                });
+        for (String command : MyBot.COMMANDS) {
+            registry.histogram("bot_command_seconds", "Buyruqni qayta ishlash vaqti", bot.commandLatency(command), "command", command);
+        }
+        registry.counter("bot_inline_superseded_total", "Yangirog'i kelgani uchun javobsiz qolgan inline so'rovlar",
+                bot.inlineAnswers()::supersededCount);
+        OutboundSender outbound = bot.outbound();
+        registry.histogram("telegram_send_seconds", "Bot API ga yuborish davomiyligi", outbound.sendLatency())
+                .counter("telegram_messages_total", "Chiquvchi xabarlar", outbound::sentCount, "result", "sent")
+                .counter("telegram_messages_total", "Chiquvchi xabarlar", outbound::failedCount, "result", "failed")
+                .counter("telegram_messages_total", "Chiquvchi xabarlar", outbound::retriedCount, "result", "retried")
+                .counter("telegram_messages_total", "Chiquvchi xabarlar", outbound::coalescedCount, "result", "coalesced")
+                .counter("telegram_messages_total", "Chiquvchi xabarlar", outbound::droppedCount, "result", "dropped")
+                .counter("telegram_messages_total", "Chiquvchi xabarlar", outbound::directCount, "result", "direct")
+                .counter("telegram_messages_total", "Chiquvchi xabarlar", outbound::broadcastCount, "result", "broadcast")
+                .gauge("telegram_send_queue_depth", "Yuborilishini kutayotgan xabarlar", outbound::queueDepth)
+                .gauge("bot_dispatcher_queue_depth", "Qayta ishlanishini kutayotgan yangilanishlar", dispatcher::queueDepth)
+                .gauge("bot_dispatcher_active_chats", "Navbati bor chatlar", dispatcher::activeChats)
+                .counter("bot_dispatcher_dropped_total", "Navbat to'lgani uchun tashlangan yangilanishlar", dispatcher::droppedCount)
+                .counter("bot_flood_shed_total", "Chat limiti bo'yicha tashlangan xabarlar", bot.floodControl()::duplicateCount, "reason", "duplicate")
+                .counter("bot_flood_shed_total", "Chat limiti bo'yicha tashlangan xabarlar", bot.floodControl()::throttledCount, "reason", "throttled")
+                .counter("bot_flood_evictions_total", "Joy yetmagani uchun siqib chiqarilgan chat yozuvlari", bot.floodControl()::evictionCount)
+                .gauge("bot_flood_tracked_chats", "Cheklov holati saqlanayotgan chatlar", bot.floodControl()::trackedChats)
+                .counter("chart_renders_total", "Chizilgan /grafik rasmlari", bot.charts()::renderCount)
+                .counter("chart_cache_hits_total", "Keshdan berilgan grafiklar", bot.charts()::hitCount)
+                .counter("chart_cache_evictions_total", "Joy yetmagani uchun chiqarilgan grafiklar", bot.charts()::evictionCount)
+                .gauge("chart_cache_bytes", "Keshdagi grafiklar hajmi", bot.charts()::cachedBytes)
+                .gauge("chart_file_ids", "Saqlangan Telegram file_id lari", bot.charts()::fileIdCount)
+                .counter("telegram_photos_total", "Yuborilgan grafiklar", bot.charts()::uploadCount, "mode", "upload")
+                .counter("telegram_photos_total", "Yuborilgan grafiklar", bot.charts()::reuseCount, "mode", "file_id");
+        return registry;
+    }
+
+    /**
+     * JMX har doim yoqiladi; Prometheus endpointi esa faqat METRICS_PORT berilganda.
+     */
+    private static void startMetrics(MetricsRegistry registry) throws IOException {
+        try {
+            MetricsMBean.register(registry);
+        } catch (Exception e) {
+            System.err.println("Metrikalarni JMX ga ro'yxatdan o'tkazib bo'lmadi: " + e.getMessage());
+        }
+        int port = intOrDefault(0, firstNonBlank(
+                System.getenv("METRICS_PORT"),
+                System.getProperty("metrics.port")
+        ));
+        if (port <= 0) {
+            return;
+        }
+        String host = firstNonBlank(
+                System.getenv("METRICS_HOST"),
+                System.getProperty("metrics.host"),
+                "127.0.0.1"
+        );
+        new MetricsServer(registry, new InetSocketAddress(host, port)).start();
+    }
+
+    private static void startWebhook(MyBot bot, String token) throws IOException, InterruptedException {
+        int port = intOrDefault(WebhookServer.DEFAULT_PORT, firstNonBlank(
+                System.getenv("WEBHOOK_PORT"),
+                System.getProperty("webhook.port")
+        ));
+        String path = firstNonBlank(
+                System.getenv("WEBHOOK_PATH"),
+                System.getProperty("webhook.path"),
+                WebhookServer.DEFAULT_PATH
+        );
+        String secret = firstNonBlank(
+                System.getenv("WEBHOOK_SECRET"),
+                System.getProperty("webhook.secret")
+        );
+        String publicUrl = firstNonBlank(
+                System.getenv("WEBHOOK_URL"),
+                System.getProperty("webhook.url")
+        );
+        if (secret == null && publicUrl != null) {
+            // Ro'yxatdan o'tkazishni o'zimiz qilamiz, demak tasodifiy token ham o'zimiz beramiz
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            secret = HexFormat.of().formatHex(random);
+        }
+        // Sirsiz server istalgan yangilanishni qabul qiladi: uni faqat shu mashinadan ochiq qoldiramiz
+        InetSocketAddress address = secret != null
+                ? new InetSocketAddress(port)
+                : new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        WebhookServer server = new WebhookServer(bot, address, path, secret);
+        server.start();
+        if (publicUrl != null) {
+            WebhookServer.register(token, publicUrl, secret);
+        } else {
+            System.err.println("WEBHOOK_URL berilmadi: webhook Telegramda ro'yxatdan o'tkazilmadi (mahalliy rejim"
+                    + (secret == null ? ", faqat " + address.getHostString() + " da" : "") + ").");
         }
     }
 
@@ -41,4 +416,24 @@ public class Main {
         }
         return null;
     }
+
+    private static int intOrDefault(int fallback, String value) {
+        if (value == null) return fallback;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Noto'g'ri son qiymati '" + value + "', standart qiymat ishlatiladi: " + fallback);
+            return fallback;
+        }
+    }
+
+    private static Duration secondsOrDefault(Duration fallback, String value) {
+        if (value == null) return fallback;
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Noto'g'ri soniya qiymati '" + value + "', standart qiymat ishlatiladi: " + fallback.toSeconds());
+            return fallback;
+        }
+    }
 }
@@ -0,0 +1,23 @@
+package org.example;
+
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+/**
+ * Telegramga haqiqiy (sinxron) yuborish. Odatda {@code bot::execute}; testlar va benchmarklarda soxta.
+ */
+@FunctionalInterface
+public interface MessageSender {
+
+    void send(SendMessage message) throws TelegramApiException;
+
+    /**
+     * Rasm yuboradi. Qaytgan xabardagi {@code file_id} bilan shu rasmni keyin qayta yuklamasdan yuborish mumkin.
+     * Faqat matn yuboradigan soxta yuboruvchilar buni qo'llab-quvvatlamaydi.
+     */
+    default Message sendPhoto(SendPhoto photo) throws TelegramApiException {
+        throw new TelegramApiException("Rasm yuborish qo'llab-quvvatlanmaydi");
+    }
+}
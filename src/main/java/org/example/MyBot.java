@@ -1,33 +1,259 @@
 package org.example;
 
+import org.example.currency.AmountFormat;
+import org.example.currency.CurrencyNames;
+import org.example.currency.CurrencyRate;
 import org.example.currency.CurrencyService;
+import org.example.currency.FixedPoint;
+import org.example.currency.RatesSnapshot;
+import org.example.metrics.Histogram;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class MyBot extends TelegramLongPollingBot {
 
     private static final Logger LOGGER = Logger.getLogger(MyBot.class.getName());
-    private final CurrencyService currencyService = new CurrencyService();
+    /** Webhook orqali kelgan yangilanishni qayta ishlayotgan threadda — uning javobi. */
+    private static final ThreadLocal<WebhookReply> WEBHOOK_REPLY = new ThreadLocal<>();
+    /** {@link #commandLatency} yorliqlari: buyruqlar, erkin matn va inline so'rovlar. */
+    public static final List<String> COMMANDS = List.of("start", "kurs", "list", "namuna", "alert", "digest", "grafik", "text", "inline");
+    private final CurrencyService currencyService;
+    private final UpdateDispatcher dispatcher;
+    private final OutboundSender outbound;
+    private final InlineAnswers inlineAnswers;
+    private final RateCharts charts;
+    private final FloodControl floodControl = new FloodControl();
+    /** {@code null} bo'lsa, /alert o'chirilgan. */
+    private final RateAlerts alerts;
+    /** {@code null} bo'lsa, /digest o'chirilgan. */
+    private final DailyDigest digest;
+    private final Map<String, Histogram> commandLatency;
 
     private final String botUsername;
     private final String botToken;
 
     public MyBot(String botUsername, String botToken) {
+        this(botUsername, botToken, new CurrencyService(), new UpdateDispatcher(), null);
+    }
+
+    /**
+     * @param sender xabarlarni haqiqatda yuboruvchi; {@code null} bo'lsa, shu botning {@code execute} metodi
+     */
+    public MyBot(String botUsername, String botToken, CurrencyService currencyService, UpdateDispatcher dispatcher,
+                 MessageSender sender) {
+        this(botUsername, botToken, currencyService, dispatcher, sender, null);
+    }
+
+    /**
+     * @param alerts kurs ogohlantirishlari; bildirishnomalar shu botning chiquvchi navbati orqali yuboriladi
+     */
+    public MyBot(String botUsername, String botToken, CurrencyService currencyService, UpdateDispatcher dispatcher,
+                 MessageSender sender, RateAlerts alerts) {
+        this(botUsername, botToken, currencyService, dispatcher, sender, alerts, null);
+    }
+
+    /**
+     * @param digest kunlik dayjest; tarqatish shu botning limitlari ichida, bo'sh qolgan tokenlar bilan boradi
+     */
+    public MyBot(String botUsername, String botToken, CurrencyService currencyService, UpdateDispatcher dispatcher,
+                 MessageSender sender, RateAlerts alerts, DailyDigest digest) {
+        MessageSender effective = sender != null ? sender : new MessageSender() {
+            @Override
+            public void send(SendMessage message) throws TelegramApiException {
+                execute(message);
+            }
+
+            @Override
+            public Message sendPhoto(SendPhoto photo) throws TelegramApiException {
+                return execute(photo);
+            }
+        };
         this.botUsername = botUsername != null && !botUsername.isBlank() ? botUsername : "CurrencyUzb_bot";
         this.botToken = botToken;
+        this.currencyService = currencyService;
+        this.dispatcher = dispatcher;
+        this.outbound = new OutboundSender(effective);
+        this.inlineAnswers = new InlineAnswers(currencyService);
+        this.charts = new RateCharts(currencyService);
+        Map<String, Histogram> latency = new HashMap<>();
+        for (String command : COMMANDS) {
+            latency.put(command, Histogram.latency());
+        }
+        this.commandLatency = Map.copyOf(latency);
+        this.alerts = alerts;
+        if (alerts != null) {
+            alerts.start(outbound);
+        }
+        this.digest = digest;
+        if (digest != null) {
+            digest.start(outbound, effective, currencyService);
+        }
     }
 
+    /**
+     * Long-polling sessiyasi threadida chaqiriladi: yangilanish darhol dispatcherga beriladi,
+     * shunda sekin chat boshqalarni to'xtatib qo'ymaydi.
+     */
     @Override
     public void onUpdateReceived(Update update) {
+        dispatch(update, null);
+    }
+
+    /**
+     * Webhook orqali kelgan yangilanish: odatiy yo'l bilan qayta ishlanadi, lekin javobi (bitta xabar bo'lsa)
+     * qaytarilgan {@link WebhookReply} orqali HTTP javobiga beriladi.
+     */
+    public WebhookReply onWebhookUpdate(Update update) {
+        WebhookReply reply = new WebhookReply();
+        if (!dispatch(update, reply)) {
+            reply.finish();
+        }
+        return reply;
+    }
+
+    /**
+     * Xabarli yangilanishni shu threadda, dispatcher va chiquvchi navbatsiz qayta ishlaydi va yuborilishi
+     * kerak bo'lgan xabarlarni qaytaradi. Oraliq ("Hisoblayapman...") xabarlar kirmaydi. Benchmarklar va
+     * yuklama sinovlari uchun.
+     */
+    public List<SendMessage> process(Update update) {
         if (update == null || !update.hasMessage() || !update.getMessage().hasText()) {
+            return List.of();
+        }
+        WebhookReply reply = new WebhookReply();
+        WEBHOOK_REPLY.set(reply);
+        try {
+            long start = System.nanoTime();
+            commandLatency.get(handleUpdate(update)).recordSince(start);
+        } finally {
+            WEBHOOK_REPLY.remove();
+        }
+        return reply.messages();
+    }
+
+    /** @return {@code false} bo'lsa, yangilanish e'tiborsiz qoldirildi yoki navbatga sig'madi */
+    private boolean dispatch(Update update, WebhookReply reply) {
+        if (update == null) {
+            return false;
+        }
+        if (update.hasInlineQuery()) {
+            InlineQuery query = update.getInlineQuery();
+            inlineAnswers.accept(query);
+            // foydalanuvchi navbatida: eski so'rovlar yangisidan oldin bajariladi va o'tkazib yuboriladi
+            if (dispatcher.submit(query.getFrom().getId(), withReply(reply, () -> handleInlineQuery(query)))) {
+                return true;
+            }
+            inlineAnswers.done(query); // navbat to'la: yozuv hech qachon o'chirilmay qolmasin
+            return false;
+        }
+        if (!update.hasMessage() || !update.getMessage().hasText()) {
+            return false;
+        }
+        long chatId = update.getMessage().getChatId();
+        FloodControl.Verdict verdict = floodControl.check(chatId, update.getMessage().getText());
+        if (verdict != FloodControl.Verdict.ALLOW) {
+            if (verdict == FloodControl.Verdict.NOTIFY) {
+                outbound.send(chatId, htmlMessage(chatId, FLOOD_NOTICE));
+            }
+            return false; // takror so'rov yoki chat limitidan oshgan
+        }
+        return dispatcher.submit(chatId, withReply(reply, () -> {
+            try {
+                long start = System.nanoTime();
+                commandLatency.get(handleUpdate(update)).recordSince(start);
+            } finally {
+                flushWebhookReply(reply, chatId);
+            }
+        }));
+    }
+
+    private static final String FLOOD_NOTICE = "⏳ Juda ko'p so'rov yuborildi. Biroz kutib, keyin qayta yozing.";
+
+    private static Runnable withReply(WebhookReply reply, Runnable task) {
+        if (reply == null) {
+            return task;
+        }
+        return () -> {
+            WEBHOOK_REPLY.set(reply);
+            try {
+                task.run();
+            } finally {
+                WEBHOOK_REPLY.remove();
+                reply.finish();
+            }
+        };
+    }
+
+    /**
+     * Yig'ilgan xabarlar: bitta bo'lsa va chat limiti ruxsat bersa — HTTP javobida, aks holda navbat orqali.
+     */
+    private void flushWebhookReply(WebhookReply reply, long chatId) {
+        if (reply == null) {
             return;
         }
+        List<SendMessage> messages = reply.messages();
+        if (messages.size() == 1 && reply.isOpen() && outbound.tryReserveDirect(chatId)) {
+            if (reply.offer(messages.get(0))) {
+                return;
+            }
+            outbound.cancelDirect(chatId); // javob shu orada vaqt tugab yopildi: xabar navbatdan ketadi
+        }
+        reply.finish();
+        for (SendMessage m : messages) {
+            outbound.send(chatId, m);
+        }
+    }
+
+    private void handleInlineQuery(InlineQuery query) {
+        if (!inlineAnswers.isCurrent(query)) {
+            return; // foydalanuvchi yozishda davom etgan: bu so'rov eskirgan
+        }
+        long start = System.nanoTime();
+        try {
+            AnswerInlineQuery answer = inlineAnswers.answer(query);
+            if (inlineAnswers.isCurrent(query)) {
+                answerInline(answer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Inline so'rovga javob berib bo'lmadi (user=" + query.getFrom().getId() + ")", e);
+        } finally {
+            inlineAnswers.done(query);
+            commandLatency.get("inline").recordSince(start);
+        }
+    }
+
+    /**
+     * Inline javob chat xabari emas: chat limitlari unga taalluqli emas, shuning uchun navbatsiz yuboriladi.
+     */
+    protected void answerInline(AnswerInlineQuery answer) throws TelegramApiException {
+        WebhookReply reply = WEBHOOK_REPLY.get();
+        if (reply != null && reply.offer(answer)) {
+            return;
+        }
+        execute(answer);
+    }
+
+    /** @return {@link #COMMANDS} dagi yorliq */
+    private String handleUpdate(Update update) {
         String text = update.getMessage().getText().trim();
         Long chatId = update.getMessage().getChatId();
         String username = update.getMessage().getFrom() != null ? update.getMessage().getFrom().getUserName() : "unknown";
@@ -39,166 +265,339 @@ public class MyBot extends TelegramLongPollingBot {
                     "• <b>/kurs</b> — USD→UZS kursi\n" +
                     "• <b>/list</b> — mavjud valyutalar ro'yxati\n" +
                     "• <b>/namuna</b> — qanday ishlashini ko'rsatuvchi qisqa namunalar\n" +
+                    "• <b>/alert USD &gt; 12800</b> — kurs chegaradan o'tganda xabar beraman\n" +
+                    "• <b>/grafik USD 30</b> — oxirgi 30 kunlik kurs grafigi\n" +
+                    "• <b>/digest</b> — har kuni yangi kurslar e'lon qilinganda USD, EUR, RUB kursini yuboraman\n" +
                     "• Shuningdek, oddiy yozishingiz ham mumkin: masalan <code>120</code> (USD bo'yicha hisoblayman), <code>RUB</code> (RUB kursi), yoki <code>EUR 120</code> (120 EUR ni so'mda hisoblayman).");
-            return;
+            return "start";
         }
 
         if (text.startsWith("/kurs")) {
             handleKursCommand(chatId, text);
-            return;
+            return "kurs";
         }
 
         if (text.startsWith("/list")) {
             sendHtml(chatId, currencyService.listCurrenciesMessage());
-            return;
+            return "list";
+        }
+
+        if (text.startsWith("/alert")) {
+            handleAlertCommand(chatId, text);
+            return "alert";
+        }
+
+        if (text.startsWith("/digest")) {
+            handleDigestCommand(chatId, text);
+            return "digest";
+        }
+
+        if (text.startsWith("/grafik") || text.startsWith("/chart")) {
+            handleChartCommand(chatId, text);
+            return "grafik";
         }
 
         if (text.startsWith("/namuna") || text.startsWith("/samples")) {
             sendHtml(chatId, samplesMessage());
-            return;
+            return "namuna";
         }
 
         // Ozod matn sifatida: raqam yoki CCY yoki raqam + CCY
         handleFreeText(chatId, text);
+        return "text";
     }
 
     private void handleKursCommand(Long chatId, String text) {
         try {
-            // /kurs@BotName ... ni tozalaymiz
-            String cmd = text.split("\\s+")[0];
-            if (cmd.contains("@")) {
-                text = text.replaceFirst("/kurs@[^\\s]+", "/kurs");
-            }
-            String[] parts = text.split("\\s+");
-            String ccy = null;
-            Double amount = null;
-            boolean isUzsInput = false;
-
-            if (parts.length == 1) {
+            // "/kurs" yoki "/kurs@BotName" dan keyingi qismni tahlil qilamiz
+            int argsFrom = 0;
+            while (argsFrom < text.length() && !Character.isWhitespace(text.charAt(argsFrom))) argsFrom++;
+            InputParser.Query query = InputParser.parse(text, argsFrom, currencyNames());
+            if (query.isEmpty()) {
                 // faqat /kurs → USD kursi
                 sendHtml(chatId, currencyService.getUsdToUzsMessage());
                 return;
             }
+            answerQuery(chatId, query);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Kurs buyruqni qayta ishlashda xato", e);
+            sendHtml(chatId, "⚠️ Buyruqni tushunmadim. Namuna: <b>/kurs</b> yoki <code>120</code>, <code>USD 120</code> kabi yozing. /list bilan ro'yxatni ko'ring.");
+        }
+    }
 
-            // Qolgan tokenlarni tahlil qilamiz
-            for (int i = 1; i < parts.length; i++) {
-                String p = parts[i].trim();
-                if (p.isEmpty()) continue;
-                if (isUzsToken(p)) {
-                    isUzsInput = true;
-                } else if (isNumber(p)) {
-                    amount = parseNumber(p);
-                } else if (isCcyToken(p)) {
-                    String t = normalizeCcy(p);
-                    if ("UZS".equalsIgnoreCase(t)) {
-                        isUzsInput = true;
-                    } else {
-                        ccy = t;
-                    }
-                }
+    /**
+     * {@code /grafik} — USD ning oxirgi 30 kuni, {@code /grafik EUR 90} — boshqa valyuta va davr. Rasm navbat orqali
+     * ketadi (webhook javobida faqat matnli usullar bo'ladi); bir xil grafik qayta chizilmaydi va qayta yuklanmaydi.
+     */
+    private void handleChartCommand(Long chatId, String text) {
+        if (!currencyService.hasHistory()) {
+            sendHtml(chatId, "Kurslar tarixi hozircha o'chirilgan.");
+            return;
+        }
+        int argsFrom = 0;
+        while (argsFrom < text.length() && !Character.isWhitespace(text.charAt(argsFrom))) argsFrom++;
+        try {
+            InputParser.Query query = InputParser.parse(text, argsFrom, currencyNames());
+            String ccy = query.ccy() != null ? query.ccy() : "USD";
+            long days = query.days() > 0 ? query.days()
+                    : query.hasAmount() ? query.amount() / FixedPoint.AMOUNT_ONE
+                    : RateCharts.DEFAULT_DAYS;
+            if (days < RateCharts.MIN_DAYS || days > RateCharts.MAX_DAYS) {
+                sendHtml(chatId, CHART_USAGE);
+                return;
+            }
+            CurrencyRate r = currencyService.currentSnapshot().find(ccy);
+            if (r == null || r.getCcy() == null || r.getPerUnitScaled() == FixedPoint.NONE) {
+                sendHtml(chatId, "⚠️ '" + ccy + "' topilmadi. /list orqali mavjud kodlarni ko'ring.");
+                return;
+            }
+            RateCharts.Chart chart = charts.chart(r, (int) days);
+            if (chart == null) {
+                sendHtml(chatId, "Bu davr uchun tarix ma'lumotlari hali yo'q. Birozdan keyin qayta urinib ko'ring.");
+                return;
             }
+            String caption = "<b>" + r.getCcy().trim().toUpperCase(Locale.ROOT) + "</b>, oxirgi " + days + " kun";
+            outbound.sendPhoto(chatId, () -> chart.request(chatId, caption), chart::sent);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Grafik buyrug'ida xato", e);
+            sendHtml(chatId, "⚠️ Grafikni tayyorlab bo'lmadi, keyinroq urinib ko'ring.");
+        }
+    }
 
-            if (amount == null && ccy == null) {
-                sendHtml(chatId, currencyService.getUsdToUzsMessage());
-            } else if (amount == null) {
-                sendHtml(chatId, currencyService.getRateMessage(ccy));
-            } else { // amount bor
-                if (isUzsInput) {
-                    String target = (ccy != null ? ccy : "USD");
-                    String info = "Hisoblayapman: " + formatAmount(amount) + " so'mni " + target + "ga hisoblash...";
-                    sendHtml(chatId, info);
-                    sendHtml(chatId, currencyService.getReverseConversionMessage(ccy, amount));
-                } else {
-                    String info = "Hisoblayapman: " + formatAmount(amount) + " " + (ccy != null ? ccy : "USD") + " ni so'mga hisoblash...";
-                    sendHtml(chatId, info);
-                    sendHtml(chatId, currencyService.getConversionMessage(ccy, amount));
-                }
+    private static final String CHART_USAGE = "Namuna: <code>/grafik USD 30</code> — " + RateCharts.MIN_DAYS + " dan "
+            + RateCharts.MAX_DAYS + " kungacha.";
+
+    /**
+     * {@code /alert} — ro'yxat, {@code /alert USD > 12800} — yangi, {@code /alert del 3} — o'chirish.
+     * Amal belgisi yozilmasa ({@code /alert USD 12800}), yo'nalish joriy kursdan aniqlanadi.
+     */
+    private void handleAlertCommand(Long chatId, String text) {
+        if (alerts == null) {
+            sendHtml(chatId, "Ogohlantirishlar hozircha o'chirilgan.");
+            return;
+        }
+        int argsFrom = 0;
+        while (argsFrom < text.length() && !Character.isWhitespace(text.charAt(argsFrom))) argsFrom++;
+        String args = text.substring(argsFrom).trim();
+        try {
+            if (args.isEmpty()) {
+                sendHtml(chatId, alertListMessage(chatId));
+                return;
+            }
+            int wordEnd = 0;
+            while (wordEnd < args.length() && !Character.isWhitespace(args.charAt(wordEnd))) wordEnd++;
+            String word = args.substring(0, wordEnd).toLowerCase(Locale.ROOT);
+            if (word.equals("del") || word.equals("delete") || word.equals("off")) {
+                String id = args.substring(wordEnd).trim().replace("#", "");
+                boolean removed = !id.isEmpty() && id.chars().allMatch(Character::isDigit)
+                        && alerts.remove(chatId, Long.parseLong(id));
+                sendHtml(chatId, removed ? "🗑 Ogohlantirish #" + id + " o'chirildi." : "Bunday ogohlantirish topilmadi. Ro'yxat: /alert");
+                return;
+            }
+            int op = indexOfAny(args, '>', '<');
+            String ccyPart = op >= 0 ? args.substring(0, op).trim() : args.substring(0, wordEnd);
+            CurrencyRate r = currencyService.currentSnapshot().find(ccyPart);
+            // "12 800,50" konvertatsiyadagi kabi o'qiladi
+            long threshold = InputParser.parseNumber(args, op >= 0 ? op + 1 : wordEnd, args.length(), FixedPoint.RATE_SCALE);
+            if (r == null || r.getPerUnitScaled() == FixedPoint.NONE || threshold == FixedPoint.NONE || threshold <= 0) {
+                sendHtml(chatId, ALERT_USAGE);
+                return;
+            }
+            long rate = r.getPerUnitScaled();
+            RateAlerts.Direction direction = op >= 0
+                    ? (args.charAt(op) == '>' ? RateAlerts.Direction.ABOVE : RateAlerts.Direction.BELOW)
+                    : (threshold > rate ? RateAlerts.Direction.ABOVE : RateAlerts.Direction.BELOW);
+            String ccy = r.getCcy().trim();
+            String current = "1 " + ccy + " = " + AmountFormat.rate(rate) + " so'm";
+            if (RateAlerts.holds(direction, threshold, rate)) {
+                sendHtml(chatId, "Shart allaqachon bajarilgan: " + current + ". Boshqa chegara tanlang.");
+                return;
             }
+            RateAlerts.Alert alert = alerts.add(chatId, ccy, direction, threshold);
+            if (alert == null) {
+                sendHtml(chatId, "Bitta chatda " + RateAlerts.MAX_PER_CHAT + " tadan ortiq ogohlantirish bo'lmaydi. "
+                        + "Keraksizini o'chiring: <code>/alert del N</code>");
+                return;
+            }
+            sendHtml(chatId, "✅ Ogohlantirish #" + alert.id() + ": " + alertLine(alert) + "\nHozir: " + current);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Kurs buyruqni qayta ishlashda xato", e);
-            sendHtml(chatId, "⚠️ Buyruqni tushunmadim. Namuna: <b>/kurs</b> yoki <code>120</code>, <code>USD 120</code> kabi yozing. /list bilan ro'yxatni ko'ring.");
+            LOGGER.log(Level.WARNING, "Ogohlantirish buyrug'ida xato", e);
+            sendHtml(chatId, "⚠️ Ogohlantirishni saqlab bo'lmadi, keyinroq urinib ko'ring.");
         }
     }
 
-    private void handleFreeText(Long chatId, String text) {
+    /**
+     * {@code /digest} — obuna (yoki holat), {@code /digest USD CNY} — valyutalarni tanlash, {@code /digest off} — bekor qilish.
+     */
+    private void handleDigestCommand(Long chatId, String text) {
+        if (digest == null) {
+            sendHtml(chatId, "Kunlik dayjest hozircha o'chirilgan.");
+            return;
+        }
+        int argsFrom = 0;
+        while (argsFrom < text.length() && !Character.isWhitespace(text.charAt(argsFrom))) argsFrom++;
+        String args = text.substring(argsFrom).trim();
         try {
-            String[] parts = text.split("\\s+");
-            String ccy = null;
-            Double amount = null;
-            boolean isUzsInput = false;
-
-            for (String p : parts) {
-                if (p.isBlank()) continue;
-                if (isUzsToken(p)) {
-                    isUzsInput = true;
-                } else if (isNumber(p)) {
-                    amount = parseNumber(p);
-                } else if (isCcyToken(p)) {
-                    String t = normalizeCcy(p);
-                    if ("UZS".equalsIgnoreCase(t)) {
-                        isUzsInput = true;
-                    } else {
-                        ccy = t;
+            List<String> current = digest.subscription(chatId);
+            if (args.isEmpty() && current != null) {
+                sendHtml(chatId, "Siz kunlik dayjestga obunasiz: " + String.join(", ", current) + ".\n" + DIGEST_USAGE);
+                return;
+            }
+            String lower = args.toLowerCase(Locale.ROOT);
+            if (lower.equals("off") || lower.equals("stop")) {
+                sendHtml(chatId, digest.unsubscribe(chatId) ? "🗑 Kunlik dayjest obunasi bekor qilindi." : "Siz dayjestga obuna emassiz.");
+                return;
+            }
+            List<String> ccys = DailyDigest.DEFAULT_CCYS;
+            List<String> tokens = digestTokens(args);
+            if (!tokens.isEmpty()) {
+                RatesSnapshot snapshot = currencyService.currentSnapshot();
+                Set<String> chosen = new LinkedHashSet<>();
+                for (String token : tokens) {
+                    CurrencyRate r = snapshot.find(token);
+                    if (r == null || r.getCcy() == null) {
+                        sendHtml(chatId, "⚠️ '" + escapeHtml(token) + "' topilmadi. /list orqali mavjud kodlarni ko'ring.");
+                        return;
                     }
+                    chosen.add(r.getCcy().trim().toUpperCase(Locale.ROOT));
                 }
-            }
-
-            if (amount != null) {
-                if (isUzsInput) {
-                    String target = (ccy != null ? ccy : "USD");
-                    String info = "Hisoblayapman: " + formatAmount(amount) + " so'mni " + target + "ga hisoblash...";
-                    sendHtml(chatId, info);
-                    sendHtml(chatId, currencyService.getReverseConversionMessage(ccy, amount));
-                } else {
-                    // Agar faqat son bo'lsa → USD bo'yicha hisob
-                    String info = "Hisoblayapman: " + formatAmount(amount) + " " + (ccy != null ? ccy : "USD") + " ni so'mga hisoblash...";
-                    sendHtml(chatId, info);
-                    sendHtml(chatId, currencyService.getConversionMessage(ccy, amount));
+                if (chosen.size() > DailyDigest.MAX_CCYS) {
+                    sendHtml(chatId, "Dayjestda " + DailyDigest.MAX_CCYS + " tagacha valyuta bo'lishi mumkin.");
+                    return;
                 }
-            } else if (ccy != null) {
-                sendHtml(chatId, currencyService.getRateMessage(ccy));
-            } else {
-                // Qisqa yordam
-                sendHtml(chatId, "Tushunmadim. Masalan, <code>/kurs</code>, <code>/list</code>, <code>120</code>, <code>USD</code> yoki <code>120 so'm</code> deb yozing.");
+                ccys = List.copyOf(chosen);
             }
+            digest.subscribe(chatId, ccys);
+            sendHtml(chatId, "✅ Kunlik dayjest: " + String.join(", ", ccys)
+                    + ". CBU yangi kurslarni e'lon qilganda yuboraman.\n" + DIGEST_USAGE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Matnni tahlil qilishda xato", e);
-            sendHtml(chatId, "⚠️ So'rovni qayta ishlashda xatolik yuz berdi.");
+            LOGGER.log(Level.WARNING, "Dayjest buyrug'ida xato", e);
+            sendHtml(chatId, "⚠️ Obunani saqlab bo'lmadi, keyinroq urinib ko'ring.");
         }
     }
 
-    private boolean isNumber(String s) {
-        return s.matches("^-?\\d+(?:[.,]\\d+)?$");
+    /** {@code /digest} argumentlari: bo'shliq yoki vergul bilan ajratilgan kodlar, bo'sh bo'laklar tashlanadi. */
+    private static List<String> digestTokens(String args) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= args.length(); i++) {
+            boolean separator = i == args.length() || args.charAt(i) == ',' || Character.isWhitespace(args.charAt(i));
+            if (!separator) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                tokens.add(args.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
     }
 
-    private double parseNumber(String s) {
-        try {
-            return Double.parseDouble(s.replace(',', '.'));
-        } catch (Exception e) {
-            return Double.NaN;
+    /** Foydalanuvchi yozgan matnni HTML rejimidagi xabarga qo'yish uchun. */
+    private static String escapeHtml(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static final String DIGEST_USAGE = "Valyutalarni tanlash: <code>/digest USD CNY KZT</code>, bekor qilish: /digest off";
+
+    private static final String ALERT_USAGE = "Namuna: <code>/alert USD &gt; 12800</code> (oshsa) yoki "
+            + "<code>/alert EUR &lt; 13500</code> (tushsa). Ro'yxat: /alert, o'chirish: <code>/alert del N</code>";
+
+    private String alertListMessage(long chatId) {
+        List<RateAlerts.Alert> mine = alerts.list(chatId);
+        if (mine.isEmpty()) {
+            return "Faol ogohlantirishlar yo'q.\n" + ALERT_USAGE;
         }
+        StringBuilder sb = new StringBuilder("<b>Ogohlantirishlar:</b>\n");
+        for (RateAlerts.Alert a : mine) {
+            sb.append('#').append(a.id()).append(' ').append(alertLine(a)).append('\n');
+        }
+        sb.append("O'chirish: <code>/alert del N</code>");
+        return sb.toString();
     }
 
-    private boolean isCcyToken(String s) {
-        String t = s.trim();
-        return t.matches("^[A-Za-z]{3}$") || t.matches("^\\d{3}$");
+    private static String alertLine(RateAlerts.Alert a) {
+        return a.ccy() + (a.direction() == RateAlerts.Direction.ABOVE ? " &gt; " : " &lt; ") + AmountFormat.rate(a.threshold()) + " so'm";
     }
 
-    private String normalizeCcy(String s) {
-        String t = s.trim();
-        if (t.matches("^[A-Za-z]{3}$")) return t.toUpperCase(Locale.ROOT);
-        return t; // numeric code
+    private static int indexOfAny(String s, char a, char b) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == a || c == b) return i;
+        }
+        return -1;
     }
 
-    private boolean isUzsToken(String s) {
-        String t = s.trim();
-        return t.matches("(?i)^(UZS|so['’`]?m|som|sum)$");
+    private void handleFreeText(Long chatId, String text) {
+        try {
+            InputParser.Query query = InputParser.parse(text, 0, currencyNames());
+            if (query.isEmpty()) {
+                // Qisqa yordam
+                sendHtml(chatId, "Tushunmadim. Masalan, <code>/kurs</code>, <code>/list</code>, <code>120</code>, <code>USD</code> yoki <code>120 so'm</code> deb yozing.");
+                return;
+            }
+            answerQuery(chatId, query);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Matnni tahlil qilishda xato", e);
+            sendHtml(chatId, "⚠️ So'rovni qayta ishlashda xatolik yuz berdi.");
+        }
+    }
+
+    /** Joriy snapshot nomlari indeksi; kurslar hali yo'q bo'lsa, {@code null} (faqat kodlar taniladi). */
+    private CurrencyNames currencyNames() {
+        try {
+            return currencyService.currentSnapshot().names();
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Sana yoki davr bo'lsa tarix; miqdor bo'lsa hisob-kitob (faqat son bo'lsa → USD bo'yicha),
+     * aks holda valyuta kursi.
+     */
+    private void answerQuery(Long chatId, InputParser.Query query) {
+        String ccy = query.ccy();
+        if (query.date() != null) {
+            sendHtml(chatId, currencyService.getHistoryMessage(ccy, query.date(), query.amount(), query.fromUzs()));
+            return;
+        }
+        if (query.days() > 0) {
+            sendHtml(chatId, currencyService.getHistoryRangeMessage(ccy, query.days()));
+            return;
+        }
+        if (ccy != null && query.toCcy() != null) {
+            if (query.hasAmount()) {
+                sendInterimHtml(chatId, "Hisoblayapman: " + formatAmount(query.amount()) + " " + ccy + " ni "
+                        + query.toCcy() + "ga hisoblash...");
+            }
+            sendHtml(chatId, currencyService.getCrossConversionMessage(ccy, query.toCcy(), query.amount()));
+            return;
+        }
+        if (!query.hasAmount()) {
+            sendHtml(chatId, currencyService.getRateMessage(ccy));
+            return;
+        }
+        String target = ccy != null ? ccy : "USD";
+        if (query.fromUzs()) {
+            sendInterimHtml(chatId, "Hisoblayapman: " + formatAmount(query.amount()) + " so'mni " + target + "ga hisoblash...");
+            sendHtml(chatId, currencyService.getReverseConversionMessageScaled(ccy, query.amount()));
+        } else {
+            sendInterimHtml(chatId, "Hisoblayapman: " + formatAmount(query.amount()) + " " + target + " ni so'mga hisoblash...");
+            sendHtml(chatId, currencyService.getConversionMessageScaled(ccy, query.amount()));
+        }
     }
 
-    private String formatAmount(double amount) {
-        java.text.DecimalFormat df = (java.text.DecimalFormat) java.text.DecimalFormat.getInstance(new java.util.Locale("uz", "UZ"));
-        df.applyPattern("#,##0.00");
-        return df.format(amount);
+    private String formatAmount(long amount) {
+        return AmountFormat.amount(amount);
     }
 
     // Qisqa namunalar xabari
@@ -207,23 +606,68 @@ public class MyBot extends TelegramLongPollingBot {
         sb.append("<b>Qisqa namunalar:</b>\n");
         sb.append("1) <code>USD 120</code> — 120 USD ni so'mga hisoblayman.\n");
         sb.append("2) <code>UZS 333000</code> — 300 000 so'mni USDga hisoblayman.\n");
-        sb.append("3) <code>UZS 120000 RUB</code> — 120 000 so'mni RUBga hisoblayman.\n\n");
+        sb.append("3) <code>UZS 120000 RUB</code> — 120 000 so'mni RUBga hisoblayman.\n");
+        sb.append("4) <code>100 EUR RUB</code> — 100 EUR ni RUBga hisoblayman.\n\n");
         sb.append("Shuningdek: <code>120</code> (default USD), <code>EUR</code> (EUR kursi), <code>50 EUR</code> yoki <code>EUR 50</code>.\n");
+        sb.append("Valyuta nomi bilan ham bo'ladi: <code>dollar</code>, <code>100 yevro</code>, <code>rubl</code>, <code>kanada dollari</code>.\n");
+        sb.append("Tarix: <code>USD 2024-03-01</code> (o'sha kungi kurs) yoki <code>EUR 30 kun</code> (oxirgi 30 kun).\n");
+        sb.append("Grafik: <code>/grafik EUR 90</code> (oxirgi 90 kunlik kurs rasmi).\n");
         sb.append("Ko'proq valyutalar uchun <b>/list</b> ni ko'ring.");
         return sb.toString();
     }
 
     private void sendHtml(Long chatId, String html) {
+        WebhookReply reply = WEBHOOK_REPLY.get();
+        if (reply != null) {
+            reply.add(htmlMessage(chatId, html)); // ishlov tugagach flushWebhookReply yuboradi
+            return;
+        }
+        outbound.send(chatId, htmlMessage(chatId, html));
+    }
+
+    /**
+     * "Hisoblayapman..." kabi xabar: natija tez tayyor bo'lsa, umuman yuborilmaydi. Webhookda natija
+     * baribir ishlov oxirida birga ketadi, shuning uchun oraliq xabar yuborilmaydi.
+     */
+    private void sendInterimHtml(Long chatId, String html) {
+        if (WEBHOOK_REPLY.get() != null) {
+            return;
+        }
+        outbound.sendInterim(chatId, htmlMessage(chatId, html));
+    }
+
+    private static SendMessage htmlMessage(Long chatId, String html) {
         SendMessage sm = new SendMessage();
         sm.setChatId(chatId.toString());
         sm.setText(html);
         sm.setParseMode("HTML");
         sm.disableWebPagePreview();
-        try {
-            execute(sm);
-        } catch (TelegramApiException e) {
-            LOGGER.log(Level.SEVERE, "Xabar yuborilmadi", e);
-        }
+        return sm;
+    }
+
+    /** Inline javoblar (monitoring uchun). */
+    public InlineAnswers inlineAnswers() {
+        return inlineAnswers;
+    }
+
+    /** Buyruqni qayta ishlash vaqti (navbatda kutish va yuborishsiz); {@code command} — {@link #COMMANDS} dan. */
+    public Histogram commandLatency(String command) {
+        return commandLatency.get(command);
+    }
+
+    /** /grafik keshi (monitoring uchun). */
+    public RateCharts charts() {
+        return charts;
+    }
+
+    /** Chatlar bo'yicha oqim cheklovi (monitoring uchun). */
+    public FloodControl floodControl() {
+        return floodControl;
+    }
+
+    /** Chiquvchi xabarlar navbati (monitoring va boshqa komponentlar uchun). */
+    public OutboundSender outbound() {
+        return outbound;
     }
 
     @Override
@@ -0,0 +1,423 @@
+package org.example;
+
+import org.example.metrics.Histogram;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Telegramga chiquvchi xabarlar navbati.
+ * <p>
+ * Xabarlar asinxron yuboriladi, lekin bitta chat ichida tartib saqlanadi. Telegram cheklovlari
+ * ikki token bucket bilan ta'minlanadi: umumiy (sekundiga 30 ta) va har bir chat uchun (sekundiga 1 ta,
+ * qisqa portlash bilan). "Hisoblayapman..." kabi oraliq xabarlar {@code coalesceWindow} davomida ushlab
+ * turiladi; shu vaqt ichida natija kelsa, oraliq xabar umuman yuborilmaydi. 429 javobida xabar
+ * {@code retry_after} dan keyin qayta yuboriladi.
+ */
+public class OutboundSender implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(OutboundSender.class.getName());
+
+    public static final double GLOBAL_PER_SECOND = 30;
+    public static final double CHAT_PER_SECOND = 1;
+    public static final double CHAT_BURST = 3;
+    public static final Duration DEFAULT_COALESCE_WINDOW = Duration.ofMillis(300);
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_QUEUED = 100_000;
+    private static final long IDLE_CHAT_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final MessageSender sender;
+    private final TokenBucket global = new TokenBucket(GLOBAL_PER_SECOND, GLOBAL_PER_SECOND);
+    private final long coalesceNanos;
+    private final ConcurrentHashMap<Long, Chat> chats = new ConcurrentHashMap<>();
+    private final DelayQueue<Ready> ready = new DelayQueue<>();
+    private final ExecutorService sendExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("telegram-send-", 0).factory());
+    private final Thread worker;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder direct = new LongAdder();
+    private final LongAdder broadcast = new LongAdder();
+    private final Histogram sendLatency = Histogram.latency();
+
+    private volatile boolean closed;
+
+    private static final class Outgoing {
+        final SendMessage message;
+        final boolean interim;
+        /** Rasm bo'lsa, {@code message} o'rniga: har bir urinishda yangi so'rov (yuklanadigan oqim bir martalik). */
+        final Supplier<SendPhoto> photo;
+        final Consumer<Message> onSent;
+        int attempts;
+        /** Chat bucketidan token olinganmi. */
+        boolean reserved;
+
+        Outgoing(SendMessage message, boolean interim) {
+            this.message = message;
+            this.interim = interim;
+            this.photo = null;
+            this.onSent = null;
+        }
+
+        Outgoing(Supplier<SendPhoto> photo, Consumer<Message> onSent) {
+            this.message = null;
+            this.interim = false;
+            this.photo = photo;
+            this.onSent = onSent;
+        }
+    }
+
+    /** Bitta chat holati; barcha maydonlar {@code synchronized (chat)} ostida o'zgaradi. */
+    private static final class Chat {
+        final long id;
+        final TokenBucket bucket = new TokenBucket(CHAT_PER_SECOND, CHAT_BURST);
+        final ArrayDeque<Outgoing> pending = new ArrayDeque<>();
+        /** Rejalashtirilgan yoki yuborilayotgan xabar. */
+        Outgoing head;
+        boolean inFlight;
+        long lastUsedNanos = System.nanoTime();
+
+        Chat(long id) {
+            this.id = id;
+        }
+
+        boolean isIdle(long now) {
+            return head == null && pending.isEmpty() && now - lastUsedNanos > IDLE_CHAT_NANOS && bucket.isFull();
+        }
+    }
+
+    private record Ready(Chat chat, Outgoing outgoing, long atNanos) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(atNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(atNanos, ((Ready) other).atNanos);
+        }
+    }
+
+    public OutboundSender(MessageSender sender) {
+        this(sender, DEFAULT_COALESCE_WINDOW);
+    }
+
+    public OutboundSender(MessageSender sender, Duration coalesceWindow) {
+        this.sender = sender;
+        this.coalesceNanos = coalesceWindow.toNanos();
+        this.worker = Thread.ofPlatform().name("telegram-sender").daemon().start(this::runWorker);
+    }
+
+    /** Oddiy xabar. */
+    public void send(long chatId, SendMessage message) {
+        enqueue(chatId, new Outgoing(message, false));
+    }
+
+    /**
+     * Oraliq xabar: natija {@code coalesceWindow} ichida tayyor bo'lsa, yuborilmaydi.
+     */
+    public void sendInterim(long chatId, SendMessage message) {
+        enqueue(chatId, new Outgoing(message, true));
+    }
+
+    /**
+     * Rasm: oddiy xabar kabi navbat va limitlar orqali. {@code photo} har bir urinishda chaqiriladi; Telegram
+     * qaytargan xabar {@code onSent} ga beriladi (undagi {@code file_id} ni saqlab qo'yish uchun).
+     */
+    public void sendPhoto(long chatId, Supplier<SendPhoto> photo, Consumer<Message> onSent) {
+        enqueue(chatId, new Outgoing(photo, onSent));
+    }
+
+    /**
+     * Xabarni navbatsiz, boshqa yo'l bilan (masalan, webhook javobida) yuborish uchun ruxsat: chatda kutayotgan
+     * xabar bo'lmasa (oraliq xabarlar bekor qilinadi) va ikkala limit ham token bersa, tokenlar band qilinadi.
+     *
+     * @return {@code false} bo'lsa, xabarni {@link #send} orqali yuborish kerak (tartib va limitlar uchun)
+     */
+    public boolean tryReserveDirect(long chatId) {
+        if (tryReserve(chatId)) {
+            direct.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@link #tryReserveDirect} band qilgan tokenlar ishlatilmadi (masalan, webhook javobi shu orada yopildi):
+     * ular qaytariladi, shunda xabar {@link #send} orqali ketganda limitlar ikki marta olinmaydi.
+     */
+    public void cancelDirect(long chatId) {
+        global.refund();
+        Chat chat = chats.get(chatId);
+        if (chat != null) {
+            chat.bucket.refund();
+        }
+        direct.decrement();
+    }
+
+    /**
+     * Ommaviy tarqatish (masalan, kunlik dayjest) uchun xabar yuborishga ruxsat, {@link #tryReserveDirect} kabi.
+     * Navbatdagi xabarlar ustun: ular global tokenni oldindan band qilgan bo'lsa, tarqatish kutadi, shuning
+     * uchun tarqatish bo'sh qolgan limitni to'ldiradi, lekin umumiy limitdan oshmaydi.
+     */
+    public boolean tryReserveBroadcast(long chatId) {
+        if (tryReserve(chatId)) {
+            broadcast.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Telegram 429 qaytardi: {@code nanos} davomida umumiy limit ham, shu chatniki ham token bermaydi, shunda
+     * boshqa chatlarga yuborilayotgan xabarlar ham to'xtaydi va yana 429 olmaydi.
+     */
+    public void penalize(long chatId, long nanos) {
+        global.penalize(nanos);
+        Chat chat = chats.get(chatId);
+        if (chat != null) {
+            chat.bucket.penalize(nanos);
+        }
+    }
+
+    private boolean tryReserve(long chatId) {
+        if (closed) {
+            return false;
+        }
+        boolean[] reserved = new boolean[1];
+        chats.compute(chatId, (id, chat) -> {
+            if (chat == null) {
+                chat = new Chat(id);
+            }
+            synchronized (chat) {
+                dropPendingInterims(chat);
+                if (chat.head == null && chat.pending.isEmpty() && chat.bucket.tryAcquire()) {
+                    reserved[0] = global.tryAcquire();
+                    if (!reserved[0]) {
+                        chat.bucket.refund();
+                    }
+                    chat.lastUsedNanos = System.nanoTime();
+                }
+            }
+            return chat;
+        });
+        return reserved[0];
+    }
+
+    /** Hali yuborilmagan xabarlar soni. */
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    public long sentCount() {
+        return sent.sum();
+    }
+
+    public long failedCount() {
+        return failed.sum();
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public long retriedCount() {
+        return retried.sum();
+    }
+
+    /** {@link #tryReserveDirect} orqali navbatsiz yuborilgan xabarlar soni. */
+    public long directCount() {
+        return direct.sum();
+    }
+
+    /** {@link #tryReserveBroadcast} orqali yuborilgan xabarlar soni. */
+    public long broadcastCount() {
+        return broadcast.sum();
+    }
+
+    /** Bot API ga har bir yuborish urinishining davomiyligi, xatolilari ham. */
+    public Histogram sendLatency() {
+        return sendLatency;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+        sendExecutor.close();
+    }
+
+    private void enqueue(long chatId, Outgoing outgoing) {
+        if (closed || queued.get() >= MAX_QUEUED) {
+            dropped.increment();
+            LOGGER.warning(() -> "Chiquvchi navbat to'la, xabar tashlab yuborildi (chat=" + chatId + ")");
+            return;
+        }
+        chats.compute(chatId, (id, chat) -> {
+            if (chat == null) {
+                chat = new Chat(id);
+            }
+            synchronized (chat) {
+                if (!outgoing.interim) {
+                    dropPendingInterims(chat);
+                }
+                chat.pending.add(outgoing);
+                queued.incrementAndGet();
+                if (chat.head == null) {
+                    scheduleNext(chat);
+                }
+            }
+            return chat;
+        });
+    }
+
+    /** Natija tayyor: hali yuborilmagan oraliq xabarlar endi keraksiz. */
+    private void dropPendingInterims(Chat chat) {
+        if (chat.head != null && chat.head.interim && !chat.inFlight) {
+            chat.head = null;
+            queued.decrementAndGet();
+            coalesced.increment();
+        }
+        for (Iterator<Outgoing> it = chat.pending.iterator(); it.hasNext(); ) {
+            if (it.next().interim) {
+                it.remove();
+                queued.decrementAndGet();
+                coalesced.increment();
+            }
+        }
+    }
+
+    private void scheduleNext(Chat chat) {
+        Outgoing next = chat.pending.poll();
+        chat.head = next;
+        if (next != null) {
+            long delay = next.interim ? coalesceNanos : 0;
+            ready.add(new Ready(chat, next, System.nanoTime() + delay));
+        }
+    }
+
+    private void runWorker() {
+        long nextSweep = System.nanoTime() + IDLE_CHAT_NANOS;
+        try {
+            while (!closed) {
+                Ready r = ready.poll(1, TimeUnit.SECONDS);
+                long now = System.nanoTime();
+                if (now - nextSweep >= 0) {
+                    sweepIdleChats(now);
+                    nextSweep = now + IDLE_CHAT_NANOS;
+                }
+                if (r == null) {
+                    continue;
+                }
+                Chat chat = r.chat();
+                Outgoing o = r.outgoing();
+                synchronized (chat) {
+                    if (chat.head != o || chat.inFlight) {
+                        continue; // eskirgan: oraliq xabar natija bilan almashtirilgan
+                    }
+                    if (!o.reserved) {
+                        o.reserved = true;
+                        long wait = chat.bucket.reserve();
+                        if (wait > 0) {
+                            ready.add(new Ready(chat, o, now + wait));
+                            continue;
+                        }
+                    }
+                    chat.inFlight = true;
+                }
+                long wait = global.reserve();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                sendExecutor.execute(() -> deliver(chat, o));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver(Chat chat, Outgoing o) {
+        long start = System.nanoTime();
+        try {
+            Message sentPhoto = null;
+            if (o.photo != null) {
+                sentPhoto = sender.sendPhoto(o.photo.get());
+            } else {
+                sender.send(o.message);
+            }
+            sendLatency.recordSince(start);
+            sent.increment();
+            if (o.onSent != null) {
+                o.onSent.accept(sentPhoto);
+            }
+        } catch (TelegramApiRequestException e) {
+            Integer code = e.getErrorCode();
+            ResponseParameters params = e.getParameters();
+            sendLatency.recordSince(start);
+            if (code != null && code == 429 && ++o.attempts < MAX_ATTEMPTS) {
+                int retryAfter = params != null && params.getRetryAfter() != null ? params.getRetryAfter() : 1;
+                long pause = TimeUnit.SECONDS.toNanos(Math.max(1, retryAfter));
+                retried.increment();
+                LOGGER.warning(() -> "Telegram 429: chat=" + chat.id + ", " + retryAfter + " s dan keyin qayta yuboriladi");
+                global.penalize(pause);
+                synchronized (chat) {
+                    chat.bucket.penalize(pause); // qayta urinish tokeni shu jarimaga kiradi
+                    chat.inFlight = false;
+                    o.reserved = true;
+                }
+                ready.add(new Ready(chat, o, System.nanoTime() + pause));
+                return;
+            }
+            failed.increment();
+            LOGGER.log(Level.SEVERE, "Xabar yuborilmadi (chat=" + chat.id + ")", e);
+        } catch (TelegramApiException | RuntimeException e) {
+            sendLatency.recordSince(start);
+            failed.increment();
+            LOGGER.log(Level.SEVERE, "Xabar yuborilmadi (chat=" + chat.id + ")", e);
+        }
+        synchronized (chat) {
+            chat.inFlight = false;
+            chat.lastUsedNanos = System.nanoTime();
+            queued.decrementAndGet();
+            scheduleNext(chat);
+        }
+    }
+
+    private void sweepIdleChats(long now) {
+        for (Long id : chats.keySet()) {
+            chats.computeIfPresent(id, (k, chat) -> {
+                synchronized (chat) {
+                    return chat.isIdle(now) ? null : chat;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.example;
+
+import org.example.currency.AmountFormat;
+import org.example.currency.CurrencyRate;
+import org.example.currency.FixedPoint;
+import org.example.currency.RatesSnapshot;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Kurs bo'yicha ogohlantirishlar: {@code /alert USD > 12800}.
+ * <p>
+ * Har bir valyuta uchun ikkita tartiblangan kitob bor: "oshsa" va "tushsa" chegaralari
+ * ({@link ConcurrentSkipListMap}, kalit — chegara va id). Ogohlantirish bir martalik va shart allaqachon
+ * bajarilgan bo'lsa, qo'shilmaydi, shuning uchun yangi snapshotda faqat kitob boshidan (yoki oxiridan)
+ * shart bajarilgan yozuvlar olinadi: baholash vaqti obunalar soniga emas, ishlaganlar soniga bog'liq.
+ * <p>
+ * Obunalar qo'shimcha jurnal faylida saqlanadi ({@code A ...} — qo'shildi, {@code D id} — o'chirildi) va
+ * ochishda qayta o'qilib, ixchamlanadi. Ishlagan ogohlantirish xabari chiquvchi navbatga berilgandan keyingina
+ * jurnaldan o'chiriladi: jarayon o'rtada to'xtasa, u keyingi snapshotda qayta ishlaydi.
+ */
+public class RateAlerts implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RateAlerts.class.getName());
+
+    public static final int MAX_PER_CHAT = 20;
+    /** Chiquvchi navbatda shundan ko'p xabar bo'lsa, bildirishnomalar kutib turadi. */
+    static final int OUTBOUND_HIGH_WATER = 1_000;
+
+    public enum Direction {
+        ABOVE('>'), BELOW('<');
+
+        final char symbol;
+
+        Direction(char symbol) {
+            this.symbol = symbol;
+        }
+
+        static Direction of(char symbol) {
+            return symbol == '>' ? ABOVE : symbol == '<' ? BELOW : null;
+        }
+    }
+
+    /**
+     * @param threshold 1 birlik valyuta narxi so'mda, {@link FixedPoint#RATE_SCALE}
+     */
+    public record Alert(long id, long chatId, String ccy, Direction direction, long threshold) {}
+
+    private record Key(long threshold, long id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int c = Long.compare(threshold, other.threshold);
+            return c != 0 ? c : Long.compare(id, other.id);
+        }
+    }
+
+    /** Bir valyutaning chegaralari. */
+    private static final class Book {
+        final ConcurrentSkipListMap<Key, Alert> above = new ConcurrentSkipListMap<>();
+        final ConcurrentSkipListMap<Key, Alert> below = new ConcurrentSkipListMap<>();
+
+        ConcurrentSkipListMap<Key, Alert> side(Direction d) {
+            return d == Direction.ABOVE ? above : below;
+        }
+    }
+
+    /** Ishlagan ogohlantirish va o'sha paytdagi kurs. */
+    private record Fired(Alert alert, long rate, String date) {}
+
+    private final Path file;
+    private final ConcurrentHashMap<String, Book> books = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Alert>> byChat = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LinkedBlockingQueue<Fired> fired = new LinkedBlockingQueue<>();
+    private final LongAdder triggered = new LongAdder();
+    private final BufferedWriter journal;
+    private volatile Thread notifier;
+
+    private RateAlerts(Path file, BufferedWriter journal) {
+        this.file = file;
+        this.journal = journal;
+    }
+
+    /**
+     * Jurnalni o'qiydi, kerak bo'lsa ixchamlaydi va yozishga ochadi.
+     */
+    public static RateAlerts open(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Map<Long, Alert> live = new HashMap<>();
+        long maxId = 0;
+        int lines = 0;
+        if (Files.exists(file)) {
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines++;
+                    String[] f = line.split(" ");
+                    try {
+                        if (f.length == 6 && f[0].equals("A")) {
+                            Alert a = new Alert(Long.parseLong(f[1]), Long.parseLong(f[2]), f[3],
+                                    Direction.of(f[4].charAt(0)), Long.parseLong(f[5]));
+                            if (a.direction() != null) {
+                                live.put(a.id(), a);
+                                maxId = Math.max(maxId, a.id());
+                            }
+                        } else if (f.length == 2 && f[0].equals("D")) {
+                            live.remove(Long.parseLong(f[1]));
+                        }
+                    } catch (RuntimeException e) {
+                        int n = lines;
+                        LOGGER.warning(() -> "Ogohlantirishlar jurnalida buzilgan qator " + n + " o'tkazib yuborildi");
+                    }
+                }
+            }
+        }
+        if (lines > 2 * live.size() + 1_000) {
+            compact(file, live.values());
+        }
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        RateAlerts alerts = new RateAlerts(file, writer);
+        alerts.ids.set(maxId);
+        for (Alert a : live.values()) {
+            alerts.index(a);
+        }
+        int n = live.size();
+        LOGGER.info(() -> "Ogohlantirishlar yuklandi: " + n + " ta (" + file + ")");
+        return alerts;
+    }
+
+    private static void compact(Path file, Iterable<Alert> live) throws IOException {
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Alert a : live) {
+                    out.write(addLine(a));
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Bildirishnomalarni {@code outbound} orqali yuboruvchi fon threadini ishga tushiradi. Undan oldin ishlagan
+     * ogohlantirishlar navbatda kutib turadi.
+     */
+    public synchronized void start(OutboundSender outbound) {
+        if (notifier != null) {
+            throw new IllegalStateException("Allaqachon ishga tushirilgan");
+        }
+        notifier = Thread.ofVirtual().name("rate-alerts").start(() -> runNotifier(outbound));
+    }
+
+    /**
+     * Yangi ogohlantirish. Shart joriy kursda allaqachon bajarilgan bo'lsa, chaqiruvchi uni qo'shmasligi kerak.
+     *
+     * @return {@code null} bo'lsa, chatda {@link #MAX_PER_CHAT} ta ogohlantirish bor
+     */
+    public Alert add(long chatId, String ccy, Direction direction, long threshold) throws IOException {
+        ConcurrentHashMap<Long, Alert> mine = byChat.computeIfAbsent(chatId, id -> new ConcurrentHashMap<>());
+        // Bir chatning parallel /alert lari limitdan oshib ketmasin: tekshiruv va qo'shish bitta qulf ostida.
+        // O'chirish va ishlash qulfsiz, ular faqat sonni kamaytiradi.
+        synchronized (mine) {
+            if (mine.size() >= MAX_PER_CHAT) {
+                return null;
+            }
+            Alert a = new Alert(ids.incrementAndGet(), chatId, ccy.toUpperCase(Locale.ROOT), direction, threshold);
+            synchronized (journal) {
+                journal.write(addLine(a));
+                journal.flush();
+            }
+            index(a);
+            return a;
+        }
+    }
+
+    /**
+     * @return {@code false} bo'lsa, chatda bunday ogohlantirish yo'q
+     */
+    public boolean remove(long chatId, long id) throws IOException {
+        ConcurrentHashMap<Long, Alert> mine = byChat.get(chatId);
+        Alert a = mine == null ? null : mine.get(id);
+        if (a == null || !unindex(a)) {
+            return false;
+        }
+        synchronized (journal) {
+            journal.write("D " + id + "\n");
+            journal.flush();
+        }
+        return true;
+    }
+
+    /** Chatning faol ogohlantirishlari, id bo'yicha. */
+    public List<Alert> list(long chatId) {
+        ConcurrentHashMap<Long, Alert> mine = byChat.get(chatId);
+        if (mine == null) {
+            return List.of();
+        }
+        List<Alert> out = new ArrayList<>(mine.values());
+        out.sort(Comparator.comparingLong(Alert::id));
+        return out;
+    }
+
+    /** Faol ogohlantirishlar soni. */
+    public int size() {
+        return size.get();
+    }
+
+    /** Ishlagan ogohlantirishlar soni. */
+    public long triggeredCount() {
+        return triggered.sum();
+    }
+
+    /** Yuborilishini kutayotgan bildirishnomalar. */
+    public int pendingCount() {
+        return fired.size();
+    }
+
+    /**
+     * Yangi snapshot bo'yicha sharti bajarilgan ogohlantirishlarni kitobdan oladi va bildirishnoma navbatiga qo'yadi.
+     *
+     * @return ishlaganlar soni
+     */
+    public int evaluate(RatesSnapshot snapshot) {
+        int count = 0;
+        for (Map.Entry<String, Book> e : books.entrySet()) {
+            CurrencyRate r = snapshot.find(e.getKey());
+            long rate = r == null ? FixedPoint.NONE : r.getPerUnitScaled();
+            if (rate == FixedPoint.NONE) {
+                continue;
+            }
+            Book book = e.getValue();
+            Map.Entry<Key, Alert> x;
+            while ((x = book.above.firstEntry()) != null && x.getKey().threshold() < rate) {
+                count += fire(book.above, x, rate, r.getDate());
+            }
+            while ((x = book.below.lastEntry()) != null && x.getKey().threshold() > rate) {
+                count += fire(book.below, x, rate, r.getDate());
+            }
+        }
+        if (count > 0) {
+            triggered.add(count);
+            int n = count;
+            LOGGER.info(() -> "Ogohlantirishlar ishladi: " + n + " ta");
+        }
+        return count;
+    }
+
+    private int fire(ConcurrentSkipListMap<Key, Alert> side, Map.Entry<Key, Alert> x, long rate, String date) {
+        if (side.remove(x.getKey()) == null) {
+            return 0; // parallel olib tashlangan
+        }
+        Alert a = x.getValue();
+        ConcurrentHashMap<Long, Alert> mine = byChat.get(a.chatId());
+        if (mine != null) {
+            mine.remove(a.id());
+        }
+        size.decrementAndGet();
+        fired.add(new Fired(a, rate, date));
+        return 1;
+    }
+
+    /**
+     * Shart bajarilganmi: {@code >} — kurs chegaradan yuqori, {@code <} — past.
+     */
+    public static boolean holds(Direction direction, long threshold, long rate) {
+        return direction == Direction.ABOVE ? rate > threshold : rate < threshold;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread t = notifier;
+        if (t != null) {
+            t.interrupt();
+        }
+        synchronized (journal) {
+            journal.close();
+        }
+    }
+
+    private void index(Alert a) {
+        books.computeIfAbsent(a.ccy(), c -> new Book()).side(a.direction()).put(new Key(a.threshold(), a.id()), a);
+        byChat.computeIfAbsent(a.chatId(), id -> new ConcurrentHashMap<>()).put(a.id(), a);
+        size.incrementAndGet();
+    }
+
+    private boolean unindex(Alert a) {
+        Book book = books.get(a.ccy());
+        if (book == null || book.side(a.direction()).remove(new Key(a.threshold(), a.id())) == null) {
+            return false; // shu orada ishlab ketgan
+        }
+        ConcurrentHashMap<Long, Alert> mine = byChat.get(a.chatId());
+        if (mine != null) {
+            mine.remove(a.id());
+        }
+        size.decrementAndGet();
+        return true;
+    }
+
+    private void runNotifier(OutboundSender outbound) {
+        try {
+            while (true) {
+                Fired f = fired.take();
+                while (outbound.queueDepth() >= OUTBOUND_HIGH_WATER) {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                }
+                outbound.send(f.alert().chatId(), message(f));
+                try {
+                    synchronized (journal) {
+                        journal.write("D " + f.alert().id() + "\n");
+                        if (fired.isEmpty()) {
+                            journal.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    // xabar ketdi; jurnalda qolgan yozuv qayta ishga tushganda yana bir marta ishlashi mumkin
+                    LOGGER.log(Level.SEVERE, "Ogohlantirishlar jurnaliga yozib bo'lmadi: " + file, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SendMessage message(Fired f) {
+        Alert a = f.alert();
+        String verb = a.direction() == Direction.ABOVE ? "dan oshdi" : "dan tushdi";
+        SendMessage sm = new SendMessage();
+        sm.setChatId(Long.toString(a.chatId()));
+        sm.setText("🔔 <b>" + a.ccy() + "</b> kursi " + AmountFormat.rate(a.threshold()) + " so'm" + verb + ":\n"
+                + "1 " + a.ccy() + " = <b>" + AmountFormat.rate(f.rate()) + " so'm</b>"
+                + (f.date() != null ? " (" + f.date() + ")" : "") + "\n"
+                + "Ogohlantirish o'chirildi. Yangisi: <code>/alert " + a.ccy() + (a.direction() == Direction.ABOVE ? " &gt; " : " &lt; ")
+                + "...</code>");
+        sm.setParseMode("HTML");
+        sm.disableWebPagePreview();
+        return sm;
+    }
+
+    private static String addLine(Alert a) {
+        return "A " + a.id() + " " + a.chatId() + " " + a.ccy() + " " + a.direction().symbol + " " + a.threshold() + "\n";
+    }
+}
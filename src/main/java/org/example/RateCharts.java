@@ -0,0 +1,259 @@
+package org.example;
+
+import org.example.currency.CurrencyRate;
+import org.example.currency.CurrencyService;
+import org.example.currency.FixedPoint;
+import org.example.currency.HistoryBackfill;
+import org.example.currency.RateChart;
+import org.telegram.telegrambots.meta.api.methods.ParseMode;
+import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.PhotoSize;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * /grafik uchun kurs grafiklari va ularning keshi.
+ * <p>
+ * Grafik (valyuta, kunlar, kurs sanasi, tarix versiyasi) bo'yicha bir marta chiziladi: bir vaqtda kelgan bir xil
+ * so'rovlar bitta chizishni kutadi, CBU yangi sanani e'lon qilganda esa kalit o'zi almashadi. Tarix versiyasi
+ * {@link HistoryBackfill} arxivni to'ldirayotganda chizilgan chala grafikni keyingi yozilgan kundan so'ng
+ * eskirtiradi.
+ * <p>
+ * Tayyor PNG lar LRU tartibida, umumiy hajmi {@code maxBytes} dan oshmagan holda saqlanadi. Birinchi yuborishdan
+ * keyin Telegram qaytargan {@code file_id} alohida, soni {@link #MAX_FILE_IDS} bilan cheklangan LRU ga yoziladi va
+ * PNG keshdan chiqariladi: keyingi so'rovlarda rasm na chiziladi, na qayta yuklanadi, PNG lar chegarasi esa
+ * {@code file_id} larni siqib chiqarmaydi.
+ */
+public class RateCharts {
+    public static final int DEFAULT_DAYS = 30;
+    public static final int MIN_DAYS = 7;
+    public static final int MAX_DAYS = HistoryBackfill.DEFAULT_DEPTH_DAYS;
+    public static final long DEFAULT_MAX_BYTES = 8L << 20;
+    /** Bitta yozuv — kalit va ~80 belgili satr, shuning uchun hajm emas, son bilan cheklanadi. */
+    public static final int MAX_FILE_IDS = 4096;
+
+    private static final ZoneId TASHKENT = ZoneId.of("Asia/Tashkent");
+    private static final DateTimeFormatter CBU_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private record Key(String ccy, int days, LocalDate to, long historyVersion) {}
+
+    /** Bitta grafik: PNG bir marta chiziladi, {@code file_id} birinchi muvaffaqiyatli yuklashdan keyin paydo bo'ladi. */
+    public final class Chart {
+        private final Key key;
+        /** {@code synchronized (this)} ostida yoziladi; {@code null} — hali chizilmagan. */
+        private volatile byte[] png;
+        private volatile String fileId;
+        /** Hajmi {@link #bytes} ga qo'shilganmi; {@code synchronized (charts)} ostida. */
+        private boolean accounted;
+
+        private Chart(Key key) {
+            this.key = key;
+        }
+
+        private Chart(Key key, String fileId) {
+            this.key = key;
+            this.fileId = fileId;
+        }
+
+        /** Yuborish so'rovi: {@code file_id} ma'lum bo'lsa, faqat u; aks holda PNG yuklanadi. */
+        public SendPhoto request(long chatId, String caption) {
+            String id = fileId;
+            InputFile photo = id != null
+                    ? new InputFile(id)
+                    : new InputFile(new ByteArrayInputStream(png), key.ccy() + "-" + key.days() + ".png");
+            return SendPhoto.builder()
+                    .chatId(chatId)
+                    .photo(photo)
+                    .caption(caption)
+                    .parseMode(ParseMode.HTML)
+                    .build();
+        }
+
+        /** Telegram javobi: birinchi yuklashda eng katta o'lchamdagi rasmning {@code file_id} si saqlanadi. */
+        public void sent(Message message) {
+            if (fileId != null) {
+                reused.increment();
+                return;
+            }
+            uploaded.increment();
+            List<PhotoSize> sizes = message == null ? null : message.getPhoto();
+            if (sizes != null && !sizes.isEmpty()) {
+                fileId = sizes.stream()
+                        .max(Comparator.comparingLong(p -> (long) p.getWidth() * p.getHeight()))
+                        .map(PhotoSize::getFileId)
+                        .orElse(null);
+                if (fileId != null) {
+                    remember(this);
+                }
+            }
+        }
+
+        public int days() {
+            return key.days();
+        }
+
+        public LocalDate to() {
+            return key.to();
+        }
+    }
+
+    private final CurrencyService currencyService;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Chart> charts = new LinkedHashMap<>(64, 0.75f, true);
+    /** Yuklangan grafiklarning {@code file_id} lari; {@code synchronized (charts)} ostida. */
+    private final LinkedHashMap<Key, String> fileIds = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+            return size() > MAX_FILE_IDS;
+        }
+    };
+    /** {@code synchronized (charts)} ostida. */
+    private long bytes;
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder uploaded = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RateCharts(CurrencyService currencyService) {
+        this(currencyService, DEFAULT_MAX_BYTES);
+    }
+
+    public RateCharts(CurrencyService currencyService, long maxBytes) {
+        this.currencyService = currencyService;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * {@code rate} valyutasining uning sanasida tugaydigan {@code days} kunlik grafigi. Oxirgi kun tarixda hali
+     * bo'lmasa (CBU ertangi kursni kunduzi e'lon qiladi), joriy snapshotdagi kurs olinadi.
+     *
+     * @return grafik yoki {@code null}, agar davrda ikki kundan kam ma'lumot bo'lsa (yoki tarix o'chirilgan)
+     */
+    public Chart chart(CurrencyRate rate, int days) {
+        String ccy = rate.getCcy().trim().toUpperCase(Locale.ROOT);
+        Key key = new Key(ccy, days, rateDate(rate), currencyService.historyVersion());
+        Chart chart;
+        synchronized (charts) {
+            String fileId = fileIds.get(key);
+            if (fileId != null) {
+                hits.increment();
+                return new Chart(key, fileId);
+            }
+            chart = charts.computeIfAbsent(key, Chart::new);
+        }
+        synchronized (chart) {
+            if (chart.png != null) {
+                hits.increment();
+                return chart;
+            }
+            LocalDate from = key.to().minusDays(days - 1L);
+            long[] rates = currencyService.historyRange(ccy, from, key.to());
+            if (rates != null && rates.length > 0 && rates[rates.length - 1] == FixedPoint.NONE) {
+                rates[rates.length - 1] = rate.getPerUnitScaled();
+            }
+            if (rates == null || RateChart.points(rates) < 2) {
+                synchronized (charts) {
+                    charts.remove(key, chart); // tarix to'lgach qayta urinib ko'riladi
+                }
+                return null;
+            }
+            chart.png = RateChart.render(ccy, from, rates);
+            renders.increment();
+        }
+        synchronized (charts) {
+            if (charts.get(key) == chart && !chart.accounted) {
+                chart.accounted = true;
+                bytes += chart.png.length;
+                evict();
+            }
+        }
+        return chart;
+    }
+
+    /** Chizilgan grafiklar soni. */
+    public long renderCount() {
+        return renders.sum();
+    }
+
+    /** Keshdan berilgan grafiklar soni. */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /** PNG yuklab yuborilganlar. */
+    public long uploadCount() {
+        return uploaded.sum();
+    }
+
+    /** {@code file_id} bilan, qayta yuklamasdan yuborilganlar. */
+    public long reuseCount() {
+        return reused.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /** Saqlangan {@code file_id} lar soni. */
+    public int fileIdCount() {
+        synchronized (charts) {
+            return fileIds.size();
+        }
+    }
+
+    /** Keshdagi PNG larning umumiy hajmi. */
+    public long cachedBytes() {
+        synchronized (charts) {
+            return bytes;
+        }
+    }
+
+    /** {@code file_id} ma'lum bo'ldi: u alohida saqlanadi, PNG esa endi kerak emas. */
+    private void remember(Chart chart) {
+        synchronized (charts) {
+            fileIds.put(chart.key, chart.fileId);
+            if (charts.remove(chart.key, chart) && chart.accounted) {
+                bytes -= chart.png.length;
+            }
+        }
+    }
+
+    /** Eng uzoq ishlatilmaganlardan boshlab; hajmi hali hisobga olinmaganlar (chizilayotganlar) tegilmaydi. */
+    private void evict() {
+        for (Iterator<Map.Entry<Key, Chart>> it = charts.entrySet().iterator(); bytes > maxBytes && it.hasNext(); ) {
+            Chart chart = it.next().getValue();
+            if (chart.accounted && charts.size() > 1) {
+                it.remove();
+                bytes -= chart.png.length;
+                evictions.increment();
+            }
+        }
+    }
+
+    private static LocalDate rateDate(CurrencyRate rate) {
+        String date = rate.getDate();
+        if (date != null) {
+            try {
+                return LocalDate.parse(date.trim(), CBU_DATE);
+            } catch (DateTimeParseException e) {
+                // quyida: bugungi sana
+            }
+        }
+        return LocalDate.now(TASHKENT);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example;
+
+/**
+ * Rezervatsiyali token bucket: {@link #reserve()} tokenni darhol "qarzga" oladi va u qachon
+ * haqiqatda bo'shashini (nanosekundda) qaytaradi. Shu tariqa chaqiruvchi navbatni buzmasdan kutadi.
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond, double capacity) {
+        if (ratePerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Noto'g'ri token bucket: " + ratePerSecond + "/s, " + capacity);
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Bitta tokenni band qiladi.
+     *
+     * @return token bo'shashigacha kutish kerak bo'lgan vaqt, nanosekundda (0 — darhol)
+     */
+    public synchronized long reserve() {
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * Token bo'lsa oladi, bo'lmasa hech narsani o'zgartirmaydi.
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /** {@link #tryAcquire()} bilan olingan, lekin ishlatilmagan tokenni qaytaradi. */
+    public synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * Kamida {@code nanos} davomida yangi token bermaslik (masalan, 429 javobidan keyin).
+     */
+    public synchronized void penalize(long nanos) {
+        refill();
+        tokens = Math.min(tokens, -nanos * tokensPerNano);
+    }
+
+    /** Bucket to'lgan va uzoq vaqt ishlatilmagan bo'lsa, uni xotiradan o'chirish mumkin. */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
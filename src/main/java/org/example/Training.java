@@ -0,0 +1,165 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpServer;
+import org.example.currency.CbuClient;
+import org.example.currency.CurrencyService;
+import org.example.currency.RateChart;
+import org.example.currency.RateHistory;
+import org.example.currency.RatesCache;
+import org.example.currency.ResilientRatesSource;
+import org.example.currency.SnapshotStore;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.PhotoSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * {@code java -jar app.jar --train}: ilovaning ishga tushish va javob berish yo'lini bir marta, tashqi
+ * tarmoqsiz bosib o'tadi va chiqadi.
+ * <p>
+ * CDS arxivi ({@code -XX:ArchiveClassesAtExit}) va native-image agenti ({@code -agentlib:native-image-agent})
+ * shu yurishda yuklangan klasslarni va ishlatilgan reflection ni yozib oladi. CBU o'rnida loopback dagi kichik
+ * server turadi, yangilanishlar webhook ga POST qilinadi (Fly.io da nolgacha kichrayadigan rejim shu), javoblar
+ * hech qayerga yuborilmaydi. Tarix o'tgan kunlar uchun shu kurslar bilan to'ldiriladi, shunda /grafik ham
+ * rasm chizadi.
+ */
+final class Training {
+
+    private static final String RATES = """
+            [{"id":1,"Code":"840","Ccy":"USD","CcyNm_RU":"Доллар США","CcyNm_UZ":"AQSH dollari",\
+            "CcyNm_UZC":"АҚШ доллари","CcyNm_EN":"US Dollar","Nominal":"1","Rate":"12650.35","Diff":"-12.5",\
+            "Date":"16.10.2026"},
+             {"id":2,"Code":"978","Ccy":"EUR","CcyNm_RU":"Евро","CcyNm_UZ":"EVRO","CcyNm_UZC":"ЕВРО",\
+            "CcyNm_EN":"Euro","Nominal":"1","Rate":"13780.12","Diff":"20.01","Date":"16.10.2026"},
+             {"id":3,"Code":"643","Ccy":"RUB","CcyNm_RU":"Российский рубль","CcyNm_UZ":"Rossiya rubli",\
+            "CcyNm_UZC":"Россия рубли","CcyNm_EN":"Russian Ruble","Nominal":"1","Rate":"156.37","Diff":"-0.41",\
+            "Date":"16.10.2026"}]""";
+
+    /** Har biri alohida chatdan, shunda chat limiti aralashmaydi. */
+    private static final List<String> TEXTS = List.of(
+            "/start", "/kurs", "/kurs EUR", "/kurs 120 EUR", "/list", "/namuna",
+            "120", "EUR 120", "100 EUR RUB", "dollar", "100 yevro rubl", "/grafik", "/grafik EUR 30", "/grafik 30",
+            "salom");
+    private static final LocalDate RATES_DATE = LocalDate.of(2026, 10, 16);
+    private static final int HISTORY_DAYS = 30;
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(5);
+    private static final List<String> INLINE = List.of("100 usd", "eur");
+
+    private Training() {
+    }
+
+    static void run() throws IOException, InterruptedException {
+        byte[] payload = RATES.getBytes(StandardCharsets.UTF_8);
+        HttpServer cbu = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        cbu.createContext("/json/", exchange -> {
+            try (exchange; OutputStream out = exchange.getResponseBody()) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, payload.length);
+                out.write(payload);
+            }
+        });
+        cbu.start();
+        Path dir = Files.createTempDirectory("currency-bot-train");
+        try (UpdateDispatcher dispatcher = new UpdateDispatcher();
+             HttpClient http = HttpClient.newHttpClient();
+             RateHistory history = RateHistory.open(dir.resolve("history"))) {
+            CbuClient client = new CbuClient("http://127.0.0.1:" + cbu.getAddress().getPort() + "/json/");
+            RatesCache cache = new RatesCache(new ResilientRatesSource(List.of(client)));
+            cache.refresh().get();
+
+            SnapshotStore store = new SnapshotStore(dir.resolve("rates-snapshot.json"));
+            store.save(cache.getSnapshot(), Instant.now());
+            if (store.load() == null) {
+                throw new IOException("Saqlangan snapshot qayta o'qilmadi");
+            }
+
+            for (int i = 0; i < HISTORY_DAYS; i++) {
+                history.record(RATES_DATE.minusDays(i), cache.getSnapshot());
+            }
+
+            MessageSender sender = new MessageSender() {
+                @Override
+                public void send(SendMessage message) {
+                }
+
+                @Override
+                public Message sendPhoto(SendPhoto photo) {
+                    PhotoSize size = new PhotoSize();
+                    size.setFileId("train");
+                    size.setWidth(RateChart.WIDTH);
+                    size.setHeight(RateChart.HEIGHT);
+                    Message sent = new Message();
+                    sent.setPhoto(List.of(size));
+                    return sent;
+                }
+            };
+            MyBot bot = new MyBot("train_bot", "0:train", new CurrencyService(cache, history), dispatcher, sender);
+            try (WebhookServer webhook = new WebhookServer(
+                    bot, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), WebhookServer.DEFAULT_PATH, null)) {
+                webhook.start();
+                URI uri = URI.create("http://127.0.0.1:" + webhook.port() + WebhookServer.DEFAULT_PATH);
+                int id = 0;
+                for (String text : TEXTS) {
+                    id++;
+                    post(http, uri, """
+                            {"update_id":%d,"message":{"message_id":%d,"date":0,"text":"%s",\
+                            "chat":{"id":%d,"type":"private"},"from":{"id":%d,"is_bot":false,"first_name":"T"}}}"""
+                            .formatted(id, id, text, id, id));
+                }
+                for (String query : INLINE) {
+                    id++;
+                    post(http, uri, """
+                            {"update_id":%d,"inline_query":{"id":"%d","query":"%s","offset":"",\
+                            "from":{"id":%d,"is_bot":false,"first_name":"T"}}}"""
+                            .formatted(id, id, query, id));
+                }
+                long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+                while (bot.outbound().queueDepth() > 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(10); // grafiklar navbat orqali ketadi
+                }
+            } finally {
+                bot.outbound().close();
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Kurslarni yuklab bo'lmadi", e.getCause());
+        } finally {
+            cbu.stop(0);
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+
+    private static void post(HttpClient http, URI uri, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Webhook javobi " + response.statusCode() + ": " + json);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Telegram yangilanishlarini virtual threadlarda qayta ishlaydi.
+ * <p>
+ * Bir chatning vazifalari qat'iy navbat bilan bajariladi, turli chatlar esa parallel ishlaydi.
+ * Umumiy navbat cheklangan: joy bo'lmasa, {@link #submit} {@code maxWait} gacha kutadi (backpressure),
+ * so'ng vazifani tashlab yuboradi. Bitta chat ham {@code maxPerChat} dan ortiq vazifa to'play olmaydi.
+ */
+public class UpdateDispatcher implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(UpdateDispatcher.class.getName());
+
+    public static final int DEFAULT_MAX_BACKLOG = 10_000;
+    public static final int DEFAULT_MAX_PER_CHAT = 50;
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(2);
+
+    private final int maxBacklog;
+    private final int maxPerChat;
+    private final long maxWaitNanos;
+    private final Semaphore backlog;
+    private final ConcurrentHashMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("update-", 0).factory());
+    private final LongAdder dropped = new LongAdder();
+
+    /** Bitta chat navbati. {@code running} faqat {@code lanes.compute} ichida o'zgaradi. */
+    private static final class Lane {
+        final long key;
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        boolean running;
+
+        Lane(long key) {
+            this.key = key;
+        }
+    }
+
+    public UpdateDispatcher() {
+        this(DEFAULT_MAX_BACKLOG, DEFAULT_MAX_PER_CHAT, DEFAULT_MAX_WAIT);
+    }
+
+    public UpdateDispatcher(int maxBacklog, int maxPerChat, Duration maxWait) {
+        if (maxBacklog < 1 || maxPerChat < 1) {
+            throw new IllegalArgumentException("Navbat hajmlari musbat bo'lishi kerak");
+        }
+        this.maxBacklog = maxBacklog;
+        this.maxPerChat = maxPerChat;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.backlog = new Semaphore(maxBacklog);
+    }
+
+    /**
+     * Vazifani {@code key} (odatda chat id) navbatiga qo'yadi.
+     *
+     * @return {@code false} bo'lsa, vazifa navbat to'lganligi sababli tashlab yuborildi
+     */
+    public boolean submit(long key, Runnable task) {
+        boolean acquired;
+        try {
+            acquired = backlog.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            reject(key, "umumiy navbat to'la");
+            return false;
+        }
+
+        boolean[] start = new boolean[1];
+        boolean[] full = new boolean[1];
+        Lane target = lanes.compute(key, (k, lane) -> {
+            if (lane == null) {
+                lane = new Lane(k);
+            }
+            if (lane.size.get() >= maxPerChat) {
+                full[0] = true;
+                return lane;
+            }
+            lane.size.incrementAndGet();
+            lane.tasks.add(task);
+            if (!lane.running) {
+                lane.running = true;
+                start[0] = true;
+            }
+            return lane;
+        });
+        if (full[0]) {
+            backlog.release();
+            reject(key, "chat navbati to'la");
+            return false;
+        }
+        if (start[0]) {
+            executor.execute(() -> drain(target));
+        }
+        return true;
+    }
+
+    /** Navbatdagi (hali bajarilmagan yoki bajarilayotgan) vazifalar soni. */
+    public int queueDepth() {
+        return maxBacklog - backlog.availablePermits();
+    }
+
+    /** Navbat to'lganligi sababli tashlab yuborilgan vazifalar soni. */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public int activeChats() {
+        return lanes.size();
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private void drain(Lane lane) {
+        while (true) {
+            Runnable task;
+            while ((task = lane.tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOGGER.log(Level.SEVERE, "Yangilanishni qayta ishlashda kutilmagan xato (chat=" + lane.key + ")", t);
+                } finally {
+                    lane.size.decrementAndGet();
+                    backlog.release();
+                }
+            }
+            // Navbat bo'sh bo'lsa, chatni xaritadan olib tashlaymiz; aks holda davom etamiz
+            Lane still = lanes.compute(lane.key, (k, l) -> {
+                if (l.tasks.isEmpty()) {
+                    l.running = false;
+                    return null;
+                }
+                return l;
+            });
+            if (still == null) {
+                return;
+            }
+        }
+    }
+
+    private void reject(long key, String reason) {
+        dropped.increment();
+        LOGGER.warning(() -> "Yangilanish tashlab yuborildi (chat=" + key + "): " + reason);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bitta webhook so'rovining javobi.
+ * <p>
+ * Telegram webhook javobida bitta API metodini qabul qiladi, shuning uchun yangilanish qayta ishlanayotganda
+ * chiquvchi xabarlar avval shu yerga yig'iladi ({@link #add}); ishlov tugagach, bitta xabar bo'lsa, u HTTP
+ * javobi sifatida qaytadi ({@link #offer}), aks holda odatiy navbatga yuboriladi. HTTP tomoni
+ * {@link #await} bilan kutadi; vaqt tugasa, javob yopiladi va kech kelgan xabar navbat orqali ketadi.
+ */
+public final class WebhookReply {
+    private final CompletableFuture<BotApiMethod<?>> response = new CompletableFuture<>();
+    /** Faqat yangilanishni qayta ishlayotgan thread o'zgartiradi. */
+    private final List<SendMessage> messages = new ArrayList<>(2);
+
+    void add(SendMessage message) {
+        messages.add(message);
+    }
+
+    List<SendMessage> messages() {
+        return messages;
+    }
+
+    /**
+     * Metodni HTTP javobiga beradi.
+     *
+     * @return {@code false} bo'lsa, javob allaqachon yopilgan — metodni odatiy yo'l bilan yuborish kerak
+     */
+    boolean offer(BotApiMethod<?> method) {
+        return response.complete(method);
+    }
+
+    /** Javobga hech narsa qo'shilmaydi: HTTP tomoni bo'sh 200 qaytaradi. */
+    void finish() {
+        response.complete(null);
+    }
+
+    boolean isOpen() {
+        return !response.isDone();
+    }
+
+    /**
+     * Javobni {@code timeout} gacha kutadi.
+     *
+     * @return HTTP javobida qaytariladigan metod yoki {@code null}
+     */
+    public BotApiMethod<?> await(Duration timeout) throws InterruptedException {
+        try {
+            return response.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            finish();
+            return response.getNow(null); // poyga: shu orada offer ulgurgan bo'lishi mumkin
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+}
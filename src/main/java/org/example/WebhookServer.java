@@ -0,0 +1,172 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Long polling o'rniga webhook: Telegram yangilanishlarni POST qiladi, server ularni {@link MyBot} ning
+ * odatiy yo'liga uzatadi.
+ * <p>
+ * JDK {@link HttpServer} ustida ishlaydi, har bir so'rov alohida virtual threadda. Maxfiy token
+ * ({@value #SECRET_HEADER}) berilgan bo'lsa, u bilan kelmagan so'rovlar rad etiladi. Javob
+ * {@code replyWait} ichida tayyor bo'lsa va u bitta xabar bo'lsa, HTTP javobining o'zida qaytariladi —
+ * Bot API ga alohida so'rov kerak bo'lmaydi.
+ * <p>
+ * Mahalliy sinov: {@code curl -H 'X-Telegram-Bot-Api-Secret-Token: s' -d @update.json localhost:8080/telegram}.
+ */
+public class WebhookServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(WebhookServer.class.getName());
+
+    public static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    public static final int DEFAULT_PORT = 8080;
+    public static final String DEFAULT_PATH = "/telegram";
+    public static final Duration DEFAULT_REPLY_WAIT = Duration.ofSeconds(2);
+    /** Webhook orqali qabul qilinadigan yangilanish turlari. */
+    public static final List<String> ALLOWED_UPDATES = List.of("message", "inline_query");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final MyBot bot;
+    private final InetSocketAddress address;
+    private final String path;
+    private final byte[] secret;
+    private final Duration replyWait;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    /**
+     * @param secret kutilayotgan maxfiy token; {@code null} bo'lsa, tekshirilmaydi (faqat mahalliy sinov uchun)
+     */
+    public WebhookServer(MyBot bot, InetSocketAddress address, String path, String secret) {
+        this(bot, address, path, secret, DEFAULT_REPLY_WAIT);
+    }
+
+    public WebhookServer(MyBot bot, InetSocketAddress address, String path, String secret, Duration replyWait) {
+        this.bot = bot;
+        this.address = address;
+        this.path = path;
+        this.secret = secret == null || secret.isBlank() ? null : secret.getBytes(StandardCharsets.UTF_8);
+        this.replyWait = replyWait;
+    }
+
+    public synchronized void start() throws IOException {
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext(path, this::handle);
+        server.start();
+        LOGGER.info(() -> "Webhook server ishga tushdi: " + server.getAddress() + path
+                + (secret == null ? " (maxfiy token tekshirilmaydi!)" : ""));
+    }
+
+    /** Haqiqiy port (0 berilgan bo'lsa ham). */
+    public synchronized int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(1);
+        }
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().add("Allow", "POST");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (secret != null && !secretMatches(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                LOGGER.warning(() -> "Webhook: maxfiy token noto'g'ri, so'rov rad etildi (" + exchange.getRemoteAddress() + ")");
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            Update update;
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    exchange.sendResponseHeaders(413, -1);
+                    return;
+                }
+                update = MAPPER.readValue(bytes, Update.class);
+            } catch (JsonProcessingException e) {
+                LOGGER.warning(() -> "Webhook: yangilanish JSON ini o'qib bo'lmadi: " + e.getOriginalMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            BotApiMethod<?> reply;
+            try {
+                reply = bot.onWebhookUpdate(update).await(replyWait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reply = null;
+            }
+            if (reply == null) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            byte[] json = MAPPER.writeValueAsBytes(reply);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, json.length);
+            exchange.getResponseBody().write(json);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Webhook so'rovini qayta ishlashda xato", e);
+            throw e;
+        }
+    }
+
+    private boolean secretMatches(String header) {
+        return header != null && MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Telegramga webhook manzilini ro'yxatdan o'tkazadi ({@code setWebhook}).
+     */
+    public static void register(String botToken, String publicUrl, String secret) throws IOException, InterruptedException {
+        Map<String, Object> params = secret == null || secret.isBlank()
+                ? Map.of("url", publicUrl, "allowed_updates", ALLOWED_UPDATES)
+                : Map.of("url", publicUrl, "allowed_updates", ALLOWED_UPDATES, "secret_token", secret);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("https://api.telegram.org/bot" + botToken + "/setWebhook"))
+                .timeout(Duration.ofSeconds(15))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(params)))
+                .build();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            JsonNode json = MAPPER.readTree(response.body());
+            if (response.statusCode() != 200 || !json.path("ok").asBoolean(false)) {
+                throw new IOException("setWebhook muvaffaqiyatsiz: " + response.statusCode() + " " + json.path("description").asText(""));
+            }
+        }
+        LOGGER.info(() -> "Webhook ro'yxatdan o'tkazildi: " + publicUrl);
+    }
+}
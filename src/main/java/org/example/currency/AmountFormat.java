@@ -0,0 +1,63 @@
+package org.example.currency;
+
+/**
+ * Fixed-point qiymatlarni o'zbek lokalidagi {@code #,##0.00} ko'rinishida formatlaydi:
+ * minglik ajratgich — bo'linmas bo'sh joy (U+00A0), kasr ajratgichi — vergul, yaxlitlash — HALF_EVEN.
+ * <p>
+ * {@code DecimalFormat} dan farqli o'laroq holatsiz, shuning uchun bitta nusxa barcha threadlar
+ * uchun xavfsiz va har so'rovda yangi formatter qurish shart emas.
+ */
+public final class AmountFormat {
+    private static final char GROUPING = '\u00A0';
+    private static final char DECIMAL = ',';
+    private static final int DIGITS = 2;
+
+    private AmountFormat() {
+    }
+
+    /** Kurs qiymati ({@link FixedPoint#RATE_SCALE}). */
+    public static String rate(long scaled) {
+        return format(scaled, FixedPoint.RATE_SCALE);
+    }
+
+    /** Pul miqdori ({@link FixedPoint#AMOUNT_SCALE}). */
+    public static String amount(long scaled) {
+        return format(scaled, FixedPoint.AMOUNT_SCALE);
+    }
+
+    public static String format(long scaled, int scale) {
+        return appendTo(new StringBuilder(24), scaled, scale).toString();
+    }
+
+    /**
+     * Formatlangan qiymatni {@code sb} ga qo'shadi; {@link FixedPoint#NONE} uchun "N/A".
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long scaled, int scale) {
+        if (scaled == FixedPoint.NONE) {
+            return sb.append("N/A");
+        }
+        long v = FixedPoint.rescale(scaled, scale, DIGITS);
+        if (v < 0) {
+            sb.append('-');
+            v = -v;
+        }
+        long whole = v / 100;
+        int fraction = (int) (v % 100);
+
+        // Butun qismni o'ngdan chapga, har uch raqamdan keyin ajratgich bilan yozamiz
+        char[] buf = new char[26];
+        int pos = buf.length;
+        int group = 0;
+        do {
+            if (group == 3) {
+                buf[--pos] = GROUPING;
+                group = 0;
+            }
+            buf[--pos] = (char) ('0' + (whole % 10));
+            whole /= 10;
+            group++;
+        } while (whole > 0);
+        sb.append(buf, pos, buf.length - pos);
+        return sb.append(DECIMAL).append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+}
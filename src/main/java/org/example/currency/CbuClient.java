@@ -1,64 +1,296 @@
 package org.example.currency;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.example.metrics.Histogram;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Lightweight HTTP client for CBU currency rates API.
+ * <p>
+ * The response body is streamed straight from the socket through a Jackson {@link JsonParser}
+ * into {@link CurrencyRate} objects; the payload is never materialized as a {@code String}.
+ * Repeated polls are revalidated with the server's validators (or a content hash) so an
+ * unchanged payload is not parsed again.
  */
-public class CbuClient {
+public class CbuClient implements RatesSource {
     private static final Logger LOGGER = Logger.getLogger(CbuClient.class.getName());
     private static final String DEFAULT_ENDPOINT = "https://cbu.uz/ru/arkhiv-kursov-valyut/json/";
 
+    /** The same "today" feed under each site language; used as mirrors by {@link ResilientRatesSource}. */
+    public static final List<String> DEFAULT_ENDPOINTS = List.of(
+            DEFAULT_ENDPOINT,
+            "https://cbu.uz/uz/arkhiv-kursov-valyut/json/",
+            "https://cbu.uz/en/arkhiv-kursov-valyut/json/"
+    );
+
+    /** Thread-safe and immutable, so one instance is shared by every client and refresh. */
+    private static final ObjectReader RATE_READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(CurrencyRate.class);
+
     private final HttpClient httpClient;
-    private final ObjectMapper objectMapper;
     private final String endpoint;
+    private final boolean acceptGzip;
+
+    /**
+     * Oxirgi to'liq javobning validatorlari; shartli so'rovlar uchun. Faqat shu endpoint uchun: boshqa
+     * mirror bergan snapshotga qo'llanmaydi (qarang {@link ResilientRatesSource}).
+     */
+    private volatile Validators validators;
+
+    private final Histogram fetchLatency = Histogram.latency();
+    private final Histogram payloadSize = Histogram.bytes();
+    private final LongAdder fetchErrors = new LongAdder();
+
+    private record Validators(RatesSnapshot snapshot, String etag, String lastModified, byte[] bodyHash) {}
 
     public CbuClient() {
         this(DEFAULT_ENDPOINT);
     }
 
     public CbuClient(String endpoint) {
+        this(endpoint, true);
+    }
+
+    public CbuClient(String endpoint, boolean acceptGzip) {
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(10))
                 .build();
-        this.objectMapper = new ObjectMapper()
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         this.endpoint = endpoint;
+        this.acceptGzip = acceptGzip;
     }
 
     public List<CurrencyRate> fetchRates() throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .GET()
-                .uri(URI.create(endpoint))
-                .timeout(Duration.ofSeconds(15))
-                .header("Accept", "application/json")
-                .build();
-        LOGGER.info(() -> "CBU so'rov yuborildi: " + endpoint);
+        return fetchSnapshot().rates();
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        int status = response.statusCode();
-        LOGGER.info(() -> "CBU javob statusi: " + status + ", hajmi: " + (response.body() != null ? response.body().length() : 0) + " bayt");
-        if (status < 200 || status >= 300) {
-            throw new IOException("CBU API status kodi: " + status);
-        }
-        String body = response.body();
+    /**
+     * Shartsiz so'rov: har doim to'liq snapshot qaytaradi.
+     */
+    public RatesSnapshot fetchSnapshot() throws IOException, InterruptedException {
+        return fetch(null).snapshot();
+    }
+
+    /**
+     * Shartli so'rov. {@code current} shu klient oxirgi marta qaytargan snapshot bo'lsa, server bergan
+     * {@code ETag}/{@code Last-Modified} bilan qayta tekshiradi; server validator bermasa, javob tanasining
+     * SHA-256 xeshini solishtiradi. O'zgarmagan javob deserializatsiya qilinmaydi.
+     */
+    @Override
+    public FetchResult fetch(RatesSnapshot current) throws IOException, InterruptedException {
+        long start = System.nanoTime();
         try {
-            return objectMapper.readValue(body, new TypeReference<>() {});
+            return fetchOnce(current);
         } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "CBU javobini o'qishda xatolik", e);
+            fetchErrors.increment();
             throw e;
+        } finally {
+            fetchLatency.recordSince(start);
+        }
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    /** Duration of {@link #fetch} calls including reading the body; failed calls are recorded too. */
+    public Histogram fetchLatency() {
+        return fetchLatency;
+    }
+
+    /** Size of fully read response bodies, in bytes on the wire (compressed if gzip). */
+    public Histogram payloadSize() {
+        return payloadSize;
+    }
+
+    public long fetchErrorCount() {
+        return fetchErrors.sum();
+    }
+
+    private FetchResult fetchOnce(RatesSnapshot current) throws IOException, InterruptedException {
+        Validators known = validators;
+        boolean conditional = current != null && known != null && known.snapshot() == current;
+
+        HttpRequest.Builder builder = newRequest(endpoint);
+        if (conditional && known.etag() != null) {
+            builder.header("If-None-Match", known.etag());
+        }
+        if (conditional && known.lastModified() != null) {
+            builder.header("If-Modified-Since", known.lastModified());
+        }
+        LOGGER.info(() -> "CBU so'rov yuborildi: " + endpoint + (conditional ? " (shartli)" : ""));
+
+        HttpResponse<InputStream> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        try (CountingInputStream body = new CountingInputStream(response.body())) {
+            if (status == 304 && conditional) {
+                LOGGER.info("CBU javob statusi: 304, ma'lumot o'zgarmagan");
+                return FetchResult.unchanged();
+            }
+            if (status < 200 || status >= 300) {
+                LOGGER.info(() -> "CBU javob statusi: " + status);
+                throw new IOException("CBU API status kodi: " + status);
+            }
+            HttpHeaders headers = response.headers();
+            String etag = headers.firstValue("ETag").orElse(null);
+            String lastModified = headers.firstValue("Last-Modified").orElse(null);
+            if (conditional && etag != null && etag.equals(known.etag())) {
+                // Server If-None-Match ni e'tiborsiz qoldirdi, lekin ETag o'sha-o'sha
+                LOGGER.info("CBU javob statusi: " + status + ", ETag o'zgarmagan");
+                return FetchResult.unchanged();
+            }
+            boolean gzip = isGzip(headers);
+            InputStream in = gzip ? new GZIPInputStream(body, 8192) : body;
+            try {
+                if (etag != null || lastModified != null) {
+                    RatesSnapshot snapshot = parseSnapshot(in);
+                    validators = new Validators(snapshot, etag, lastModified, null);
+                    payloadSize.record(body.count());
+                    logReceived(status, body.count(), gzip, snapshot);
+                    return FetchResult.changed(snapshot);
+                }
+
+                // Validator yo'q: tanani xeshlaymiz va faqat o'zgargan bo'lsa o'qiymiz
+                byte[] payload = in.readAllBytes();
+                byte[] hash = sha256(payload);
+                payloadSize.record(body.count());
+                if (conditional && Arrays.equals(hash, known.bodyHash())) {
+                    LOGGER.info(() -> "CBU javob statusi: " + status + ", hajmi: " + body.count() + " bayt, tarkib o'zgarmagan");
+                    return FetchResult.unchanged();
+                }
+                RatesSnapshot snapshot = parseSnapshot(new ByteArrayInputStream(payload));
+                validators = new Validators(snapshot, null, null, hash);
+                logReceived(status, body.count(), gzip, snapshot);
+                return FetchResult.changed(snapshot);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "CBU javobini o'qishda xatolik", e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Archive feed for one day ({@code <endpoint>all/yyyy-MM-dd/}): every currency's rate as it was
+     * on {@code date}. Always unconditional, archive days do not change.
+     */
+    public RatesSnapshot fetchArchive(LocalDate date) throws IOException, InterruptedException {
+        String url = archiveUrl(date);
+        HttpResponse<InputStream> response = httpClient.send(newRequest(url).build(), HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        try (CountingInputStream body = new CountingInputStream(response.body())) {
+            if (status < 200 || status >= 300) {
+                throw new IOException("CBU arxiv status kodi: " + status + " (" + date + ")");
+            }
+            boolean gzip = isGzip(response.headers());
+            RatesSnapshot snapshot = parseSnapshot(gzip ? new GZIPInputStream(body, 8192) : body);
+            LOGGER.fine(() -> "CBU arxiv " + date + ": " + body.count() + " bayt, valyutalar: " + snapshot.rates().size());
+            return snapshot;
+        }
+    }
+
+    String archiveUrl(LocalDate date) {
+        return (endpoint.endsWith("/") ? endpoint : endpoint + "/") + "all/" + date + "/";
+    }
+
+    private HttpRequest.Builder newRequest(String url) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(15))
+                .header("Accept", "application/json");
+        if (acceptGzip) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+        return builder;
+    }
+
+    private static boolean isGzip(HttpHeaders headers) {
+        return headers.firstValue("Content-Encoding")
+                .map(v -> v.equalsIgnoreCase("gzip"))
+                .orElse(false);
+    }
+
+    private static void logReceived(int status, long bytes, boolean gzip, RatesSnapshot snapshot) {
+        LOGGER.info(() -> "CBU javob statusi: " + status + ", hajmi: " + bytes + " bayt"
+                + (gzip ? " (gzip)" : "") + ", valyutalar: " + snapshot.rates().size());
+    }
+
+    private static byte[] sha256(byte[] payload) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(payload);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 mavjud emas", e);
+        }
+    }
+
+    /**
+     * CBU JSON massivini oqim sifatida o'qib, snapshot quradi. Oqim o'qib bo'lingach yopiladi.
+     */
+    public static RatesSnapshot parseSnapshot(InputStream in) throws IOException {
+        try (JsonParser parser = RATE_READER.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("CBU javobi JSON massiv emas");
+            }
+            List<CurrencyRate> rates = new ArrayList<>(96);
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                rates.add(RATE_READER.readValue(parser));
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new IOException("CBU javobida kutilmagan element: " + token);
+            }
+            return RatesSnapshot.of(rates);
+        }
+    }
+
+    /** Counts raw (possibly compressed) bytes read from the socket, for logging. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        long count() {
+            return count;
         }
     }
 }
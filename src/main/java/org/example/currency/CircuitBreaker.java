@@ -0,0 +1,62 @@
+package org.example.currency;
+
+import java.time.Duration;
+
+/**
+ * Oddiy circuit breaker: ketma-ket {@code failureThreshold} ta xatodan keyin {@code openDuration}
+ * davomida so'rovlarni darhol rad etadi, so'ng bitta sinov so'roviga ruxsat beradi.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold kamida 1 bo'lishi kerak: " + failureThreshold);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * So'rov yuborish mumkinmi. OPEN holatda muddat tugagach bitta sinov so'roviga ruxsat beradi.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAtNanos >= openNanos) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default: // HALF_OPEN: sinov so'rovi hali tugamagan
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.currency;
+
+import java.util.List;
+
+/**
+ * Snapshot bo'yicha bir marta quriladigan kross-kurs jadvali.
+ * <p>
+ * Har bir valyutaga zich indeks beriladi (UZS — 0), uch harfli kod esa {@code 26³} o'lchamli jadval orqali
+ * xeshlashsiz indeksga aylanadi. {@code perUnit[i]} — 1 birlik valyutaning so'mdagi qiymati (nominal
+ * hisobga olingan, {@link FixedPoint#RATE_SCALE}), shuning uchun istalgan juftlik {@code i → j} bitta
+ * {@link FixedPoint#mulDiv} bilan, bitta yaxlitlash bilan hisoblanadi.
+ * <p>
+ * To'liq N×N fixed-point matritsa ataylab saqlanmaydi: kurslar nisbati besh tartibga farq qiladi (KWD/IRR),
+ * umumiy masshtabda katta elementlar {@code long} ga sig'maydi, kichiklari esa tiyin aniqligini yo'qotadi;
+ * matritsa elementidan foydalanish baribir xuddi shu {@code mulDiv} ni talab qiladi.
+ */
+public final class CrossRates {
+    public static final String UZS = "UZS";
+    /** Topilmagan valyuta indeksi. */
+    public static final int NONE = -1;
+
+    private static final int TABLE_SIZE = 26 * 26 * 26;
+
+    private final String[] ccys;
+    private final CurrencyRate[] rates;
+    private final long[] perUnit;
+    /** Uch harfli kod → indeks + 1 (0 — yo'q). */
+    private final short[] table = new short[TABLE_SIZE];
+
+    private CrossRates(List<CurrencyRate> unique) {
+        int n = unique.size() + 1;
+        ccys = new String[n];
+        rates = new CurrencyRate[n];
+        perUnit = new long[n];
+        ccys[0] = UZS;
+        perUnit[0] = FixedPoint.RATE_ONE;
+        table[slot(UZS)] = 1;
+        int size = 1;
+        for (CurrencyRate r : unique) {
+            String ccy = r.getCcy() == null ? "" : r.getCcy().trim();
+            int slot = slot(ccy);
+            long p = r.getPerUnitScaled();
+            if (slot < 0 || table[slot] != 0 || p == FixedPoint.NONE || p <= 0) {
+                continue;
+            }
+            ccys[size] = ccy;
+            rates[size] = r;
+            perUnit[size] = p;
+            table[slot] = (short) (size + 1);
+            size++;
+        }
+    }
+
+    static CrossRates of(RatesSnapshot snapshot) {
+        return new CrossRates(snapshot.sortedUnique());
+    }
+
+    /**
+     * Uch harfli kod (registr muhim emas) bo'yicha indeks yoki {@link #NONE}.
+     */
+    public int indexOf(String ccy) {
+        int slot = ccy == null ? -1 : slot(ccy);
+        return slot < 0 ? NONE : table[slot] - 1;
+    }
+
+    /** Indeks bo'yicha valyuta kodi. */
+    public String ccy(int index) {
+        return ccys[index];
+    }
+
+    /** Indeks bo'yicha CBU yozuvi; UZS uchun {@code null}. */
+    public CurrencyRate rate(int index) {
+        return rates[index];
+    }
+
+    /** 1 birlik valyuta so'mda, {@link FixedPoint#RATE_SCALE} masshtabida. */
+    public long perUnit(int index) {
+        return perUnit[index];
+    }
+
+    /**
+     * {@code amount} ({@link FixedPoint#AMOUNT_SCALE}) ni {@code from} valyutasidan {@code to} ga o'tkazadi.
+     */
+    public long convert(long amount, int from, int to) {
+        if (amount == FixedPoint.NONE) {
+            return FixedPoint.NONE;
+        }
+        return from == to ? amount : FixedPoint.mulDiv(amount, perUnit[from], perUnit[to]);
+    }
+
+    /** Katta harfli yoki kichik harfli uch lotin harfi uchun jadval katagi, aks holda {@code -1}. */
+    private static int slot(String ccy) {
+        if (ccy.length() != 3) {
+            return -1;
+        }
+        int slot = 0;
+        for (int i = 0; i < 3; i++) {
+            int c = ccy.charAt(i) | 0x20; // kichik harfga
+            if (c < 'a' || c > 'z') {
+                return -1;
+            }
+            slot = slot * 26 + (c - 'a');
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,418 @@
+package org.example.currency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Valyutalarni nomi bo'yicha topish: "dollar", "rubl", "евро", "yevro", "funt", "kanada dollari".
+ * <p>
+ * Snapshot uchun bir marta quriladi (ru, uz, uzc, en nomlari va {@link #ALIASES}). Har bir so'z
+ * {@link #normalize} bilan bitta lotin ko'rinishiga keltiriladi: kirill harflari transliteratsiya qilinadi,
+ * apostroflar tashlanadi, o'xshash tovushlar birlashtiriladi (x/kh → h, q → k, y → i, qo'sh harflar →
+ * bitta), shuning uchun "Доллар", "dollar" va "dollor" bir xil yoki yaqin kalitga tushadi.
+ * <p>
+ * Qidiruv snapshotni aylanib chiqmaydi. Avval saralangan so'zlar massivida ikkilik qidiruv: aniq moslik,
+ * qo'shimchali so'z ("dollarga" → "dollar") va boshlanish ("avstral" → "avstralia"). Topilmasa, uchliklar
+ * (trigram) indeksi bo'yicha nomzodlar olinadi va ular cheklangan tahrir masofasi bilan tekshiriladi. Ketma-ket
+ * so'zlar bitta nom deb olinadi, agar ularning valyutalari kesishsa ("kanada dollari" → CAD), aks holda har
+ * biri alohida valyuta ("yevro rubl" → EUR, RUB).
+ */
+public final class CurrencyNames {
+
+    /** Umumiy so'zlar uchun asosiy valyuta va keng tarqalgan boshqa yozilishlar. */
+    static final Map<String, List<String>> ALIASES = Map.ofEntries(
+            Map.entry("USD", List.of("dollar", "dollor", "ko'k", "bucks", "бакс")),
+            Map.entry("EUR", List.of("yevro", "evro", "euro", "евро")),
+            Map.entry("RUB", List.of("rubl", "ruble", "rouble", "рубль")),
+            Map.entry("GBP", List.of("funt", "pound", "sterling", "фунт")),
+            Map.entry("JPY", List.of("yen", "iyena", "иена", "йена")),
+            Map.entry("CNY", List.of("yuan", "renminbi", "юань")),
+            Map.entry("CHF", List.of("frank", "franc", "франк")),
+            Map.entry("KZT", List.of("tenge", "тенге")),
+            Map.entry("TRY", List.of("lira", "лира")),
+            Map.entry("KRW", List.of("von", "won", "вона")),
+            Map.entry("INR", List.of("rupiya", "rupee", "рупия")),
+            Map.entry("UAH", List.of("grivna", "hryvnia", "гривна")),
+            Map.entry("AED", List.of("dirham", "дирхам")),
+            Map.entry("SAR", List.of("riyal", "риял")),
+            Map.entry("AZN", List.of("manat", "манат")));
+
+    /** Nomlarda uchraydigan, lekin valyutani bildirmaydigan so'zlar. */
+    private static final Set<String> STOP_WORDS = normalizedSet(
+            "yangi", "new", "новый", "respublikasi", "республики", "republic", "soberano", "uae");
+
+    private static final int MIN_WORD = 3;
+    /** Shundan qisqa so'z boshlanish sifatida qidirilmaydi ("kata" → "katar"). */
+    private static final int MIN_PREFIX = 5;
+    /** Qo'shimchasi olib tashlangan so'zning eng kichik uzunligi ("rubli" → "rubl"). */
+    private static final int MIN_STEM = 4;
+    /** "dollarga", "rublni": so'z oxiridagi qo'shimchaning eng katta uzunligi. */
+    private static final int MAX_SUFFIX = 3;
+    private static final double EXACT = 1.0;
+    private static final double STEM = 0.9;
+    private static final double PREFIX = 0.8;
+    private static final double FUZZY_1 = 0.7;
+    private static final double FUZZY_2 = 0.5;
+    private static final double ALIAS_BONUS = 0.5;
+    /** Trigramdagi "so'z chegarasi" belgisi; harflar 1..26. */
+    private static final int PAD = 27;
+
+    private final String[] ccys;
+    /** Normallashgan so'zlar, saralangan. */
+    private final String[] words;
+    /** Har bir so'z egalari: {@code ccyIndex * 2 + (alias ? 1 : 0)}. */
+    private final int[][] owners;
+    /** Trigram kodi → shu trigram bor so'zlar indekslari. */
+    private final int[][] trigrams = new int[1 << 15][];
+    private final Set<String> codes;
+
+    private CurrencyNames(RatesSnapshot snapshot) {
+        List<CurrencyRate> rates = snapshot.sortedUnique();
+        this.ccys = new String[rates.size()];
+        Map<String, Integer> ccyIndex = new HashMap<>();
+        Set<String> codeSet = new HashSet<>();
+        TreeMap<String, Set<Integer>> index = new TreeMap<>();
+        for (int c = 0; c < rates.size(); c++) {
+            CurrencyRate r = rates.get(c);
+            ccys[c] = r.getCcy().trim().toUpperCase(Locale.ROOT);
+            ccyIndex.put(ccys[c], c);
+            codeSet.add(ccys[c]);
+            if (r.getCode() != null) codeSet.add(r.getCode().trim());
+            for (String name : new String[] {r.getNameRu(), r.getNameUz(), r.getNameUzc(), r.getNameEn()}) {
+                addWords(index, name, c * 2);
+            }
+        }
+        for (Map.Entry<String, List<String>> e : ALIASES.entrySet()) {
+            Integer c = ccyIndex.get(e.getKey());
+            if (c == null) continue;
+            for (String alias : e.getValue()) {
+                addWords(index, alias, c * 2 + 1);
+            }
+        }
+        this.codes = Set.copyOf(codeSet);
+        this.words = index.keySet().toArray(new String[0]);
+        this.owners = new int[words.length][];
+        Map<Integer, List<Integer>> postings = new HashMap<>();
+        for (int w = 0; w < words.length; w++) {
+            owners[w] = index.get(words[w]).stream().mapToInt(Integer::intValue).sorted().toArray();
+            for (int t : trigramCodes(words[w])) {
+                postings.computeIfAbsent(t, k -> new ArrayList<>()).add(w);
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> e : postings.entrySet()) {
+            trigrams[e.getKey()] = e.getValue().stream().mapToInt(Integer::intValue).distinct().toArray();
+        }
+    }
+
+    static CurrencyNames of(RatesSnapshot snapshot) {
+        return new CurrencyNames(snapshot);
+    }
+
+    /** {@code USD} yoki {@code 840} shu snapshotda bormi. */
+    public boolean isCode(String key) {
+        return codes.contains(key) || codes.contains(key.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * {@code text} ning {@code [start, end)} qismidagi so'zlar qaysi valyutalarni bildiradi, matndagi tartibda.
+     * Tanilmagan so'zlar tashlab ketiladi.
+     */
+    public List<String> resolve(CharSequence text, int start, int end) {
+        List<String> found = new ArrayList<>(2);
+        double[] group = null;
+        int groupWords = 0;
+        int i = start;
+        while (true) {
+            while (i < end && Character.isWhitespace(text.charAt(i))) i++;
+            if (i >= end) break;
+            int from = i;
+            while (i < end && !Character.isWhitespace(text.charAt(i))) i++;
+            String word = normalize(text, from, i);
+            double[] scores = word.length() < MIN_WORD || STOP_WORDS.contains(word) ? null : score(word);
+            if (scores == null) continue;
+            if (group != null && intersect(group, scores)) {
+                groupWords++;
+                continue;
+            }
+            addBest(found, group, groupWords);
+            group = scores;
+            groupWords = 1;
+        }
+        addBest(found, group, groupWords);
+        return found;
+    }
+
+    /**
+     * Guruhning eng yaxshi valyutasi. Yolg'iz so'z faqat boshlanishdan kuchliroq moslik yoki taxallus bilan
+     * olinadi: "brat" → "bat" kabi bitta harf farqi oddiy so'zlarda ham tez-tez uchraydi.
+     */
+    private void addBest(List<String> found, double[] group, int groupWords) {
+        if (group == null) return;
+        int best = best(group);
+        if (groupWords > 1 || group[best] >= PREFIX) {
+            found.add(ccys[best]);
+        }
+    }
+
+    /** Butun matn uchun eng mos valyuta yoki {@code null}. */
+    public String find(String text) {
+        List<String> found = resolve(text, 0, text.length());
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Bitta so'z uchun har bir valyutaning bahosi ({@code 0} — mos emas).
+     *
+     * @return hech narsa topilmasa {@code null}
+     */
+    private double[] score(String word) {
+        double[] scores = null;
+        int at = Arrays.binarySearch(words, word);
+        if (at >= 0) {
+            scores = add(scores, at, EXACT);
+        }
+        // qo'shimchali so'z: "dollarga", "rublni", "dollari"
+        for (int cut = 1; cut <= MAX_SUFFIX && word.length() - cut >= MIN_STEM; cut++) {
+            int stem = Arrays.binarySearch(words, word.substring(0, word.length() - cut));
+            if (stem >= 0) scores = add(scores, stem, STEM);
+        }
+        if (word.length() >= MIN_PREFIX) {
+            int from = at >= 0 ? at + 1 : -at - 1;
+            for (int w = from; w < words.length && words[w].startsWith(word); w++) {
+                scores = add(scores, w, PREFIX);
+            }
+        }
+        if (scores == null) {
+            scores = fuzzy(word);
+        }
+        return scores;
+    }
+
+    /**
+     * Uchliklar bo'yicha nomzodlar, keyin tahrir masofasi (6 harfgacha 1, uzunroqda 2). Birinchi harf mos
+     * kelishi shart: aks holda "olish" → "polish", "qancha" → "kanada" kabi oddiy so'zlar valyutaga aylanadi.
+     */
+    private double[] fuzzy(String word) {
+        if (word.length() < MIN_STEM) return null;
+        int maxDistance = word.length() <= 6 ? 1 : 2;
+        int[] codes = trigramCodes(word);
+        int[] shared = new int[words.length];
+        int[] candidates = new int[words.length];
+        int count = 0;
+        for (int t : codes) {
+            int[] posting = trigrams[t];
+            if (posting == null) continue;
+            for (int w : posting) {
+                if (shared[w]++ == 0) candidates[count++] = w;
+            }
+        }
+        int needed = Math.max(1, codes.length - 3 * maxDistance);
+        double[] scores = null;
+        int[] row = new int[word.length() + 1];
+        int[] previous = new int[word.length() + 1];
+        int[] beforePrevious = new int[word.length() + 1];
+        for (int k = 0; k < count; k++) {
+            int w = candidates[k];
+            if (shared[w] < needed || words[w].charAt(0) != word.charAt(0)
+                    || Math.abs(words[w].length() - word.length()) > maxDistance) continue;
+            int d = distance(word, words[w], maxDistance, row, previous, beforePrevious);
+            if (d <= maxDistance) {
+                scores = add(scores, w, d <= 1 ? FUZZY_1 : FUZZY_2);
+            }
+        }
+        return scores;
+    }
+
+    private double[] add(double[] scores, int word, double match) {
+        if (scores == null) scores = new double[ccys.length];
+        for (int owner : owners[word]) {
+            int c = owner >>> 1;
+            double s = match + ((owner & 1) != 0 ? ALIAS_BONUS : 0);
+            if (s > scores[c]) scores[c] = s;
+        }
+        return scores;
+    }
+
+    /** Guruhga yangi so'zni qo'shadi, agar umumiy valyuta bo'lsa. */
+    private static boolean intersect(double[] group, double[] scores) {
+        boolean any = false;
+        for (int c = 0; c < group.length; c++) {
+            if (group[c] > 0 && scores[c] > 0) {
+                any = true;
+                break;
+            }
+        }
+        if (!any) return false;
+        for (int c = 0; c < group.length; c++) {
+            group[c] = group[c] > 0 && scores[c] > 0 ? group[c] + scores[c] : 0;
+        }
+        return true;
+    }
+
+    private static int best(double[] scores) {
+        int best = 0;
+        for (int c = 1; c < scores.length; c++) {
+            if (scores[c] > scores[best]) best = c;
+        }
+        return best;
+    }
+
+    /**
+     * Ikki so'z orasidagi tahrir masofasi (qo'shni harflar almashuvi bilan), {@code max} dan oshsa — {@code max + 1}.
+     */
+    static int distance(String a, String b, int max, int[] row, int[] previous, int[] beforePrevious) {
+        int n = a.length();
+        for (int i = 0; i <= n; i++) previous[i] = i;
+        for (int j = 1; j <= b.length(); j++) {
+            row[0] = j;
+            int rowMin = j;
+            char bj = b.charAt(j - 1);
+            for (int i = 1; i <= n; i++) {
+                char ai = a.charAt(i - 1);
+                int v = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1), previous[i - 1] + (ai == bj ? 0 : 1));
+                if (i > 1 && j > 1 && ai == b.charAt(j - 2) && a.charAt(i - 2) == bj) {
+                    v = Math.min(v, beforePrevious[i - 2] + 1);
+                }
+                row[i] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (rowMin > max) return max + 1;
+            int[] t = beforePrevious;
+            beforePrevious = previous;
+            previous = row;
+            row = t;
+        }
+        return Math.min(previous[n], max + 1);
+    }
+
+    /** Chegara belgisi bilan to'ldirilgan so'zning uchliklari, har biri 15 bitlik kod. */
+    private static int[] trigramCodes(String word) {
+        int n = word.length();
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) {
+            int a = i == 0 ? PAD : word.charAt(i - 1) - 'a' + 1;
+            int b = word.charAt(i) - 'a' + 1;
+            int c = i + 1 < n ? word.charAt(i + 1) - 'a' + 1 : PAD;
+            out[i] = (a << 10) | (b << 5) | c;
+        }
+        return out;
+    }
+
+    private static void addWords(Map<String, Set<Integer>> index, String name, int owner) {
+        if (name == null) return;
+        int open = name.indexOf('(');
+        String text = open >= 0 ? name.substring(0, open) : name; // "SDR (maxsus qarz olish huquqi)"
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            while (i < n && !isWordChar(text.charAt(i))) i++;
+            int from = i;
+            while (i < n && isWordChar(text.charAt(i))) i++;
+            String word = normalize(text, from, i);
+            if (word.length() >= MIN_WORD && !STOP_WORDS.contains(word)) {
+                index.computeIfAbsent(word, k -> new HashSet<>()).add(owner);
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetter(c) || isApostrophe(c);
+    }
+
+    private static boolean isApostrophe(char c) {
+        return c == '\'' || c == '’' || c == '`' || c == 'ʻ' || c == 'ʼ' || c == '‘';
+    }
+
+    /**
+     * So'zni qidiruv kalitiga keltiradi: kichik lotin harflari, transliteratsiya va tovush birlashtirish bilan.
+     * Harf bo'lmagan belgilar tashlanadi.
+     */
+    static String normalize(CharSequence s, int start, int end) {
+        StringBuilder latin = new StringBuilder(end - start + 4);
+        for (int i = start; i < end; i++) {
+            char c = Character.toLowerCase(s.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                latin.append(c);
+            } else if (c >= 'а' && c <= 'я' || c == 'ё' || c >= 'ђ' && c <= 'ӿ') {
+                latin.append(cyrillic(c, latin.isEmpty()));
+            }
+        }
+        if (latin.length() > 3 && latin.charAt(0) == 'y' && latin.charAt(1) == 'e') {
+            latin.deleteCharAt(0); // yevro → evro
+        }
+        StringBuilder out = new StringBuilder(latin.length());
+        for (int i = 0; i < latin.length(); i++) {
+            char c = latin.charAt(i);
+            char next = i + 1 < latin.length() ? latin.charAt(i + 1) : 0;
+            if ((c == 'k' || c == 'z') && next == 'h') {
+                c = c == 'k' ? 'h' : 'j'; // kh → h, zh → j
+                i++;
+            } else if (c == 'p' && next == 'h') {
+                c = 'f';
+                i++;
+            } else if (c == 'x') {
+                c = 'h';
+            } else if (c == 'q' || c == 'c' && next != 'h') {
+                c = 'k';
+            } else if (c == 'w') {
+                c = 'v';
+            } else if (c == 'y') {
+                c = 'i';
+            }
+            if (out.isEmpty() || out.charAt(out.length() - 1) != c) {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String cyrillic(char c, boolean wordStart) {
+        return switch (c) {
+            case 'а' -> "a";
+            case 'б' -> "b";
+            case 'в' -> "v";
+            case 'г', 'ғ' -> "g";
+            case 'д' -> "d";
+            case 'е' -> wordStart ? "ye" : "e";
+            case 'ё' -> "yo";
+            case 'ж' -> "j";
+            case 'з' -> "z";
+            case 'и' -> "i";
+            case 'й', 'ы' -> "y";
+            case 'к', 'қ' -> "k";
+            case 'л' -> "l";
+            case 'м' -> "m";
+            case 'н' -> "n";
+            case 'о', 'ў' -> "o";
+            case 'п' -> "p";
+            case 'р' -> "r";
+            case 'с' -> "s";
+            case 'т' -> "t";
+            case 'у' -> "u";
+            case 'ф' -> "f";
+            case 'х', 'ҳ' -> "h";
+            case 'ц' -> "ts";
+            case 'ч' -> "ch";
+            case 'ш', 'щ' -> "sh";
+            case 'э' -> "e";
+            case 'ю' -> "yu";
+            case 'я' -> "ya";
+            default -> ""; // ъ, ь va boshqalar
+        };
+    }
+
+    private static Set<String> normalizedSet(String... words) {
+        Set<String> out = new HashSet<>();
+        for (String w : words) {
+            out.add(normalize(w, 0, w.length()));
+        }
+        return Set.copyOf(out);
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.currency;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -38,6 +39,53 @@ public class CurrencyRate {
     @JsonProperty("Date")
     private String date; // format: dd.MM.yyyy
 
+    // Deserializatsiya paytida bir marta hisoblanadigan qiymatlar (FixedPoint.RATE_SCALE)
+    private int nominalValue = 1;
+    private long rateScaled = FixedPoint.NONE;
+    private long diffScaled = FixedPoint.NONE;
+    private long perUnitScaled = FixedPoint.NONE;
+
+    @JsonProperty("Nominal")
+    private void setNominal(String nominal) {
+        this.nominal = nominal;
+        this.nominalValue = parseNominal(nominal);
+        updatePerUnit();
+    }
+
+    @JsonProperty("Rate")
+    private void setRate(String rate) {
+        this.rate = rate;
+        this.rateScaled = FixedPoint.parse(rate, FixedPoint.RATE_SCALE);
+        updatePerUnit();
+    }
+
+    @JsonProperty("Diff")
+    private void setDiff(String diff) {
+        this.diff = diff;
+        this.diffScaled = FixedPoint.parse(diff, FixedPoint.RATE_SCALE);
+    }
+
+    /**
+     * Maydonlarni JSON dagi satr ko'rinishidan tiklaydi ({@link SharedSnapshot} uchun); hisoblangan qiymatlar
+     * deserializatsiyadagi kabi to'ldiriladi.
+     */
+    static CurrencyRate of(Integer id, String code, String ccy, String nameRu, String nameUz, String nameUzc,
+                           String nameEn, String nominal, String rate, String diff, String date) {
+        CurrencyRate r = new CurrencyRate();
+        r.id = id;
+        r.code = code;
+        r.ccy = ccy;
+        r.nameRu = nameRu;
+        r.nameUz = nameUz;
+        r.nameUzc = nameUzc;
+        r.nameEn = nameEn;
+        r.setNominal(nominal);
+        r.setRate(rate);
+        r.setDiff(diff);
+        r.date = date;
+        return r;
+    }
+
     // Getters
     public Integer getId() { return id; }
     public String getCode() { return code; }
@@ -51,16 +99,55 @@ public class CurrencyRate {
     public String getDiff() { return diff; }
     public String getDate() { return date; }
 
-    // Convenience numeric accessors with safe parsing
+    // Fixed-point accessors (FixedPoint.RATE_SCALE); FixedPoint.NONE if the API value was missing or invalid
+    @JsonIgnore
+    public long getRateScaled() { return rateScaled; }
+    @JsonIgnore
+    public long getDiffScaled() { return diffScaled; }
+    /** 1 birlik valyutaning so'mdagi narxi, ya'ni Rate / Nominal. */
+    @JsonIgnore
+    public long getPerUnitScaled() { return perUnitScaled; }
+
+    /** Foydalanuvchiga ko'rsatiladigan nom: o'zbekcha (lotin, so'ng kirill), inglizcha, bo'lmasa CCY. */
+    @JsonIgnore
+    public String getDisplayName() {
+        return nameUz != null && !nameUz.isBlank() ? nameUz
+                : (nameUzc != null && !nameUzc.isBlank() ? nameUzc
+                : (nameEn != null && !nameEn.isBlank() ? nameEn : ccy));
+    }
+
+    // Convenience numeric accessors, backed by the values parsed at deserialization time
+    @JsonIgnore
     public double getRateAsDouble() {
-        try { return Double.parseDouble(rate.replace(',', '.')); } catch (Exception e) { return Double.NaN; }
+        return FixedPoint.toDouble(rateScaled, FixedPoint.RATE_SCALE);
     }
 
+    @JsonIgnore
     public double getDiffAsDouble() {
-        try { return Double.parseDouble(diff.replace(',', '.')); } catch (Exception e) { return Double.NaN; }
+        return FixedPoint.toDouble(diffScaled, FixedPoint.RATE_SCALE);
     }
 
+    @JsonIgnore
     public int getNominalAsInt() {
-        try { return Integer.parseInt(nominal); } catch (Exception e) { return 1; }
+        return nominalValue;
+    }
+
+    private void updatePerUnit() {
+        perUnitScaled = (nominalValue == 0 || rateScaled == FixedPoint.NONE)
+                ? FixedPoint.NONE
+                : FixedPoint.divRound(rateScaled, nominalValue);
+    }
+
+    private static int parseNominal(String s) {
+        if (s == null) return 1;
+        String t = s.trim();
+        if (t.isEmpty() || t.length() > 9) return 1;
+        int v = 0;
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (c < '0' || c > '9') return 1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
     }
 }
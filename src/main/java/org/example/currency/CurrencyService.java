@@ -1,28 +1,81 @@
 package org.example.currency;
 
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
+/**
+ * Bot javoblarini tayyorlaydi.
+ * <p>
+ * Kurs kartalari va /list matni snapshot versiyasi bo'yicha bir marta formatlanadi va keyingi
+ * so'rovlarda tayyor holda qaytariladi; yangi snapshot kelganda kesh o'z-o'zidan almashadi.
+ */
 public class CurrencyService {
     private static final Logger LOGGER = Logger.getLogger(CurrencyService.class.getName());
 
-    private final CbuClient client;
+    private static final ZoneId TASHKENT = ZoneId.of("Asia/Tashkent");
+    private static final DateTimeFormatter STALE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm").withZone(TASHKENT);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    /** Dam olish kunlari uchun: sanada kurs bo'lmasa, shuncha kun orqaga qaraladi. */
+    private static final int HISTORY_LOOKBACK_DAYS = 7;
+    /** Davr shundan qisqa bo'lsa, har bir kun alohida qatorda ko'rsatiladi. */
+    private static final int HISTORY_LIST_DAYS = 31;
+
+    private final RatesCache cache;
+    private final RateHistory history;
+    private final AtomicReference<Rendered> rendered = new AtomicReference<>();
+
+    /** Bitta snapshot uchun tayyor xabarlar. */
+    private static final class Rendered {
+        final long version;
+        final ConcurrentHashMap<CurrencyRate, String> rateCards = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<List<String>, String> digests = new ConcurrentHashMap<>();
+        volatile String list;
+
+        Rendered(long version) {
+            this.version = version;
+        }
+    }
 
     public CurrencyService() {
-        this.client = new CbuClient();
+        this(new CbuClient());
     }
 
-    public CurrencyService(CbuClient client) {
-        this.client = client;
+    public CurrencyService(RatesSource source) {
+        this(new RatesCache(source));
+    }
+
+    public CurrencyService(RatesCache cache) {
+        this(cache, null);
+    }
+
+    /**
+     * @param history kurslar tarixi; {@code null} bo'lsa, tarix so'rovlari o'chirilgan
+     */
+    public CurrencyService(RatesCache cache, RateHistory history) {
+        this.cache = cache;
+        this.history = history;
+    }
+
+    /**
+     * Joriy snapshot (kesh sovuq bo'lsagina tarmoqqa boradi).
+     */
+    public RatesSnapshot currentSnapshot() throws IOException, InterruptedException {
+        return cache.getSnapshot();
+    }
+
+    /** Javoblar CBU ishlamay turgan paytdagi eski snapshotdan berilyaptimi. */
+    public boolean isStale() {
+        return cache.isStale();
     }
 
     /**
@@ -30,13 +83,12 @@ public class CurrencyService {
      */
     public String getUsdToUzsMessage() {
         try {
-            List<CurrencyRate> rates = client.fetchRates();
-            Optional<CurrencyRate> usdOpt = findByCodeOrCcy(rates, "USD");
-            if (usdOpt.isEmpty()) {
+            RatesSnapshot snapshot = cache.getSnapshot();
+            CurrencyRate usd = snapshot.find("USD");
+            if (usd == null) {
                 return "USD (840) kursi CBU ma'lumotlarida topilmadi.";
             }
-            CurrencyRate usd = usdOpt.get();
-            return formatRateMessage(usd);
+            return withStaleNote(rateCard(snapshot, usd));
         } catch (IOException e) {
             return "⚠️ Xizmat vaqtincha mavjud emas: CBU bilan ulanishda muammo.";
         } catch (InterruptedException e) {
@@ -53,12 +105,12 @@ public class CurrencyService {
     public String getRateMessage(String ccyOrCode) {
         String key = (ccyOrCode == null || ccyOrCode.isBlank()) ? "USD" : ccyOrCode.trim();
         try {
-            List<CurrencyRate> rates = client.fetchRates();
-            Optional<CurrencyRate> opt = findByCodeOrCcy(rates, key);
-            if (opt.isEmpty()) {
+            RatesSnapshot snapshot = cache.getSnapshot();
+            CurrencyRate r = snapshot.find(key);
+            if (r == null) {
                 return "⚠️ '" + key + "' topilmadi. /list orqali mavjud kodlarni ko'ring.";
             }
-            return formatRateMessage(opt.get());
+            return withStaleNote(rateCard(snapshot, r));
         } catch (IOException e) {
             return "⚠️ Xizmat vaqtincha mavjud emas: CBU bilan ulanishda muammo.";
         } catch (InterruptedException e) {
@@ -69,19 +121,90 @@ public class CurrencyService {
         }
     }
 
+    /**
+     * {@code snapshot} dagi {@code r} uchun kurs xabari. Keshni qayta o'qimaydi: shu snapshot versiyasi bo'yicha
+     * qurilayotgan javobga yangiroq snapshotdan matn aralashmaydi.
+     */
+    public String getRateMessage(RatesSnapshot snapshot, CurrencyRate r) {
+        return withStaleNote(rateCard(snapshot, r));
+    }
+
     /**
      * Miqdorni UZSga hisoblash xabari. Ccy bo'sh bo'lsa USD olinadi.
      */
     public String getConversionMessage(String ccyOrCode, double amount) {
+        long scaled = FixedPoint.fromDouble(amount, FixedPoint.AMOUNT_SCALE);
+        return scaled == FixedPoint.NONE ? AMOUNT_OUT_OF_RANGE : getConversionMessageScaled(ccyOrCode, scaled);
+    }
+
+    private static final String AMOUNT_OUT_OF_RANGE = "⚠️ Miqdor juda katta yoki noto'g'ri.";
+
+    /**
+     * {@link #getConversionMessage(String, double)} ning fixed-point varianti:
+     * {@code amount} {@link FixedPoint#AMOUNT_SCALE} masshtabida.
+     */
+    public String getConversionMessageScaled(String ccyOrCode, long amount) {
         String key = (ccyOrCode == null || ccyOrCode.isBlank()) ? "USD" : ccyOrCode.trim();
         try {
-            List<CurrencyRate> rates = client.fetchRates();
-            Optional<CurrencyRate> opt = findByCodeOrCcy(rates, key);
-            if (opt.isEmpty()) {
+            RatesSnapshot snapshot = cache.getSnapshot();
+            CurrencyRate r = snapshot.find(key);
+            if (r == null) {
                 return "⚠️ '" + key + "' topilmadi. /list orqali mavjud kodlarni ko'ring.";
             }
-            CurrencyRate r = opt.get();
-            return formatConversionMessage(r, amount);
+            return withStaleNote(formatConversionMessage(snapshot.crossRates(), r, amount));
+        } catch (IOException e) {
+            return "⚠️ Xizmat vaqtincha mavjud emas: CBU bilan ulanishda muammo.";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "⚠️ So'rov bekor qilindi. Qayta urinib ko'ring.";
+        } catch (Exception e) {
+            return "⚠️ Kutilmagan xatolik yuz berdi. Keyinroq qayta urinib ko'ring.";
+        }
+    }
+
+    /**
+     * Ikki xorijiy valyuta orasida hisoblash ({@code 100 EUR RUB}). {@code amount} berilmasa
+     * ({@link FixedPoint#NONE}), 1 birlik olinadi.
+     */
+    public String getCrossConversionMessage(String fromCcy, String toCcy, long amount) {
+        try {
+            RatesSnapshot snapshot = cache.getSnapshot();
+            CurrencyRate fromRate = snapshot.find(fromCcy);
+            if (fromRate == null) {
+                return "⚠️ '" + fromCcy + "' topilmadi. /list orqali mavjud kodlarni ko'ring.";
+            }
+            CurrencyRate toRate = snapshot.find(toCcy);
+            if (toRate == null) {
+                return "⚠️ '" + toCcy + "' topilmadi. /list orqali mavjud kodlarni ko'ring.";
+            }
+            CrossRates cross = snapshot.crossRates();
+            int from = cross.indexOf(fromRate.getCcy());
+            int to = cross.indexOf(toRate.getCcy());
+            if (from == CrossRates.NONE || to == CrossRates.NONE) {
+                return "⚠️ " + fromCcy + "/" + toCcy + " uchun kurs mavjud emas.";
+            }
+            long value = amount == FixedPoint.NONE ? FixedPoint.AMOUNT_ONE : amount;
+            String a = cross.ccy(from);
+            String b = cross.ccy(to);
+
+            StringBuilder sb = new StringBuilder(192);
+            sb.append("<b>Hisob-kitob:</b>\n");
+            AmountFormat.appendTo(sb, value, FixedPoint.AMOUNT_SCALE).append(' ').append(a)
+                    .append(" (\"").append(preferredName(fromRate)).append("\") = <b>");
+            AmountFormat.appendTo(sb, cross.convert(value, from, to), FixedPoint.AMOUNT_SCALE).append(' ').append(b)
+                    .append("</b> (\"").append(preferredName(toRate)).append("\")\n");
+            // Kursni kattaroq yo'nalishda ko'rsatamiz: "1 RUB = 0,01 EUR" dan ko'ra "1 EUR = 88,06 RUB"
+            boolean forward = cross.perUnit(from) >= cross.perUnit(to);
+            int big = forward ? from : to;
+            int small = forward ? to : from;
+            sb.append("1 ").append(cross.ccy(big)).append(" = ");
+            AmountFormat.appendTo(sb, cross.convert(FixedPoint.AMOUNT_ONE, big, small), FixedPoint.AMOUNT_SCALE)
+                    .append(' ').append(cross.ccy(small)).append('\n');
+            String date = fromRate.getDate();
+            if (date != null && !date.isBlank()) {
+                sb.append("Sana: ").append(date);
+            }
+            return withStaleNote(sb.toString());
         } catch (IOException e) {
             return "⚠️ Xizmat vaqtincha mavjud emas: CBU bilan ulanishda muammo.";
         } catch (InterruptedException e) {
@@ -97,55 +220,14 @@ public class CurrencyService {
      */
     public String listCurrenciesMessage() {
         try {
-            List<CurrencyRate> rates = client.fetchRates();
-            // Unique by Ccy (alphabetic), keep the first occurrence by latest id
-            Map<String, CurrencyRate> byCcy = rates.stream()
-                    .filter(r -> r.getCcy() != null && !r.getCcy().isBlank())
-                    .collect(Collectors.toMap(
-                            r -> r.getCcy().toUpperCase(Locale.ROOT),
-                            r -> r,
-                            (a, b) -> {
-                                Integer ai = a.getId();
-                                Integer bi = b.getId();
-                                if (ai == null) return b;
-                                if (bi == null) return a;
-                                return bi >= ai ? b : a; // keep latest id
-                            },
-                            LinkedHashMap::new
-                    ));
-
-            List<String> lines = byCcy.values().stream()
-                    .sorted(Comparator.comparing(CurrencyRate::getCcy))
-                    .map(r -> {
-                        String name = preferredName(r);
-                        String code = r.getCode();
-                        int nominal = r.getNominalAsInt();
-                        double rate = r.getRateAsDouble();
-                        double perUnit = (nominal == 0) ? Double.NaN : rate / nominal;
-
-                        DecimalFormat df = (DecimalFormat) DecimalFormat.getInstance(new Locale("uz", "UZ"));
-                        df.applyPattern("#,##0.00");
-
-                        String rateStr = Double.isNaN(perUnit)
-                                ? (r.getRate() != null ? r.getRate() : "")
-                                : df.format(perUnit) + " so'm";
-
-                        String suffix;
-                        if (code != null && !code.isBlank()) {
-                            suffix = rateStr.isBlank() ? " (" + code + ")" : " (" + code + ", " + rateStr + ")";
-                        } else {
-                            suffix = rateStr.isBlank() ? "" : " (" + rateStr + ")";
-                        }
-
-                        return "• <b>" + r.getCcy() + "</b> — " + name + suffix;
-                    })
-                    .collect(Collectors.toList());
-
-            StringBuilder sb = new StringBuilder();
-            sb.append("<b>Mavjud valyutalar ro'yxati:</b>\n");
-            for (String line : lines) sb.append(line).append('\n');
-            sb.append("\nMasalan, batafsil ma'lumot uchun <code>USD</code> yoki <code>RUB</code> deb yozing.\nNamuna uchun: <b>/namuna</b> ni ko'ring.");
-            return sb.toString();
+            RatesSnapshot snapshot = cache.getSnapshot();
+            Rendered r = rendered(snapshot);
+            String list = r.list;
+            if (list == null) {
+                list = formatListMessage(snapshot);
+                r.list = list;
+            }
+            return withStaleNote(list);
         } catch (IOException e) {
             return "⚠️ Xizmat vaqtincha mavjud emas: CBU bilan ulanishda muammo.";
         } catch (InterruptedException e) {
@@ -156,38 +238,246 @@ public class CurrencyService {
         }
     }
 
+    /**
+     * {@code date} kuni amal qilgan kurs; {@code amount} berilsa, o'sha kursdagi hisob-kitob ham
+     * ({@code fromUzs} bo'lsa, so'mdan valyutaga). Ccy bo'sh bo'lsa USD olinadi.
+     */
+    public String getHistoryMessage(String ccyOrCode, LocalDate date, long amount, boolean fromUzs) {
+        if (history == null) {
+            return "⚠️ Kurslar tarixi yoqilmagan.";
+        }
+        String ccy = historyKey(ccyOrCode);
+        if (date.isAfter(LocalDate.now(TASHKENT).plusDays(1))) {
+            return "⚠️ Kelajakdagi sana uchun kurs yo'q.";
+        }
+        if (date.isBefore(history.firstDay())) {
+            return "⚠️ Kurslar tarixi " + DAY_FORMAT.format(history.firstDay()) + " dan boshlanadi.";
+        }
+        RateHistory.Point p = history.latestOnOrBefore(ccy, date, HISTORY_LOOKBACK_DAYS);
+        if (p == null) {
+            return "⚠️ " + ccy + " uchun " + DAY_FORMAT.format(date) + " sanasidagi kurs tarixda topilmadi.";
+        }
+        StringBuilder sb = new StringBuilder(160);
+        sb.append("<b>").append(ccy).append(" kursi, ").append(DAY_FORMAT.format(date)).append(":</b>\n");
+        sb.append("1 ").append(ccy).append(" = <b>");
+        AmountFormat.appendTo(sb, p.rate(), FixedPoint.RATE_SCALE).append(" so'm</b>");
+        if (!p.day().equals(date)) {
+            sb.append("\n(").append(DAY_FORMAT.format(p.day())).append(" dagi so'nggi ma'lum kurs)");
+        }
+        if (amount != FixedPoint.NONE) {
+            sb.append('\n');
+            if (fromUzs) {
+                AmountFormat.appendTo(sb, amount, FixedPoint.AMOUNT_SCALE).append(" so'm = <b>");
+                AmountFormat.appendTo(sb, FixedPoint.mulDiv(amount, FixedPoint.RATE_ONE, p.rate()), FixedPoint.AMOUNT_SCALE)
+                        .append(' ').append(ccy).append("</b>");
+            } else {
+                AmountFormat.appendTo(sb, amount, FixedPoint.AMOUNT_SCALE).append(' ').append(ccy).append(" = <b>");
+                AmountFormat.appendTo(sb, FixedPoint.mulDiv(amount, p.rate(), FixedPoint.RATE_ONE), FixedPoint.AMOUNT_SCALE)
+                        .append(" so'm</b>");
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Kurslar tarixi yoqilganmi. */
+    public boolean hasHistory() {
+        return history != null;
+    }
+
+    /**
+     * {@code ccy} ning {@code [from, to]} oralig'idagi kunlik kurslari (ma'lumot yo'q kunlar
+     * {@link FixedPoint#NONE}); tarix o'chirilgan bo'lsa, {@code null}.
+     */
+    public long[] historyRange(String ccy, LocalDate from, LocalDate to) {
+        return history == null ? null : history.range(ccy, from, to);
+    }
+
+    /** {@link RateHistory#version()}; tarix o'chirilgan bo'lsa, 0. */
+    public long historyVersion() {
+        return history == null ? 0 : history.version();
+    }
+
+    /**
+     * Oxirgi {@code days} kunlik kurs: qisqa davrda har bir kun, har doim eng past/yuqori qiymat va o'zgarish.
+     */
+    public String getHistoryRangeMessage(String ccyOrCode, int days) {
+        if (history == null) {
+            return "⚠️ Kurslar tarixi yoqilmagan.";
+        }
+        String ccy = historyKey(ccyOrCode);
+        LocalDate to = LocalDate.now(TASHKENT);
+        LocalDate from = to.minusDays(Math.max(1, days) - 1L);
+        long[] rates = history.range(ccy, from, to);
+
+        int first = -1, last = -1, min = -1, max = -1;
+        for (int i = 0; i < rates.length; i++) {
+            long v = rates[i];
+            if (v == FixedPoint.NONE) continue;
+            if (first < 0) first = i;
+            last = i;
+            if (min < 0 || v < rates[min]) min = i;
+            if (max < 0 || v > rates[max]) max = i;
+        }
+        if (first < 0) {
+            return "⚠️ " + ccy + " uchun bu davrda tarix ma'lumotlari yo'q (tarix hali to'ldirilayotgan bo'lishi mumkin).";
+        }
+
+        StringBuilder sb = new StringBuilder(64 + 32 * Math.min(rates.length, HISTORY_LIST_DAYS));
+        sb.append("<b>").append(ccy).append(", oxirgi ").append(rates.length).append(" kun</b> (")
+                .append(DAY_FORMAT.format(from)).append(" — ").append(DAY_FORMAT.format(to)).append(")\n");
+        if (rates.length <= HISTORY_LIST_DAYS) {
+            for (int i = 0; i < rates.length; i++) {
+                if (rates[i] == FixedPoint.NONE) continue;
+                sb.append(DAY_FORMAT.format(from.plusDays(i))).append(": ");
+                AmountFormat.appendTo(sb, rates[i], FixedPoint.RATE_SCALE).append('\n');
+            }
+            sb.append('\n');
+        }
+        sb.append("Eng past: ");
+        AmountFormat.appendTo(sb, rates[min], FixedPoint.RATE_SCALE)
+                .append(" so'm (").append(DAY_FORMAT.format(from.plusDays(min))).append(")\n");
+        sb.append("Eng yuqori: ");
+        AmountFormat.appendTo(sb, rates[max], FixedPoint.RATE_SCALE)
+                .append(" so'm (").append(DAY_FORMAT.format(from.plusDays(max))).append(")\n");
+        long change = rates[last] - rates[first];
+        sb.append("O'zgarish: ").append(change > 0 ? "🔺 +" : (change < 0 ? "🔻 -" : "➖ "));
+        AmountFormat.appendTo(sb, Math.abs(change), FixedPoint.RATE_SCALE).append(" so'm (");
+        // foizda, 2 xona aniqlik bilan
+        AmountFormat.appendTo(sb, FixedPoint.mulDiv(Math.abs(change), 100 * FixedPoint.AMOUNT_ONE, rates[first]),
+                FixedPoint.AMOUNT_SCALE).append("%)");
+        return sb.toString();
+    }
+
     // ===== Helpers & formatters =====
 
-    private Optional<CurrencyRate> findByCodeOrCcy(List<CurrencyRate> rates, String key) {
-        String k = key.trim();
-        boolean isAlpha = k.matches("^[A-Za-z]{3}$");
-        boolean isNumeric = k.matches("^\\d{3}$");
+    /**
+     * CBU ishlamay turgan paytda eski snapshotdan berilgan javobga ogohlantirish qo'shadi.
+     */
+    private String withStaleNote(String message) {
+        if (!cache.isStale()) {
+            return message;
+        }
+        Instant updated = cache.lastUpdated();
+        String when = updated == null ? "" : " (" + STALE_TIME_FORMAT.format(updated) + " holatiga ko'ra)";
+        return message + "\n\n⚠️ CBU hozircha javob bermayapti, oxirgi ma'lum kurs ko'rsatildi" + when + ".";
+    }
 
-        return rates.stream()
-                .filter(r -> (isAlpha && k.equalsIgnoreCase(r.getCcy())) || (isNumeric && k.equals(r.getCode())))
-                .max(Comparator.comparing(CurrencyRate::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+    /**
+     * Tarix CCY bo'yicha saqlanadi: uch raqamli kod berilsa, joriy snapshotdan CCY topiladi.
+     */
+    private String historyKey(String ccyOrCode) {
+        String key = (ccyOrCode == null || ccyOrCode.isBlank()) ? "USD" : ccyOrCode.trim().toUpperCase(Locale.ROOT);
+        if (!key.isEmpty() && Character.isDigit(key.charAt(0))) {
+            try {
+                CurrencyRate r = cache.getSnapshot().find(key);
+                if (r != null && r.getCcy() != null) {
+                    return r.getCcy().trim().toUpperCase(Locale.ROOT);
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Kodni CCY ga aylantirib bo'lmadi: " + key, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return key;
     }
 
     private String preferredName(CurrencyRate r) {
-        return r.getNameUz() != null && !r.getNameUz().isBlank() ? r.getNameUz()
-                : (r.getNameUzc() != null && !r.getNameUzc().isBlank() ? r.getNameUzc()
-                : (r.getNameEn() != null && !r.getNameEn().isBlank() ? r.getNameEn() : r.getCcy()));
+        return r.getDisplayName();
+    }
+
+    /**
+     * Kunlik dayjest: {@code ccys} dagi valyutalar kursi va o'zgarishi. Har bir snapshot va valyutalar to'plami
+     * uchun bir marta tuziladi — minglab obunachilarga bitta satr yuboriladi.
+     */
+    public String getDigestMessage(RatesSnapshot snapshot, List<String> ccys) {
+        return rendered(snapshot).digests.computeIfAbsent(ccys, c -> formatDigestMessage(snapshot, c));
+    }
+
+    /**
+     * Snapshot qaysi kun uchun (CBU sanasi, USD bo'yicha); dayjest shu kalit bilan bir marta yuboriladi.
+     *
+     * @return sana bo'lmasa, {@code null}
+     */
+    public static String digestDate(RatesSnapshot snapshot) {
+        CurrencyRate r = snapshot.find("USD");
+        if (r == null && !snapshot.isEmpty()) {
+            r = snapshot.rates().get(0);
+        }
+        String date = r == null ? null : r.getDate();
+        return date == null || date.isBlank() ? null : date.trim();
+    }
+
+    /**
+     * Joriy snapshot uchun tayyor xabarlar; versiya o'zgargan bo'lsa, eski kesh tashlanadi.
+     */
+    private Rendered rendered(RatesSnapshot snapshot) {
+        Rendered current = rendered.get();
+        while (current == null || current.version < snapshot.version()) {
+            Rendered fresh = new Rendered(snapshot.version());
+            if (rendered.compareAndSet(current, fresh)) {
+                return fresh;
+            }
+            current = rendered.get();
+        }
+        // Eskiroq snapshot bilan ishlayotgan so'rov yangi keshni buzmasligi kerak
+        return current.version == snapshot.version() ? current : new Rendered(snapshot.version());
+    }
+
+    private String rateCard(RatesSnapshot snapshot, CurrencyRate r) {
+        return rendered(snapshot).rateCards.computeIfAbsent(r, this::formatRateMessage);
+    }
+
+    private static String formatRate(long scaled) {
+        return AmountFormat.rate(scaled);
+    }
+
+    private static String formatAmount(long scaled) {
+        return AmountFormat.amount(scaled);
+    }
+
+    private String formatListMessage(RatesSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder(64 * snapshot.sortedUnique().size() + 256);
+        sb.append("<b>Mavjud valyutalar ro'yxati:</b>\n");
+        for (CurrencyRate r : snapshot.sortedUnique()) {
+            String code = r.getCode();
+            boolean hasCode = code != null && !code.isBlank();
+            long perUnit = r.getPerUnitScaled();
+            String raw = r.getRate();
+            boolean hasRate = perUnit != FixedPoint.NONE || (raw != null && !raw.isBlank());
+
+            sb.append("• <b>").append(r.getCcy()).append("</b> — ").append(preferredName(r));
+            if (hasCode || hasRate) {
+                sb.append(" (");
+                if (hasCode) {
+                    sb.append(code);
+                    if (hasRate) sb.append(", ");
+                }
+                if (perUnit != FixedPoint.NONE) {
+                    AmountFormat.appendTo(sb, perUnit, FixedPoint.RATE_SCALE).append(" so'm");
+                } else if (hasRate) {
+                    sb.append(raw);
+                }
+                sb.append(')');
+            }
+            sb.append('\n');
+        }
+        sb.append("\nMasalan, batafsil ma'lumot uchun <code>USD</code> yoki <code>RUB</code> deb yozing.\nNamuna uchun: <b>/namuna</b> ni ko'ring.");
+        return sb.toString();
     }
 
     private String formatRateMessage(CurrencyRate r) {
         String name = preferredName(r);
         int nominal = r.getNominalAsInt();
-        double rate = r.getRateAsDouble();
-        double diff = r.getDiffAsDouble();
+        long rate = r.getRateScaled();
+        long diff = r.getDiffScaled();
         String date = r.getDate();
 
-        DecimalFormat df = (DecimalFormat) DecimalFormat.getInstance(new Locale("uz", "UZ"));
-        df.applyPattern("#,##0.00");
-
-        String rateStr = Double.isNaN(rate) ? r.getRate() : df.format(rate);
-        String diffStr = Double.isNaN(diff) ? r.getDiff() : df.format(Math.abs(diff));
-        String arrow = Double.isNaN(diff) ? "" : (diff > 0 ? "🔺" : (diff < 0 ? "🔻" : "➖"));
-        String sign = Double.isNaN(diff) ? "" : (diff > 0 ? "+" : (diff < 0 ? "-" : ""));
+        boolean hasDiff = diff != FixedPoint.NONE;
+        String rateStr = rate == FixedPoint.NONE ? r.getRate() : formatRate(rate);
+        String diffStr = hasDiff ? formatRate(Math.abs(diff)) : r.getDiff();
+        String arrow = diffArrow(diff);
+        String sign = diffSign(diff);
 
         StringBuilder sb = new StringBuilder();
         sb.append("<b>Valyuta kursi:</b>\n");
@@ -202,21 +492,53 @@ public class CurrencyService {
         return sb.toString();
     }
 
-    private String formatConversionMessage(CurrencyRate r, double amount) {
-        String name = preferredName(r);
-        int nominal = r.getNominalAsInt();
-        double rate = r.getRateAsDouble();
-        String date = r.getDate();
+    private static String diffArrow(long diff) {
+        return diff == FixedPoint.NONE ? "" : (diff > 0 ? "🔺" : (diff < 0 ? "🔻" : "➖"));
+    }
 
-        // 1 CCY uchun kurs
-        double perUnit = (nominal == 0) ? Double.NaN : rate / nominal;
+    private static String diffSign(long diff) {
+        return diff == FixedPoint.NONE ? "" : (diff > 0 ? "+" : (diff < 0 ? "-" : ""));
+    }
 
-        DecimalFormat df = (DecimalFormat) DecimalFormat.getInstance(new Locale("uz", "UZ"));
-        df.applyPattern("#,##0.00");
+    private String formatDigestMessage(RatesSnapshot snapshot, List<String> ccys) {
+        StringBuilder sb = new StringBuilder(64 * ccys.size() + 128);
+        String date = digestDate(snapshot);
+        sb.append("📊 <b>Kunlik kurslar</b>");
+        if (date != null) {
+            sb.append(" — ").append(date);
+        }
+        sb.append('\n');
+        for (String ccy : ccys) {
+            CurrencyRate r = snapshot.find(ccy);
+            long rate = r == null ? FixedPoint.NONE : r.getRateScaled();
+            if (rate == FixedPoint.NONE) {
+                continue;
+            }
+            int nominal = r.getNominalAsInt();
+            long diff = r.getDiffScaled();
+            sb.append(nominal == 1 ? "" : nominal + " ").append("<b>").append(r.getCcy()).append("</b>: ")
+                    .append(formatRate(rate)).append(" so'm");
+            if (diff != FixedPoint.NONE) {
+                sb.append(' ').append(diffArrow(diff)).append(' ').append(diffSign(diff)).append(formatRate(Math.abs(diff)));
+            }
+            sb.append('\n');
+        }
+        sb.append("\nObunani o'zgartirish: <code>/digest USD EUR</code>, bekor qilish: /digest off");
+        return sb.toString();
+    }
+
+    private String formatConversionMessage(CrossRates cross, CurrencyRate r, long amount) {
+        String name = preferredName(r);
+        long perUnit = r.getPerUnitScaled(); // 1 CCY uchun kurs
+        String date = r.getDate();
 
-        String amountStr = df.format(amount);
-        String perUnitStr = Double.isNaN(perUnit) ? r.getRate() : df.format(perUnit);
-        String convertedStr = Double.isNaN(perUnit) ? "N/A" : df.format(amount * perUnit);
+        String amountStr = formatAmount(amount);
+        String perUnitStr = perUnit == FixedPoint.NONE ? r.getRate() : formatRate(perUnit);
+        // amount * Rate / Nominal, so'mda (AMOUNT_SCALE)
+        int from = cross.indexOf(r.getCcy());
+        String convertedStr = (from == CrossRates.NONE || amount == FixedPoint.NONE)
+                ? "N/A"
+                : formatAmount(cross.convert(amount, from, 0));
 
         StringBuilder sb = new StringBuilder();
         sb.append("<b>Hisob-kitob:</b>\n");
@@ -234,27 +556,34 @@ public class CurrencyService {
      * UZS -> CCY hisoblash xabari. Ccy bo'sh bo'lsa USD olinadi.
      */
     public String getReverseConversionMessage(String ccyOrCode, double amountUzs) {
+        long scaled = FixedPoint.fromDouble(amountUzs, FixedPoint.AMOUNT_SCALE);
+        return scaled == FixedPoint.NONE ? AMOUNT_OUT_OF_RANGE : getReverseConversionMessageScaled(ccyOrCode, scaled);
+    }
+
+    /**
+     * {@link #getReverseConversionMessage(String, double)} ning fixed-point varianti:
+     * {@code amountUzs} {@link FixedPoint#AMOUNT_SCALE} masshtabida.
+     */
+    public String getReverseConversionMessageScaled(String ccyOrCode, long uzs) {
         String key = (ccyOrCode == null || ccyOrCode.isBlank()) ? "USD" : ccyOrCode.trim();
         try {
-            List<CurrencyRate> rates = client.fetchRates();
-            Optional<CurrencyRate> opt = findByCodeOrCcy(rates, key);
-            if (opt.isEmpty()) {
+            RatesSnapshot snapshot = cache.getSnapshot();
+            CurrencyRate r = snapshot.find(key);
+            if (r == null) {
                 return "⚠️ '" + key + "' topilmadi. /list orqali mavjud kodlarni ko'ring.";
             }
-            CurrencyRate r = opt.get();
             String name = preferredName(r);
-            int nominal = r.getNominalAsInt();
-            double rate = r.getRateAsDouble();
+            long perUnit = r.getPerUnitScaled(); // 1 CCY = perUnit so'm
             String date = r.getDate();
 
-            double perUnit = (nominal == 0) ? Double.NaN : rate / nominal; // 1 CCY = perUnit so'm
-
-            DecimalFormat df = (DecimalFormat) DecimalFormat.getInstance(new Locale("uz", "UZ"));
-            df.applyPattern("#,##0.00");
-
-            String amountUzsStr = df.format(amountUzs);
-            String perUnitStr = Double.isNaN(perUnit) ? r.getRate() : df.format(perUnit);
-            String foreignAmountStr = Double.isNaN(perUnit) ? "N/A" : df.format(amountUzs / perUnit);
+            String amountUzsStr = formatAmount(uzs);
+            String perUnitStr = perUnit == FixedPoint.NONE ? r.getRate() : formatRate(perUnit);
+            // uzs * Nominal / Rate, valyutada (AMOUNT_SCALE)
+            CrossRates cross = snapshot.crossRates();
+            int to = cross.indexOf(r.getCcy());
+            String foreignAmountStr = (to == CrossRates.NONE || uzs == FixedPoint.NONE)
+                    ? "N/A"
+                    : formatAmount(cross.convert(uzs, 0, to));
 
             StringBuilder sb = new StringBuilder();
             sb.append("<b>Hisob-kitob:</b>\n");
@@ -265,7 +594,7 @@ public class CurrencyService {
             if (date != null && !date.isBlank()) {
                 sb.append("Sana: ").append(date);
             }
-            return sb.toString();
+            return withStaleNote(sb.toString());
         } catch (IOException e) {
             return "⚠️ Xizmat vaqtincha mavjud emas: CBU bilan ulanishda muammo.";
         } catch (InterruptedException e) {
@@ -0,0 +1,18 @@
+package org.example.currency;
+
+/**
+ * Bitta CBU so'rovining natijasi: yangi snapshot yoki "o'zgarmagan" belgisi.
+ *
+ * @param snapshot yangi snapshot; {@code changed == false} bo'lsa {@code null}
+ */
+public record FetchResult(boolean changed, RatesSnapshot snapshot) {
+    private static final FetchResult UNCHANGED = new FetchResult(false, null);
+
+    public static FetchResult unchanged() {
+        return UNCHANGED;
+    }
+
+    public static FetchResult changed(RatesSnapshot snapshot) {
+        return new FetchResult(true, snapshot);
+    }
+}
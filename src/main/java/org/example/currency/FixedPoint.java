@@ -0,0 +1,144 @@
+package org.example.currency;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * {@code long} ichida saqlanadigan o'nlik sonlar (fixed-point) uchun yordamchi funksiyalar.
+ * <p>
+ * Kurslar {@link #RATE_SCALE} ta, pul miqdorlari esa {@link #AMOUNT_SCALE} ta kasr xonasi bilan saqlanadi.
+ * Noto'g'ri yoki bo'sh qiymat {@link #NONE} bilan belgilanadi ({@code double} dagi NaN o'rniga).
+ */
+public final class FixedPoint {
+    /** Qiymat yo'q yoki o'qib bo'lmadi. */
+    public static final long NONE = Long.MIN_VALUE;
+
+    public static final int RATE_SCALE = 6;
+    public static final long RATE_ONE = 1_000_000L;
+
+    public static final int AMOUNT_SCALE = 2;
+    public static final long AMOUNT_ONE = 100L;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L
+    };
+
+    private FixedPoint() {
+    }
+
+    /**
+     * "12650.35", "-1,5" kabi satrni berilgan kasr xonalari soniga keltirib o'qiydi.
+     * Ortiqcha kasr xonalari yarmidan yuqoriga yaxlitlanadi.
+     *
+     * @return masshtablangan qiymat yoki {@link #NONE}
+     */
+    public static long parse(String s, int scale) {
+        if (s == null) return NONE;
+        int i = 0;
+        int end = s.length();
+        while (i < end && Character.isWhitespace(s.charAt(i))) i++;
+        while (end > i && Character.isWhitespace(s.charAt(end - 1))) end--;
+        if (i == end) return NONE;
+
+        boolean negative = false;
+        char first = s.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int fraction = -1; // -1: hali kasr qismi boshlanmagan
+        boolean roundUp = false;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (fraction >= scale) {
+                    if (fraction == scale) roundUp = c >= '5';
+                    fraction++;
+                    continue;
+                }
+                if (value > (Long.MAX_VALUE - 9) / 10) return NONE;
+                value = value * 10 + (c - '0');
+                digits++;
+                if (fraction >= 0) fraction++;
+            } else if ((c == '.' || c == ',') && fraction < 0) {
+                fraction = 0;
+            } else {
+                return NONE;
+            }
+        }
+        if (digits == 0) return NONE;
+
+        int missing = scale - Math.max(fraction, 0);
+        if (missing > 0) {
+            if (value > Long.MAX_VALUE / POW10[missing]) return NONE;
+            value *= POW10[missing];
+        }
+        if (roundUp) value++;
+        return negative ? -value : value;
+    }
+
+    /**
+     * {@code a * b / divisor} ni oraliq to'lib ketmasdan, HALF_EVEN yaxlitlash bilan hisoblaydi.
+     */
+    public static long mulDiv(long a, long b, long divisor) {
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+        if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) {
+            return divRound(lo, divisor);
+        }
+        // Juda katta miqdorlar uchun kamdan-kam ishlaydigan aniq yo'l
+        return new BigDecimal(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)))
+                .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+    }
+
+    /**
+     * Butun bo'lish, HALF_EVEN yaxlitlash bilan.
+     */
+    public static long divRound(long n, long d) {
+        long q = n / d;
+        long r = n % d;
+        if (r == 0) return q;
+        long absR = Math.abs(r);
+        long rest = Math.abs(d) - absR;
+        if (absR > rest || (absR == rest && (q & 1) != 0)) {
+            q += ((n ^ d) < 0) ? -1 : 1;
+        }
+        return q;
+    }
+
+    /**
+     * Masshtabni o'zgartiradi (masalan, kursni 6 xonadan 2 xonaga).
+     */
+    public static long rescale(long value, int fromScale, int toScale) {
+        if (fromScale == toScale) return value;
+        if (fromScale > toScale) return divRound(value, POW10[fromScale - toScale]);
+        return Math.multiplyExact(value, POW10[toScale - fromScale]);
+    }
+
+    /**
+     * Foydalanuvchi kiritgan {@code double} miqdorni masshtablangan ko'rinishga keltiradi.
+     * {@code long} ga sig'masa, {@link #NONE}.
+     */
+    public static long fromDouble(double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return NONE;
+        try {
+            return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return NONE;
+        }
+    }
+
+    public static double toDouble(long value, int scale) {
+        return value == NONE ? Double.NaN : (double) value / POW10[scale];
+    }
+
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.currency;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link RateHistory} ni CBU arxividan bosqichma-bosqich to'ldiradi.
+ * <p>
+ * Har bir ishga tushishda bugundan {@code depthDays} kun orqaga qaraladi va faqat hali olinmagan kunlar
+ * so'raladi (bugun va kecha har safar yangilanadi — CBU ertangi kursni oldindan e'lon qiladi). Arxivga
+ * bosim bermaslik uchun so'rovlar orasida {@link #REQUEST_PAUSE} kutiladi; xato bo'lsa, ish keyingi
+ * safarga qoldiriladi.
+ */
+public class HistoryBackfill {
+    private static final Logger LOGGER = Logger.getLogger(HistoryBackfill.class.getName());
+
+    public static final int DEFAULT_DEPTH_DAYS = 365;
+    public static final Duration DEFAULT_INTERVAL = Duration.ofHours(6);
+    static final Duration REQUEST_PAUSE = Duration.ofMillis(250);
+    static final ZoneId TASHKENT = ZoneId.of("Asia/Tashkent");
+
+    private final RateHistory history;
+    private final CbuClient archive;
+    private final int depthDays;
+    private final Clock clock;
+
+    public HistoryBackfill(RateHistory history, CbuClient archive, int depthDays) {
+        this(history, archive, depthDays, Clock.system(TASHKENT));
+    }
+
+    public HistoryBackfill(RateHistory history, CbuClient archive, int depthDays, Clock clock) {
+        if (depthDays < 1) {
+            throw new IllegalArgumentException("Tarix chuqurligi musbat bo'lishi kerak: " + depthDays);
+        }
+        this.history = history;
+        this.archive = archive;
+        this.depthDays = depthDays;
+        this.clock = clock;
+    }
+
+    /**
+     * Yetishmayotgan kunlarni yuklaydi.
+     *
+     * @return arxivdan olingan kunlar soni
+     */
+    public int runOnce() throws InterruptedException {
+        LocalDate today = LocalDate.now(clock);
+        int fetched = 0;
+        for (int back = 0; back < depthDays; back++) {
+            LocalDate day = today.minusDays(back);
+            if (day.isBefore(history.firstDay())) {
+                break;
+            }
+            if (back > 1 && history.isRecorded(day)) {
+                continue;
+            }
+            try {
+                history.record(day, archive.fetchArchive(day));
+                fetched++;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "CBU arxivini yuklab bo'lmadi (" + day + "), keyingi safar davom etamiz", e);
+                break;
+            }
+            Thread.sleep(REQUEST_PAUSE);
+        }
+        if (fetched > 0) {
+            history.force();
+            int n = fetched;
+            LOGGER.info(() -> "Kurslar tarixi to'ldirildi: " + n + " kun");
+        }
+        return fetched;
+    }
+
+    /**
+     * Fon virtual threadida darhol va keyin har {@code interval} da {@link #runOnce()} ni chaqiradi.
+     */
+    public Thread start(Duration interval) {
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Davr musbat bo'lishi kerak: " + interval);
+        }
+        return Thread.ofVirtual().name("cbu-history").start(() -> {
+            while (true) {
+                try {
+                    try {
+                        runOnce();
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.SEVERE, "Tarixni to'ldirishda kutilmagan xato", e);
+                    }
+                    Thread.sleep(interval);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+    }
+}
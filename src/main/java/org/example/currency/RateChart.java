@@ -0,0 +1,206 @@
+package org.example.currency;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Kunlik kurslardan PNG chiziqli grafik: Java2D bilan, ekransiz (headless) chiziladi.
+ * <p>
+ * Ma'lumot yo'q kunlar ({@link FixedPoint#NONE}, masalan dam olish kunlari) o'tkazib yuboriladi va chiziq
+ * qo'shni kunlarni tutashtiradi. Pikselga o'tkazish {@code double} da — bu faqat tasvir, hisob-kitob emas.
+ */
+public final class RateChart {
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 450;
+
+    private static final int LEFT = 86;
+    private static final int RIGHT = 24;
+    private static final int TOP = 64;
+    private static final int BOTTOM = 40;
+    private static final int Y_TICKS = 5;
+    private static final int X_LABELS = 6;
+
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color GRID = new Color(0xE6E8EB);
+    private static final Color TEXT = new Color(0x1F2328);
+    private static final Color MUTED = new Color(0x656D76);
+    private static final Color LINE = new Color(0x1F6FEB);
+    private static final Color FILL = new Color(0x1F, 0x6F, 0xEB, 0x22);
+    private static final Color UP = new Color(0x1A7F37);
+    private static final Color DOWN = new Color(0xCF222E);
+
+    private static final Font TITLE_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 18);
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final DateTimeFormatter AXIS_FORMAT = DateTimeFormatter.ofPattern("dd.MM");
+
+    static {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+    }
+
+    private RateChart() {
+    }
+
+    /** Grafikdagi nuqtalar soni: kamida ikkitasi bo'lsa, chizish mumkin. */
+    public static int points(long[] rates) {
+        int n = 0;
+        for (long v : rates) {
+            if (v != FixedPoint.NONE) n++;
+        }
+        return n;
+    }
+
+    /**
+     * @param from  {@code rates[0]} kuni
+     * @param rates kunlik kurslar ({@link FixedPoint#RATE_SCALE}); kamida ikkita qiymat bo'lishi kerak
+     * @return PNG baytlari
+     */
+    public static byte[] render(String ccy, LocalDate from, long[] rates) {
+        int first = -1, last = -1;
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int i = 0; i < rates.length; i++) {
+            long v = rates[i];
+            if (v == FixedPoint.NONE) continue;
+            if (first < 0) first = i;
+            last = i;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        if (first < 0 || first == last) {
+            throw new IllegalArgumentException("Grafik uchun kamida ikki kunlik kurs kerak: " + ccy);
+        }
+
+        double lo = FixedPoint.toDouble(min, FixedPoint.RATE_SCALE);
+        double hi = FixedPoint.toDouble(max, FixedPoint.RATE_SCALE);
+        double step = niceStep(hi - lo > 0 ? (hi - lo) / (Y_TICKS - 1) : Math.max(hi * 0.001, 0.01));
+        double axisLo = Math.floor(lo / step) * step;
+        double axisHi = Math.max(Math.ceil(hi / step) * step, axisLo + step);
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+
+            int plotW = WIDTH - LEFT - RIGHT;
+            int plotH = HEIGHT - TOP - BOTTOM;
+            double xScale = rates.length > 1 ? (double) plotW / (rates.length - 1) : plotW;
+            double yScale = plotH / (axisHi - axisLo);
+
+            // Gorizontal to'r va kurs belgilari
+            g.setFont(LABEL_FONT);
+            FontMetrics fm = g.getFontMetrics();
+            g.setStroke(new BasicStroke(1f));
+            for (int k = 0; axisLo + k * step <= axisHi + step / 2; k++) {
+                double tick = axisLo + k * step;
+                int y = (int) Math.round(TOP + plotH - (tick - axisLo) * yScale);
+                g.setColor(GRID);
+                g.drawLine(LEFT, y, LEFT + plotW, y);
+                String label = tickLabel(tick, step);
+                g.setColor(MUTED);
+                g.drawString(label, LEFT - 8 - fm.stringWidth(label), y + fm.getAscent() / 2 - 1);
+            }
+
+            // Sana belgilari
+            int labels = Math.min(X_LABELS, rates.length);
+            for (int k = 0; k < labels; k++) {
+                int i = labels == 1 ? 0 : (int) Math.round((double) k * (rates.length - 1) / (labels - 1));
+                int x = (int) Math.round(LEFT + i * xScale);
+                String label = AXIS_FORMAT.format(from.plusDays(i));
+                int w = fm.stringWidth(label);
+                int lx = Math.max(LEFT - w / 2, Math.min(x - w / 2, WIDTH - RIGHT - w));
+                g.setColor(MUTED);
+                g.drawString(label, lx, TOP + plotH + 8 + fm.getAscent());
+            }
+
+            // Chiziq va uning ostidagi soya
+            Path2D.Double line = new Path2D.Double();
+            double firstX = 0, lastX = 0;
+            for (int i = first; i <= last; i++) {
+                if (rates[i] == FixedPoint.NONE) continue;
+                double x = LEFT + i * xScale;
+                double y = TOP + plotH - (FixedPoint.toDouble(rates[i], FixedPoint.RATE_SCALE) - axisLo) * yScale;
+                if (i == first) {
+                    line.moveTo(x, y);
+                    firstX = x;
+                } else {
+                    line.lineTo(x, y);
+                }
+                lastX = x;
+            }
+            Path2D.Double area = new Path2D.Double(line);
+            area.lineTo(lastX, TOP + plotH);
+            area.lineTo(firstX, TOP + plotH);
+            area.closePath();
+            g.setColor(FILL);
+            g.fill(area);
+            g.setColor(LINE);
+            g.setStroke(new BasicStroke(2.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g.draw(line);
+            double endY = TOP + plotH - (FixedPoint.toDouble(rates[last], FixedPoint.RATE_SCALE) - axisLo) * yScale;
+            g.fill(new Ellipse2D.Double(lastX - 4, endY - 4, 8, 8));
+
+            // Sarlavha: valyuta, davr, oxirgi kurs va o'zgarish
+            g.setFont(TITLE_FONT);
+            g.setColor(TEXT);
+            g.drawString(ccy + " / UZS", LEFT, 30);
+            g.setFont(LABEL_FONT);
+            g.setColor(MUTED);
+            g.drawString(DAY_FORMAT.format(from) + " — " + DAY_FORMAT.format(from.plusDays(rates.length - 1)), LEFT, 50);
+
+            long change = rates[last] - rates[first];
+            String current = AmountFormat.rate(rates[last]) + " so'm";
+            long percent = FixedPoint.mulDiv(Math.abs(change), 100 * FixedPoint.AMOUNT_ONE, rates[first]);
+            String delta = (change > 0 ? "+" : change < 0 ? "-" : "") + AmountFormat.rate(Math.abs(change))
+                    + " (" + AmountFormat.amount(percent) + "%)";
+            g.setFont(TITLE_FONT);
+            g.setColor(TEXT);
+            g.drawString(current, WIDTH - RIGHT - g.getFontMetrics().stringWidth(current), 30);
+            g.setFont(LABEL_FONT);
+            g.setColor(change > 0 ? UP : change < 0 ? DOWN : MUTED);
+            g.drawString(delta, WIDTH - RIGHT - g.getFontMetrics().stringWidth(delta), 50);
+        } finally {
+            g.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // xotiradagi oqim: bo'lmasligi kerak
+        }
+        return out.toByteArray();
+    }
+
+    /** 1, 2, 2.5 yoki 5 × 10^k ko'rinishidagi, {@code raw} dan kichik bo'lmagan qadam. */
+    static double niceStep(double raw) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+        double r = raw / magnitude;
+        double nice = r <= 1 ? 1 : r <= 2 ? 2 : r <= 2.5 ? 2.5 : r <= 5 ? 5 : 10;
+        return nice * magnitude;
+    }
+
+    /** Butun qadamlarda kasr qismi ko'rsatilmaydi. */
+    private static String tickLabel(double tick, double step) {
+        String s = AmountFormat.rate(FixedPoint.fromDouble(tick, FixedPoint.RATE_SCALE));
+        return step >= 1 && s.endsWith(",00") ? s.substring(0, s.length() - 3) : s;
+    }
+}
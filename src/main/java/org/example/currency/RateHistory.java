@@ -0,0 +1,318 @@
+package org.example.currency;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Kunlik kurslarning mahalliy tarixi.
+ * <p>
+ * Har bir valyuta alohida faylda ({@code USD.bin}) saqlanadi: 32 baytlik sarlavhadan keyin kun indeksi
+ * bo'yicha {@code long} ustun — 1 birlik uchun kurs, {@link FixedPoint#RATE_SCALE} masshtabida; {@code 0}
+ * — ma'lumot yo'q. Fayllar xotiraga akslantiriladi (mmap), shuning uchun bir necha yillik oraliqni o'qish
+ * tarmoqsiz va oraliq obyektlarsiz bajariladi. Yozuvchi bitta (backfill), o'quvchilar ko'p bo'lishi mumkin.
+ * <p>
+ * Qaysi kunlar arxivdan allaqachon olinganini {@code _days.bin} ustuni saqlaydi (kun uchun olingan
+ * valyutalar soni).
+ */
+public final class RateHistory implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RateHistory.class.getName());
+
+    /** Yangi fayllar uchun 0-kun. */
+    public static final LocalDate DEFAULT_BASE = LocalDate.of(2000, 1, 1);
+
+    private static final int MAGIC = 0x43425548; // "CBUH"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    /** Fayl shu qadam bilan kattalashtiriladi (~5,5 yil). */
+    private static final int CHUNK_DAYS = 2048;
+    private static final String DAYS_COLUMN = "_days";
+    private static final String SUFFIX = ".bin";
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path dir;
+    private final long baseDay;
+    private final ConcurrentHashMap<String, Column> columns = new ConcurrentHashMap<>();
+    /** Har bir {@link #record} dan keyin oshadi. */
+    private final AtomicLong version = new AtomicLong();
+
+    /** Bitta valyutaning ustuni. {@code map} kattalashganda almashtiriladi; eski akslantirish GC gacha amal qiladi. */
+    private static final class Column {
+        final FileChannel channel;
+        final long baseDay;
+        volatile MappedByteBuffer map;
+        volatile int capacityDays;
+
+        Column(FileChannel channel, long baseDay, MappedByteBuffer map, int capacityDays) {
+            this.channel = channel;
+            this.baseDay = baseDay;
+            this.map = map;
+            this.capacityDays = capacityDays;
+        }
+
+        long get(long epochDay) {
+            long idx = epochDay - baseDay;
+            MappedByteBuffer m = map;
+            if (idx < 0 || idx >= (m.capacity() - HEADER_BYTES) / Long.BYTES) {
+                return 0;
+            }
+            return (long) LONGS.getAcquire(m, HEADER_BYTES + (int) idx * Long.BYTES);
+        }
+
+        synchronized void put(long epochDay, long value) throws IOException {
+            long idx = epochDay - baseDay;
+            if (idx < 0 || idx > Integer.MAX_VALUE / Long.BYTES - HEADER_BYTES) {
+                throw new IllegalArgumentException("Sana saqlash oralig'idan tashqarida: " + LocalDate.ofEpochDay(epochDay));
+            }
+            if (idx >= capacityDays) {
+                int capacity = (int) ((idx / CHUNK_DAYS + 1) * CHUNK_DAYS);
+                map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * Long.BYTES);
+                capacityDays = capacity;
+            }
+            LONGS.setRelease(map, HEADER_BYTES + (int) idx * Long.BYTES, value);
+        }
+    }
+
+    private RateHistory(Path dir, long baseDay) {
+        this.dir = dir;
+        this.baseDay = baseDay;
+    }
+
+    /**
+     * {@code dir} dagi tarixni ochadi (katalog bo'lmasa, yaratiladi).
+     */
+    public static RateHistory open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        RateHistory history = new RateHistory(dir, DEFAULT_BASE.toEpochDay());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String key = name.substring(0, name.length() - SUFFIX.length());
+                if (isValidName(key)) {
+                    history.column(key);
+                }
+            }
+        }
+        LOGGER.info(() -> "Kurslar tarixi ochildi: " + dir.toAbsolutePath() + ", valyutalar: " + history.currencies().size());
+        return history;
+    }
+
+    /**
+     * {@code day} kuni amal qilgan kurslarni yozadi va kunni "olingan" deb belgilaydi.
+     */
+    public void record(LocalDate day, RatesSnapshot snapshot) throws IOException {
+        long epochDay = day.toEpochDay();
+        int written = 0;
+        for (CurrencyRate r : snapshot.sortedUnique()) {
+            long perUnit = r.getPerUnitScaled();
+            String ccy = r.getCcy() == null ? null : r.getCcy().trim();
+            if (perUnit == FixedPoint.NONE || perUnit <= 0 || ccy == null || !isCurrency(ccy)) {
+                continue;
+            }
+            column(ccy).put(epochDay, perUnit);
+            written++;
+        }
+        column(DAYS_COLUMN).put(epochDay, Math.max(written, 1));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Tarix o'zgarganda oshadigan hisoblagich: tarixdan chizilgan natijalarni keshlaganlar uni kalitga qo'shadi,
+     * shunda to'ldirish (backfill) paytidagi chala natija keyingi kun yozilgach eskiradi.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /** Saqlash mumkin bo'lgan eng erta kun: undan oldingi sanalarni {@link #record} qabul qilmaydi. */
+    public LocalDate firstDay() {
+        return LocalDate.ofEpochDay(baseDay);
+    }
+
+    /** {@code day} arxivdan olinganmi. */
+    public boolean isRecorded(LocalDate day) {
+        Column days = columns.get(DAYS_COLUMN);
+        return days != null && days.get(day.toEpochDay()) != 0;
+    }
+
+    /**
+     * {@code day} kuni 1 birlik {@code ccy} kursi ({@link FixedPoint#RATE_SCALE}) yoki {@link FixedPoint#NONE}.
+     */
+    public long rateOn(String ccy, LocalDate day) {
+        Column c = existing(ccy);
+        if (c == null) {
+            return FixedPoint.NONE;
+        }
+        long v = c.get(day.toEpochDay());
+        return v == 0 ? FixedPoint.NONE : v;
+    }
+
+    /**
+     * {@code day} yoki undan oldingi eng yaqin ma'lumotli kun ({@code maxLookbackDays} gacha orqaga).
+     *
+     * @return topilgan nuqta yoki {@code null}
+     */
+    public Point latestOnOrBefore(String ccy, LocalDate day, int maxLookbackDays) {
+        Column c = existing(ccy);
+        if (c == null) {
+            return null;
+        }
+        long epochDay = day.toEpochDay();
+        for (int back = 0; back <= maxLookbackDays; back++) {
+            long v = c.get(epochDay - back);
+            if (v != 0) {
+                return new Point(LocalDate.ofEpochDay(epochDay - back), v);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@code [from, to]} oralig'idagi kunlik kurslar; ma'lumot yo'q kunlar {@link FixedPoint#NONE}.
+     */
+    public long[] range(String ccy, LocalDate from, LocalDate to) {
+        long first = from.toEpochDay();
+        int n = (int) Math.max(0, to.toEpochDay() - first + 1);
+        long[] out = new long[n];
+        Column c = existing(ccy);
+        if (c == null) {
+            Arrays.fill(out, FixedPoint.NONE);
+            return out;
+        }
+        for (int i = 0; i < n; i++) {
+            long v = c.get(first + i);
+            out[i] = v == 0 ? FixedPoint.NONE : v;
+        }
+        return out;
+    }
+
+    /** Tarixda mavjud valyutalar, alifbo tartibida. */
+    public Set<String> currencies() {
+        Set<String> out = new TreeSet<>(columns.keySet());
+        out.remove(DAYS_COLUMN);
+        return out;
+    }
+
+    /** Yozilganlarni diskka majburan tushiradi. */
+    public void force() {
+        for (Column c : columns.values()) {
+            c.map.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Column c : columns.values()) {
+            try {
+                c.map.force();
+                c.channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Tarix faylini yopishda xatolik", e);
+            }
+        }
+        columns.clear();
+    }
+
+    /**
+     * Tarixdagi bitta qiymat.
+     *
+     * @param day  kurs amal qilgan kun
+     * @param rate 1 birlik uchun kurs, {@link FixedPoint#RATE_SCALE} masshtabida
+     */
+    public record Point(LocalDate day, long rate) {}
+
+    private Column existing(String ccy) {
+        if (ccy == null || !isCurrency(ccy)) {
+            return null;
+        }
+        return columns.get(ccy);
+    }
+
+    private Column column(String name) throws IOException {
+        Column c = columns.get(name);
+        if (c != null) {
+            return c;
+        }
+        try {
+            return columns.computeIfAbsent(name, k -> {
+                try {
+                    return openColumn(dir.resolve(k + SUFFIX));
+                } catch (IOException e) {
+                    throw new ColumnOpenException(e);
+                }
+            });
+        } catch (ColumnOpenException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    private Column openColumn(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            long columnBase;
+            if (size < HEADER_BYTES) {
+                columnBase = baseDay;
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+                header.order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(0, MAGIC)
+                        .putInt(4, FORMAT_VERSION)
+                        .putLong(8, columnBase);
+                size = HEADER_BYTES;
+            } else {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                    throw new IOException("Tarix fayli formati noma'lum: " + file);
+                }
+                columnBase = header.getLong(8);
+            }
+            int capacity = (int) ((size - HEADER_BYTES) / Long.BYTES);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * Long.BYTES);
+            return new Column(channel, columnBase, map, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Fayl nomi sifatida xavfsiz: uch katta lotin harfi. */
+    private static boolean isCurrency(String s) {
+        if (s.length() != 3) return false;
+        for (int i = 0; i < 3; i++) {
+            char c = s.charAt(i);
+            if (c < 'A' || c > 'Z') return false;
+        }
+        return true;
+    }
+
+    private static boolean isValidName(String s) {
+        return isCurrency(s) || DAYS_COLUMN.equals(s);
+    }
+
+    /** {@code computeIfAbsent} ichidan tekshiriladigan xatoni olib chiqish uchun. */
+    private static final class ColumnOpenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ColumnOpenException(IOException cause) {
+            super(cause);
+        }
+    }
+}
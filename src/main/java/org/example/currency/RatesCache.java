@@ -0,0 +1,247 @@
+package org.example.currency;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * CBU kurslari uchun TTL bilan keshlangan snapshot.
+ * <p>
+ * Kesh bo'sh bo'lsa, bir vaqtda kelgan chaqiruvchilar bitta umumiy so'rovni kutadi (single-flight).
+ * Muddati o'tgan snapshot esa fon yangilanishi tugaguncha qaytarilaveradi, shuning uchun
+ * issiq yo'l tarmoqni kutmaydi.
+ */
+public class RatesCache {
+    private static final Logger LOGGER = Logger.getLogger(RatesCache.class.getName());
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(30);
+    /** Fon yangilanishi muvaffaqiyatsiz bo'lsa, keyingi urinishgacha kutish. */
+    private static final long RETRY_DELAY_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private final RatesSource source;
+    private final long ttlNanos;
+    private final Executor refreshExecutor;
+    private final AtomicReference<CompletableFuture<Entry>> inFlight = new AtomicReference<>();
+    private final List<Consumer<RatesSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<RatesSnapshot>> confirmListeners = new CopyOnWriteArrayList<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    private volatile Entry current;
+    private volatile long retryNotBeforeNanos;
+    private volatile boolean lastRefreshFailed;
+
+    private record Entry(RatesSnapshot snapshot, long loadedAtNanos, long loadedAtMillis) {}
+
+    public RatesCache(RatesSource source) {
+        this(source, DEFAULT_TTL);
+    }
+
+    public RatesCache(RatesSource source, Duration ttl) {
+        this(source, ttl, r -> Thread.ofVirtual().name("cbu-refresh").start(r));
+    }
+
+    public RatesCache(RatesSource source, Duration ttl, Executor refreshExecutor) {
+        if (ttl == null || ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL manfiy bo'lishi mumkin emas: " + ttl);
+        }
+        this.source = source;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshExecutor = refreshExecutor;
+        this.retryNotBeforeNanos = System.nanoTime();
+    }
+
+    /**
+     * Oldindan saqlangan snapshotni (masalan, diskdan) o'rnatadi, shunda birinchi so'rov tarmoqni kutmaydi.
+     * Snapshot yoshi {@code loadedAt} dan hisoblanadi: TTL dan eski bo'lsa, birinchi murojaatda fon
+     * yangilanishi boshlanadi. Ishga tushishda, so'rovlar kelishidan oldin chaqiriladi.
+     *
+     * @return {@code false} bo'lsa, keshda allaqachon snapshot bor edi
+     */
+    public boolean seed(RatesSnapshot snapshot, Instant loadedAt) {
+        if (current != null) {
+            return false;
+        }
+        long ageNanos = Math.max(0, Duration.between(loadedAt, Instant.now()).toNanos());
+        current = new Entry(snapshot, System.nanoTime() - ageNanos, loadedAt.toEpochMilli());
+        return true;
+    }
+
+    /**
+     * Manbadan yangi (o'zgargan) snapshot olinganda chaqiriladi; yangilash threadida ishlaydi.
+     */
+    public void addListener(Consumer<RatesSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Har bir muvaffaqiyatli yangilashdan keyin chaqiriladi, manba "o'zgarmagan" (304 yoki bir xil tarkib) deb
+     * javob berganda ham: snapshot hali ham to'g'ri ekani shu vaqtda tasdiqlandi. Yangilash threadida ishlaydi.
+     */
+    public void addConfirmListener(Consumer<RatesSnapshot> listener) {
+        confirmListeners.add(listener);
+    }
+
+    /**
+     * Joriy kurslar snapshoti. Faqat kesh umuman bo'sh bo'lgandagina tarmoqni kutadi.
+     */
+    public RatesSnapshot getSnapshot() throws IOException, InterruptedException {
+        Entry e = current;
+        if (e == null) {
+            misses.increment();
+            return await(startRefresh()).snapshot();
+        }
+        long now = System.nanoTime();
+        if (now - e.loadedAtNanos() >= ttlNanos) {
+            staleHits.increment();
+            if (now - retryNotBeforeNanos >= 0) {
+                startRefresh();
+            }
+        } else {
+            hits.increment();
+        }
+        return e.snapshot();
+    }
+
+    /**
+     * Snapshot muddati o'tgan va oxirgi yangilash urinishi muvaffaqiyatsiz bo'lganmi
+     * (masalan, CBU ishlamayapti yoki circuit breaker ochiq).
+     */
+    public boolean isStale() {
+        Entry e = current;
+        return e != null && lastRefreshFailed && System.nanoTime() - e.loadedAtNanos() >= ttlNanos;
+    }
+
+    /**
+     * Joriy snapshot yuklangan yoki oxirgi marta tasdiqlangan vaqt; kesh bo'sh bo'lsa {@code null}.
+     */
+    public Instant lastUpdated() {
+        Entry e = current;
+        return e == null ? null : Instant.ofEpochMilli(e.loadedAtMillis());
+    }
+
+    /** TTL ichidagi snapshot bilan javob berilgan so'rovlar. */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /** Muddati o'tgan snapshot bilan (fon yangilanishi kutilmay) javob berilgan so'rovlar. */
+    public long staleHitCount() {
+        return staleHits.sum();
+    }
+
+    /** Kesh bo'sh bo'lgani uchun tarmoqni kutgan so'rovlar. */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long refreshFailureCount() {
+        return refreshFailures.sum();
+    }
+
+    /**
+     * Foydalanuvchi so'rovini kutmasdan, manbani har {@code period} da qayta tekshirib turadi.
+     * Shartli so'rovlar tufayli o'zgarmagan kunlik ma'lumot deyarli tekin tekshiriladi.
+     */
+    public void startPolling(Duration period) {
+        if (period == null || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("So'rov davri musbat bo'lishi kerak: " + period);
+        }
+        Thread.ofVirtual().name("cbu-poller").start(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(period);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Yangilashni boshlaydi yoki allaqachon ketayotgan yangilanishga qo'shiladi.
+     */
+    public CompletableFuture<?> refresh() {
+        return startRefresh();
+    }
+
+    private CompletableFuture<Entry> startRefresh() {
+        while (true) {
+            CompletableFuture<Entry> running = inFlight.get();
+            if (running != null) {
+                return running;
+            }
+            CompletableFuture<Entry> created = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, created)) {
+                refreshExecutor.execute(() -> load(created));
+                return created;
+            }
+        }
+    }
+
+    private void load(CompletableFuture<Entry> target) {
+        try {
+            Entry previous = current;
+            FetchResult result = source.fetch(previous != null ? previous.snapshot() : null);
+            RatesSnapshot snapshot;
+            if (result.changed()) {
+                snapshot = result.snapshot();
+                LOGGER.info(() -> "Yangi kurslar snapshoti yuklandi: " + snapshot.rates().size() + " ta yozuv");
+            } else if (previous != null) {
+                snapshot = previous.snapshot();
+            } else {
+                throw new IOException("Manba 'o'zgarmagan' deb javob berdi, lekin keshda snapshot yo'q");
+            }
+            Entry e = new Entry(snapshot, System.nanoTime(), System.currentTimeMillis());
+            current = e;
+            lastRefreshFailed = false;
+            inFlight.set(null);
+            target.complete(e);
+            if (result.changed()) {
+                notifyListeners(listeners, snapshot);
+            }
+            notifyListeners(confirmListeners, snapshot);
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "CBU kurslarini yangilab bo'lmadi", t);
+            retryNotBeforeNanos = System.nanoTime() + RETRY_DELAY_NANOS;
+            lastRefreshFailed = true;
+            refreshFailures.increment();
+            inFlight.set(null);
+            target.completeExceptionally(t);
+        }
+    }
+
+    private static void notifyListeners(List<Consumer<RatesSnapshot>> listeners, RatesSnapshot snapshot) {
+        for (Consumer<RatesSnapshot> listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Snapshot tinglovchisida xato", ex);
+            }
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> f) throws IOException, InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("CBU kurslarini olishda xatolik", cause);
+        }
+    }
+}
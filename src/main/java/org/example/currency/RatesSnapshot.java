@@ -0,0 +1,133 @@
+package org.example.currency;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CBU javobidan bir marta quriladigan o'zgarmas snapshot.
+ * <p>
+ * Alfa kod (USD) va uch raqamli kod (840) bo'yicha tayyor indekslarni hamda
+ * CCY bo'yicha saralangan noyob ro'yxatni saqlaydi. Bir xil kod bir necha marta
+ * kelsa, eng katta {@code id} li yozuv olinadi.
+ * <p>
+ * Har bir snapshot o'sib boruvchi {@link #version()} oladi: undan olingan keshlar
+ * (tayyor xabarlar va h.k.) versiya o'zgarganda o'z-o'zidan eskiradi.
+ */
+public final class RatesSnapshot {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version = VERSIONS.incrementAndGet();
+    private final List<CurrencyRate> rates;
+    private final Map<String, CurrencyRate> byCcy;
+    private final Map<String, CurrencyRate> byCode;
+    private final List<CurrencyRate> sortedUnique;
+    /** Birinchi kross-kurs so'rovida quriladi; poyga bo'lsa, ikki bir xil nusxadan biri qoladi. */
+    private volatile CrossRates crossRates;
+    /** Birinchi nom bo'yicha qidiruvda quriladi, {@link #crossRates} kabi. */
+    private volatile CurrencyNames names;
+
+    private RatesSnapshot(List<CurrencyRate> rates) {
+        this.rates = rates;
+        Map<String, CurrencyRate> ccyIndex = new HashMap<>();
+        Map<String, CurrencyRate> codeIndex = new HashMap<>();
+        for (CurrencyRate r : rates) {
+            String ccy = r.getCcy();
+            if (ccy != null && !ccy.isBlank()) {
+                ccyIndex.merge(ccy.trim().toUpperCase(Locale.ROOT), r, RatesSnapshot::latest);
+            }
+            String code = r.getCode();
+            if (code != null && !code.isBlank()) {
+                codeIndex.merge(code.trim(), r, RatesSnapshot::latest);
+            }
+        }
+        List<CurrencyRate> unique = new ArrayList<>(ccyIndex.values());
+        unique.sort(Comparator.comparing(CurrencyRate::getCcy));
+        this.byCcy = Map.copyOf(ccyIndex);
+        this.byCode = Map.copyOf(codeIndex);
+        this.sortedUnique = List.copyOf(unique);
+    }
+
+    public static RatesSnapshot of(List<CurrencyRate> rates) {
+        return new RatesSnapshot(List.copyOf(rates));
+    }
+
+    /**
+     * CCY (masalan, {@code USD}, registr muhim emas) yoki uch raqamli kod ({@code 840}) bo'yicha qidiradi.
+     *
+     * @return topilgan kurs yoki {@code null}
+     */
+    public CurrencyRate find(String key) {
+        if (key == null || key.length() != 3) {
+            return null;
+        }
+        char c = key.charAt(0);
+        if (c >= '0' && c <= '9') {
+            return byCode.get(key);
+        }
+        CurrencyRate r = byCcy.get(key);
+        if (r == null && !isUpperAscii(key)) {
+            r = byCcy.get(key.toUpperCase(Locale.ROOT));
+        }
+        return r;
+    }
+
+    /** Jarayon ichida noyob, o'sib boruvchi versiya. */
+    public long version() {
+        return version;
+    }
+
+    /** Shu snapshot uchun kross-kurs jadvali (UZS bilan birga). */
+    public CrossRates crossRates() {
+        CrossRates c = crossRates;
+        if (c == null) {
+            c = CrossRates.of(this);
+            crossRates = c;
+        }
+        return c;
+    }
+
+    /** Shu snapshot valyutalarini nomi bo'yicha qidirish indeksi. */
+    public CurrencyNames names() {
+        CurrencyNames n = names;
+        if (n == null) {
+            n = CurrencyNames.of(this);
+            names = n;
+        }
+        return n;
+    }
+
+    /** CBU qaytargan barcha yozuvlar, asl tartibda. */
+    public List<CurrencyRate> rates() {
+        return rates;
+    }
+
+    /** CCY bo'yicha noyob va saralangan yozuvlar. */
+    public List<CurrencyRate> sortedUnique() {
+        return sortedUnique;
+    }
+
+    public boolean isEmpty() {
+        return rates.isEmpty();
+    }
+
+    private static CurrencyRate latest(CurrencyRate a, CurrencyRate b) {
+        Integer ai = a.getId();
+        Integer bi = b.getId();
+        if (ai == null) return b;
+        if (bi == null) return a;
+        return bi >= ai ? b : a;
+    }
+
+    private static boolean isUpperAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z') return false;
+        }
+        return true;
+    }
+}
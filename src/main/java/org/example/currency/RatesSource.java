@@ -0,0 +1,17 @@
+package org.example.currency;
+
+import java.io.IOException;
+
+/**
+ * Kurslar manbai. {@link RatesCache} shu interfeys orqali yangilanadi.
+ */
+public interface RatesSource {
+
+    /**
+     * Kurslarni oladi.
+     *
+     * @param current chaqiruvchidagi joriy snapshot yoki {@code null}. {@code null} bo'lmasa va
+     *                manbadagi ma'lumot o'zgarmagan bo'lsa, {@link FetchResult#unchanged()} qaytarilishi mumkin.
+     */
+    FetchResult fetch(RatesSnapshot current) throws IOException, InterruptedException;
+}
@@ -0,0 +1,187 @@
+package org.example.currency;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bir nechta CBU manbai (mirror) ustidan qayta urinish, hedged so'rov va circuit breaker qatlami.
+ * <p>
+ * Har bir urinish navbatdagi mirrordan boshlanadi. Javob so'nggi muvaffaqiyatli so'rovlar kechikishining
+ * p95 qiymatidan uzoqroq kechiksa, keyingi mirrorga ikkinchi (hedged) so'rov yuboriladi va qaysi biri
+ * birinchi muvaffaqiyatli tugasa, o'sha olinadi. Ketma-ket xatolardan keyin breaker ochiladi va so'rovlar
+ * tarmoqqa chiqmasdan {@link CircuitOpenException} bilan rad etiladi.
+ * <p>
+ * Shartli so'rov validatorlari ({@code ETag}, {@code Last-Modified}, tana xeshi) har bir mirrorda alohida
+ * saqlanadi va faqat o'sha mirror oxirgi marta bergan snapshotga qo'llanadi: ETag bitta URL ga tegishli, boshqa
+ * mirrorga yuborilsa ma'nosiz. Shuning uchun joriy snapshotni boshqa mirror bergan bo'lsa, so'rov shartsiz
+ * ketadi (eskirgan validator yuborilmaydi, faqat 304 tejami yo'qoladi); keyingi so'rovlar yana shartli bo'ladi.
+ */
+public class ResilientRatesSource implements RatesSource {
+    private static final Logger LOGGER = Logger.getLogger(ResilientRatesSource.class.getName());
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final Duration DEFAULT_BASE_BACKOFF = Duration.ofMillis(200);
+    private static final long MAX_BACKOFF_NANOS = Duration.ofSeconds(3).toNanos();
+
+    private static final long MIN_HEDGE_NANOS = Duration.ofMillis(250).toNanos();
+    private static final long DEFAULT_HEDGE_NANOS = Duration.ofSeconds(2).toNanos();
+    private static final int LATENCY_WINDOW = 64;
+    private static final int MIN_LATENCY_SAMPLES = 8;
+
+    private final List<RatesSource> mirrors;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final CircuitBreaker breaker;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+    private int latencyNext;
+
+    public ResilientRatesSource(List<? extends RatesSource> mirrors) {
+        this(mirrors, DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_BACKOFF, new CircuitBreaker(5, Duration.ofMinutes(1)));
+    }
+
+    public ResilientRatesSource(List<? extends RatesSource> mirrors, int maxAttempts, Duration baseBackoff,
+                                CircuitBreaker breaker) {
+        if (mirrors == null || mirrors.isEmpty()) {
+            throw new IllegalArgumentException("Kamida bitta CBU manbai kerak");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts kamida 1 bo'lishi kerak: " + maxAttempts);
+        }
+        this.mirrors = List.copyOf(mirrors);
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.breaker = breaker;
+    }
+
+    @Override
+    public FetchResult fetch(RatesSnapshot current) throws IOException, InterruptedException {
+        IOException last = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            if (!breaker.tryAcquire()) {
+                CircuitOpenException open = new CircuitOpenException();
+                if (last != null) open.addSuppressed(last);
+                throw open;
+            }
+            boolean settled = false;
+            try {
+                FetchResult result = hedgedFetch(attempt, current);
+                breaker.onSuccess();
+                settled = true;
+                return result;
+            } catch (IOException e) {
+                breaker.onFailure();
+                settled = true;
+                last = e;
+                int n = attempt + 1;
+                LOGGER.log(Level.WARNING, "CBU so'rovi muvaffaqiyatsiz (urinish " + n + "/" + maxAttempts + ")", e);
+                if (n < maxAttempts) {
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos(n));
+                }
+            } finally {
+                // RuntimeException yoki uzilish: HALF_OPEN dagi sinov ham tugadi, aks holda breaker unda qotib qoladi
+                if (!settled) {
+                    breaker.onFailure();
+                }
+            }
+        }
+        throw last;
+    }
+
+    public CircuitBreaker.State breakerState() {
+        return breaker.state();
+    }
+
+    private FetchResult hedgedFetch(int attempt, RatesSnapshot current) throws IOException, InterruptedException {
+        RatesSource primary = mirrors.get(attempt % mirrors.size());
+        CompletableFuture<FetchResult> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        Future<?> first = submit(primary, current, winner, pending);
+        Future<?> hedge = null;
+        try {
+            try {
+                return winner.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException slow) {
+                RatesSource secondary = mirrors.get((attempt + 1) % mirrors.size());
+                pending.incrementAndGet();
+                LOGGER.info("CBU javobi kechikdi, hedged so'rov yuborilmoqda");
+                hedge = submit(secondary, current, winner, pending);
+                return winner.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof InterruptedException ie) throw ie;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("CBU so'rovida kutilmagan xatolik", cause);
+        } finally {
+            // Yutqazgan so'rovni to'xtatamiz
+            first.cancel(true);
+            if (hedge != null) hedge.cancel(true);
+        }
+    }
+
+    private Future<?> submit(RatesSource source, RatesSnapshot current,
+                             CompletableFuture<FetchResult> winner, AtomicInteger pending) {
+        return executor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                FetchResult result = source.fetch(current);
+                recordLatency(System.nanoTime() - start);
+                winner.complete(result);
+            } catch (Throwable t) {
+                if (pending.decrementAndGet() == 0) {
+                    winner.completeExceptionally(t);
+                }
+            }
+        });
+    }
+
+    private long backoffNanos(int failedAttempts) {
+        // "Full jitter": [0, min(cap, base * 2^n)) oralig'ida tasodifiy kutish
+        long ceiling = Math.min(MAX_BACKOFF_NANOS, baseBackoffNanos << Math.min(failedAttempts, 20));
+        return ThreadLocalRandom.current().nextLong(Math.max(ceiling, 1));
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[latencyNext] = nanos;
+        latencyNext = (latencyNext + 1) % LATENCY_WINDOW;
+        if (latencyCount < LATENCY_WINDOW) latencyCount++;
+    }
+
+    private synchronized long hedgeDelayNanos() {
+        if (latencyCount < MIN_LATENCY_SAMPLES) {
+            return DEFAULT_HEDGE_NANOS;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        long p95 = sorted[(int) Math.ceil(latencyCount * 0.95) - 1];
+        return Math.max(MIN_HEDGE_NANOS, p95);
+    }
+
+    /**
+     * Circuit breaker ochiq: CBU ga so'rov yuborilmadi.
+     */
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException() {
+            super("CBU circuit breaker ochiq, so'rov yuborilmadi");
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package org.example.currency;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bitta hostdagi bir nechta bot jarayoni uchun umumiy snapshot.
+ * <p>
+ * Jarayonlardan biri {@code <file>.lock} ustidagi {@link FileLock} orqali yetakchi bo'ladi: faqat u CBU ga
+ * boradi ({@code upstream}) va yangi snapshotni xotiraga akslantirilgan faylga yozadi. Qolganlari CBU ga
+ * umuman murojaat qilmaydi: ular fayl sarlavhasidagi ketma-ketlik hisoblagichini kuzatadi va u o'zgarganda
+ * yozuvlarni ikkilik ko'rinishdan tiklaydi (JSON tahlili yo'q). Yetakchi to'xtasa, OS qulfni bo'shatadi va
+ * kuzatuvchilardan biri uning o'rnini egallaydi.
+ * <p>
+ * Fayl (little-endian): 64 baytlik sarlavha — {@code magic}, format versiyasi, seqlock hisoblagichi (toq —
+ * yozilmoqda), yozilgan vaqt, yozuvlar soni va ma'lumot hajmi; keyin {@value #RECORD_BYTES} baytlik
+ * o'zgarmas yozuvlar ({@code id} va 10 ta satr uchun {@code (offset, length)}) va UTF-8 satrlar maydoni.
+ * O'quvchi ma'lumotni nusxalaydi va hisoblagich o'zgarmaganini tekshiradi; o'zgargan bo'lsa, qayta o'qiydi.
+ */
+public final class SharedSnapshot implements RatesSource, AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(SharedSnapshot.class.getName());
+
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+    public static final Duration DEFAULT_WATCH_PERIOD = Duration.ofSeconds(1);
+
+    private static final int MAGIC = 0x43425553; // "CBUS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_OFFSET = 4;
+    private static final int SEQ_OFFSET = 8;
+    private static final int WRITTEN_AT_OFFSET = 16;
+    private static final int COUNT_OFFSET = 24;
+    private static final int DATA_BYTES_OFFSET = 28;
+    private static final int STRINGS = 10;
+    static final int RECORD_BYTES = Integer.BYTES + STRINGS * 2 * Integer.BYTES;
+    private static final int NULL_ID = Integer.MIN_VALUE;
+    private static final int MAX_READ_ATTEMPTS = 1_000;
+    /** Kuzatuvchi birinchi marta ishga tushganda yetakchining yozishini shuncha kutadi. */
+    private static final long FIRST_WRITE_WAIT_NANOS = Duration.ofSeconds(10).toNanos();
+    /** Yetakchining eskirgan keshni yangilash urinishlari orasidagi vaqt (CBU ishlamay turganda). */
+    private static final long LEADER_RETRY_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final RatesSource upstream;
+    private final FileChannel channel;
+    private final FileChannel lockChannel;
+    private final MappedByteBuffer map;
+    private FileLock lock;
+    /** Shu jarayon oxirgi marta o'qigan yoki yozgan versiya. */
+    private volatile long seenSeq;
+    private volatile Thread watcher;
+
+    private final LongAdder decodes = new LongAdder();
+    private final LongAdder readRetries = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    /** O'qilgan snapshot va uning seqlock versiyasi. */
+    private record Read(RatesSnapshot snapshot, long seq, Instant writtenAt) {}
+
+    private SharedSnapshot(Path file, RatesSource upstream, FileChannel channel, FileChannel lockChannel,
+                           MappedByteBuffer map) {
+        this.file = file;
+        this.upstream = upstream;
+        this.channel = channel;
+        this.lockChannel = lockChannel;
+        this.map = map;
+    }
+
+    /**
+     * Umumiy faylni ochadi (bo'lmasa, yaratadi) va xotiraga akslantiradi. Yetakchilik birinchi {@link #fetch}
+     * yoki {@link #watch} da aniqlanadi.
+     *
+     * @param upstream yetakchi bo'lganda ishlatiladigan haqiqiy manba
+     */
+    public static SharedSnapshot open(Path file, RatesSource upstream) throws IOException {
+        return open(file, upstream, DEFAULT_CAPACITY);
+    }
+
+    public static SharedSnapshot open(Path file, RatesSource upstream, int capacity) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel lockChannel = null;
+        try {
+            lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            long size = Math.max(channel.size(), HEADER_BYTES + (long) capacity);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            return new SharedSnapshot(file, upstream, channel, lockChannel, map);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (lockChannel != null) lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Yetakchi: {@code upstream} dan oladi va o'zgargan bo'lsa, faylga yozadi. Kuzatuvchi: faylni o'qiydi;
+     * hisoblagich o'zgarmagan bo'lsa, {@link FetchResult#unchanged()}.
+     */
+    @Override
+    public FetchResult fetch(RatesSnapshot current) throws IOException, InterruptedException {
+        if (tryLead()) {
+            FetchResult result = upstream.fetch(current);
+            if (result.changed()) {
+                write(result.snapshot());
+            } else {
+                confirm();
+            }
+            return result;
+        }
+        if (current != null && sequence() == seenSeq) {
+            return FetchResult.unchanged();
+        }
+        Read r = readShared();
+        long deadline = System.nanoTime() + FIRST_WRITE_WAIT_NANOS;
+        while (r == null) {
+            if (tryLead()) {
+                return fetch(current); // yetakchi yozmasdan to'xtagan
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new IOException("Umumiy snapshot hali yozilmagan: " + file);
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+            r = readShared();
+        }
+        if (current != null && r.seq() == seenSeq) {
+            return FetchResult.unchanged();
+        }
+        seenSeq = r.seq();
+        return FetchResult.changed(r.snapshot());
+    }
+
+    /**
+     * Fayldagi snapshotni o'qiydi (masalan, ishga tushishda keshga yuklash uchun).
+     *
+     * @return fayl bo'sh bo'lsa, {@code null}
+     */
+    public SnapshotStore.Saved read() throws IOException {
+        Read r = readShared();
+        if (r == null) {
+            return null;
+        }
+        seenSeq = r.seq();
+        return new SnapshotStore.Saved(r.snapshot(), r.writtenAt());
+    }
+
+    /**
+     * Fon kuzatuvchisi: har {@code period} da hisoblagichni tekshiradi va o'zgargan bo'lsa, {@code cache} ni
+     * yangilaydi; yetakchi yo'qolsa, uning o'rnini egallaydi. Yetakchi bo'lsa, keshni {@code ttl} dan eskirtirmaydi —
+     * kuzatuvchilar uning so'rovlariga emas, shunga tayanadi.
+     */
+    public synchronized void watch(RatesCache cache, Duration ttl, Duration period) {
+        if (watcher != null) {
+            throw new IllegalStateException("Allaqachon kuzatilmoqda");
+        }
+        watcher = Thread.ofVirtual().name("shared-snapshot-watch").start(() -> {
+            long lastKick = System.nanoTime() - LEADER_RETRY_NANOS;
+            while (true) {
+                try {
+                    Thread.sleep(period);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    boolean wasLeader = isLeader();
+                    if (tryLead()) {
+                        Instant updated = cache.lastUpdated();
+                        if (!wasLeader) {
+                            LOGGER.info(() -> "Umumiy snapshot: bu jarayon yetakchi bo'ldi (" + file + ")");
+                        }
+                        boolean expired = updated == null || Duration.between(updated, Instant.now()).compareTo(ttl) >= 0;
+                        if (!wasLeader || (expired && System.nanoTime() - lastKick >= LEADER_RETRY_NANOS)) {
+                            lastKick = System.nanoTime();
+                            cache.refresh();
+                        }
+                    } else if (sequence() != seenSeq) {
+                        cache.refresh();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Umumiy snapshotni kuzatishda xato", e);
+                }
+            }
+        });
+    }
+
+    public synchronized boolean isLeader() {
+        return lock != null && lock.isValid();
+    }
+
+    /** Fayldagi joriy versiya (0 — hali yozilmagan). */
+    public long sequence() {
+        return (long) LONGS.getAcquire(map, SEQ_OFFSET);
+    }
+
+    /** Fayldan snapshot tiklanganlar soni. */
+    public long decodeCount() {
+        return decodes.sum();
+    }
+
+    /** Yozuvchi bilan to'qnashgani uchun qayta o'qishlar. */
+    public long readRetryCount() {
+        return readRetries.sum();
+    }
+
+    public long writeCount() {
+        return writes.sum();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        Thread t = watcher;
+        if (t != null) {
+            t.interrupt();
+        }
+        if (lock != null) {
+            lock.release();
+        }
+        lockChannel.close();
+        channel.close();
+    }
+
+    private synchronized boolean tryLead() throws IOException {
+        if (isLeader()) {
+            return true;
+        }
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null; // shu JVM dagi boshqa nusxa yetakchi
+        }
+        return lock != null;
+    }
+
+    /**
+     * CBU "o'zgarmagan" dedi: faqat yozilgan vaqt yangilanadi, hisoblagich esa yo'q, shunda kuzatuvchilar qayta
+     * o'qimaydi, qayta ishga tushgan jarayon esa snapshot yoshini oxirgi tasdiqdan hisoblaydi.
+     */
+    private synchronized void confirm() {
+        if ((long) LONGS.getAcquire(map, SEQ_OFFSET) != 0) {
+            LONGS.setRelease(map, WRITTEN_AT_OFFSET, System.currentTimeMillis());
+        }
+    }
+
+    /** Seqlock bilan yozish: hisoblagich toq — yozilmoqda, juft — tayyor. */
+    private synchronized void write(RatesSnapshot snapshot) throws IOException {
+        byte[] data = encode(snapshot.rates());
+        if (data.length > map.capacity() - HEADER_BYTES) {
+            throw new IOException("Snapshot umumiy faylga sig'maydi: " + data.length + " bayt (" + file + ")");
+        }
+        long s = (long) LONGS.getAcquire(map, SEQ_OFFSET);
+        long begin = (s & 1) == 0 ? s + 1 : s + 2; // toq qolgan bo'lsa, oldingi yozuvchi o'rtada to'xtagan
+        LONGS.setOpaque(map, SEQ_OFFSET, begin);
+        VarHandle.storeStoreFence();
+        map.putInt(MAGIC_OFFSET, MAGIC);
+        map.putInt(FORMAT_OFFSET, FORMAT_VERSION);
+        map.putLong(WRITTEN_AT_OFFSET, System.currentTimeMillis());
+        map.putInt(COUNT_OFFSET, snapshot.rates().size());
+        map.putInt(DATA_BYTES_OFFSET, data.length);
+        map.put(HEADER_BYTES, data);
+        LONGS.setRelease(map, SEQ_OFFSET, begin + 1);
+        seenSeq = begin + 1;
+        writes.increment();
+    }
+
+    private Read readShared() throws IOException {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long s1 = (long) LONGS.getAcquire(map, SEQ_OFFSET);
+            if (s1 == 0) {
+                return null;
+            }
+            if ((s1 & 1) != 0) {
+                readRetries.increment();
+                Thread.onSpinWait();
+                continue;
+            }
+            int magic = map.getInt(MAGIC_OFFSET);
+            int format = map.getInt(FORMAT_OFFSET);
+            long writtenAt = (long) LONGS.getOpaque(map, WRITTEN_AT_OFFSET); // confirm() seqlocksiz yozadi
+            int count = map.getInt(COUNT_OFFSET);
+            int bytes = map.getInt(DATA_BYTES_OFFSET);
+            byte[] data = null;
+            if (bytes >= 0 && bytes <= map.capacity() - HEADER_BYTES) {
+                data = new byte[bytes];
+                map.get(HEADER_BYTES, data);
+            }
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getAcquire(map, SEQ_OFFSET) != s1) {
+                readRetries.increment();
+                continue;
+            }
+            if (magic != MAGIC || format != FORMAT_VERSION || data == null) {
+                throw new IOException("Umumiy snapshot fayli noto'g'ri formatda: " + file);
+            }
+            RatesSnapshot snapshot = RatesSnapshot.of(decode(data, count));
+            decodes.increment();
+            return new Read(snapshot, s1, Instant.ofEpochMilli(writtenAt));
+        }
+        throw new IOException("Umumiy snapshotni o'qib bo'lmadi: yozuvchi tugatmagan (" + file + ")");
+    }
+
+    static byte[] encode(List<CurrencyRate> rates) {
+        List<byte[]> strings = new ArrayList<>(rates.size() * STRINGS);
+        int stringBytes = 0;
+        for (CurrencyRate r : rates) {
+            for (String s : fields(r)) {
+                byte[] b = s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+                strings.add(b);
+                stringBytes += b == null ? 0 : b.length;
+            }
+        }
+        int recordsBytes = rates.size() * RECORD_BYTES;
+        ByteBuffer out = ByteBuffer.allocate(recordsBytes + stringBytes).order(ByteOrder.LITTLE_ENDIAN);
+        int offset = recordsBytes;
+        int k = 0;
+        for (CurrencyRate r : rates) {
+            out.putInt(r.getId() == null ? NULL_ID : r.getId());
+            for (int f = 0; f < STRINGS; f++) {
+                byte[] b = strings.get(k++);
+                out.putInt(offset).putInt(b == null ? -1 : b.length);
+                offset += b == null ? 0 : b.length;
+            }
+        }
+        for (byte[] b : strings) {
+            if (b != null) out.put(b);
+        }
+        return out.array();
+    }
+
+    static List<CurrencyRate> decode(byte[] data, int count) throws IOException {
+        if (count < 0 || (long) count * RECORD_BYTES > data.length) {
+            throw new IOException("Umumiy snapshotda yozuvlar soni noto'g'ri: " + count);
+        }
+        ByteBuffer in = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        List<CurrencyRate> rates = new ArrayList<>(count);
+        String[] s = new String[STRINGS];
+        for (int i = 0; i < count; i++) {
+            int base = i * RECORD_BYTES;
+            int id = in.getInt(base);
+            for (int f = 0; f < STRINGS; f++) {
+                int offset = in.getInt(base + Integer.BYTES + f * 2 * Integer.BYTES);
+                int length = in.getInt(base + 2 * Integer.BYTES + f * 2 * Integer.BYTES);
+                if (length >= 0 && (offset < 0 || offset > data.length - length)) {
+                    throw new IOException("Umumiy snapshotda satr chegarasi noto'g'ri: " + offset + "+" + length);
+                }
+                s[f] = length < 0 ? null : new String(data, offset, length, StandardCharsets.UTF_8);
+            }
+            rates.add(CurrencyRate.of(id == NULL_ID ? null : id, s[0], s[1], s[2], s[3], s[4], s[5], s[6], s[7], s[8], s[9]));
+        }
+        return rates;
+    }
+
+    private static String[] fields(CurrencyRate r) {
+        return new String[]{r.getCode(), r.getCcy(), r.getNameRu(), r.getNameUz(), r.getNameUzc(), r.getNameEn(),
+                r.getNominal(), r.getRate(), r.getDiff(), r.getDate()};
+    }
+}
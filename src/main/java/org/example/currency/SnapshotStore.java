@@ -0,0 +1,118 @@
+package org.example.currency;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Oxirgi muvaffaqiyatli snapshotni diskda saqlaydi, shunda qayta ishga tushgan bot birinchi so'rovdan
+ * boshlab CBU ni kutmasdan javob beradi.
+ * <p>
+ * Fayl — CBU formatidagi yozuvlar va saqlangan vaqt: {@code {"savedAt": "...", "rates": [...]}}. Yozish
+ * atomar: avval shu katalogdagi vaqtinchalik faylga yoziladi, diskka tushiriladi, keyin asl fayl ustiga
+ * ko'chiriladi — jarayon yozish paytida o'lsa ham, eski yoki yangi fayl butun qoladi.
+ */
+public class SnapshotStore {
+    private static final Logger LOGGER = Logger.getLogger(SnapshotStore.class.getName());
+
+    public static final Duration DEFAULT_MAX_STALENESS = Duration.ofDays(7);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ObjectReader RATES_READER = MAPPER.readerForListOf(CurrencyRate.class);
+
+    private final Path file;
+
+    /** Diskdan o'qilgan snapshot va u saqlangan vaqt. */
+    public record Saved(RatesSnapshot snapshot, Instant savedAt) {
+        public Duration age(Instant now) {
+            return Duration.between(savedAt, now);
+        }
+    }
+
+    public SnapshotStore(Path file) {
+        this.file = file;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Snapshotni atomar yozadi.
+     */
+    public void save(RatesSnapshot snapshot, Instant savedAt) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                try (JsonGenerator gen = MAPPER.createGenerator(out)) {
+                    gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    gen.writeStartObject();
+                    gen.writeStringField("savedAt", savedAt.toString());
+                    gen.writeFieldName("rates");
+                    MAPPER.writeValue(gen, snapshot.rates());
+                    gen.writeEndObject();
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Saqlangan snapshotni o'qiydi.
+     *
+     * @return fayl yo'q bo'lsa, {@code null}
+     * @throws IOException fayl buzilgan yoki o'qib bo'lmasa
+     */
+    public Saved load() throws IOException {
+        JsonNode root;
+        try (InputStream in = Files.newInputStream(file)) {
+            root = MAPPER.readTree(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (root == null || !root.path("rates").isArray() || !root.path("savedAt").isTextual()) {
+            throw new IOException("Snapshot fayli noto'g'ri formatda: " + file);
+        }
+        Instant savedAt;
+        try {
+            savedAt = Instant.parse(root.get("savedAt").asText());
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot faylida saqlangan vaqt noto'g'ri: " + file, e);
+        }
+        List<CurrencyRate> rates = RATES_READER.readValue(root.get("rates"));
+        if (rates.isEmpty()) {
+            throw new IOException("Snapshot fayli bo'sh: " + file);
+        }
+        LOGGER.fine(() -> "Snapshot diskdan o'qildi: " + rates.size() + " ta valyuta, " + savedAt);
+        return new Saved(RatesSnapshot.of(rates), savedAt);
+    }
+}
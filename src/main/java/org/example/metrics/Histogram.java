@@ -0,0 +1,136 @@
+package org.example.metrics;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Qat'iy chegarali, qulfsiz gistogramma.
+ * <p>
+ * Har bir katak — alohida {@link LongAdder}: yozish bitta ikkilik qidiruv va ikkita {@code add}, threadlar
+ * bir-birini kutmaydi. Qiymatlar butun "xom" birlikda yoziladi (nanosekund, bayt), eksportda esa
+ * {@code unit} ga ko'paytiriladi (masalan, soniyaga).
+ */
+public final class Histogram {
+    /** 10 µs dan 10 s gacha, 1-2,5-5 qadam bilan; nanosekundda. */
+    private static final long[] LATENCY_BOUNDS = {
+            10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L,
+            1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+    /** 512 bayt dan 8 MB gacha, to'rt barobar qadam bilan. */
+    private static final long[] SIZE_BOUNDS = {
+            512L, 2_048L, 8_192L, 32_768L, 131_072L, 524_288L, 2_097_152L, 8_388_608L
+    };
+
+    private final long[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder sum = new LongAdder();
+    private final double unit;
+    private final String[] boundLabels;
+
+    /**
+     * @param bounds katak yuqori chegaralari (ular ham katakka kiradi), o'sish tartibida
+     * @param unit   eksportda xom qiymat ko'paytiriladigan son
+     */
+    public Histogram(long[] bounds, double unit) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Chegaralar o'sish tartibida bo'lishi kerak: " + Arrays.toString(bounds));
+            }
+        }
+        this.bounds = bounds.clone();
+        this.unit = unit;
+        this.buckets = new LongAdder[bounds.length + 1];
+        this.boundLabels = new String[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+            boundLabels[i] = i < bounds.length
+                    ? new BigDecimal(bounds[i]).multiply(BigDecimal.valueOf(unit)).stripTrailingZeros().toPlainString()
+                    : "+Inf";
+        }
+    }
+
+    /** Kechikish: nanosekundda yoziladi, soniyada eksport qilinadi. */
+    public static Histogram latency() {
+        return new Histogram(LATENCY_BOUNDS, 1e-9);
+    }
+
+    /** Hajm, baytda. */
+    public static Histogram bytes() {
+        return new Histogram(SIZE_BOUNDS, 1);
+    }
+
+    public void record(long value) {
+        int i = Arrays.binarySearch(bounds, value);
+        buckets[i < 0 ? -i - 1 : i].increment();
+        sum.add(value);
+    }
+
+    /** {@code System.nanoTime()} bilan olingan boshlanish vaqtidan hozirgacha. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        long n = 0;
+        for (LongAdder b : buckets) {
+            n += b.sum();
+        }
+        return n;
+    }
+
+    /** Yozilgan qiymatlar yig'indisi, eksport birligida. */
+    public double sum() {
+        return sum.sum() * unit;
+    }
+
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : sum() / n;
+    }
+
+    /**
+     * Taxminiy kvantil, eksport birligida: {@code q} ulushi tushgan katakning yuqori chegarasi
+     * (yuqoridan baho). Oxirgi, chegarasiz katakka tushsa — eng katta chegara.
+     */
+    public double quantile(double q) {
+        long[] counts = counts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bounds[i] * unit;
+            }
+        }
+        return bounds[bounds.length - 1] * unit;
+    }
+
+    /** Katak soni, oxirgisi {@code +Inf}. */
+    int bucketCount() {
+        return buckets.length;
+    }
+
+    /** Prometheus {@code le} yorlig'i. */
+    String bucketLabel(int i) {
+        return boundLabels[i];
+    }
+
+    /** Har bir katakdagi (yig'ilmagan) sonlar. */
+    long[] counts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * {@link MetricsRegistry} ni JMX orqali (jconsole, VisualVM) faqat o'qiladigan atributlar sifatida ko'rsatadi.
+ * <p>
+ * Atribut nomi — metrika nomi va yorliq qiymatlari, masalan {@code bot_command_seconds.kurs}; gistogrammalar
+ * uchun {@code .count}, {@code .mean}, {@code .p50}, {@code .p99} qo'shimchalari bilan.
+ */
+public final class MetricsMBean implements DynamicMBean {
+    public static final String OBJECT_NAME = "org.example:type=Metrics";
+
+    /** Bitta atribut: MBeanInfo uchun tur (metrika turidan) va qiymat manbai. */
+    private record Attr(String type, Supplier<Object> value) {}
+
+    private final MetricsRegistry registry;
+
+    public MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** Platforma MBean serveriga {@link #OBJECT_NAME} nomi bilan ro'yxatdan o'tkazadi. */
+    public static void register(MetricsRegistry registry) throws Exception {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(registry), objectName());
+    }
+
+    private static ObjectName objectName() throws MalformedObjectNameException {
+        return new ObjectName(OBJECT_NAME);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Attr attr = attributes().get(attribute);
+        if (attr == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return attr.value().get();
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String, Attr> all = attributes();
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            Attr attr = all.get(name);
+            if (attr != null) {
+                list.add(new Attribute(name, attr.value().get()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrikalar faqat o'qiladi: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        // Tur metrika turidan olinadi: qiymatni o'qish (har bir gauge ni chaqirish) kerak emas.
+        for (Map.Entry<String, Attr> e : attributes().entrySet()) {
+            infos.add(new MBeanAttributeInfo(e.getKey(), e.getValue().type(), e.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Valyuta boti metrikalari",
+                infos.toArray(MBeanAttributeInfo[]::new), null, null, null);
+    }
+
+    private Map<String, Attr> attributes() {
+        Map<String, Attr> out = new LinkedHashMap<>();
+        for (MetricsRegistry.Family f : registry.families()) {
+            for (MetricsRegistry.Sample s : f.samples) {
+                String name = s.labels().isEmpty() ? f.name : f.name + "." + String.join(".", s.labels().values());
+                switch (f.type) {
+                    case COUNTER -> {
+                        LongSupplier v = (LongSupplier) s.source();
+                        out.put(name, new Attr("long", v::getAsLong));
+                    }
+                    case GAUGE -> {
+                        DoubleSupplier v = (DoubleSupplier) s.source();
+                        out.put(name, new Attr("double", v::getAsDouble));
+                    }
+                    case HISTOGRAM -> {
+                        Histogram h = (Histogram) s.source();
+                        out.put(name + ".count", new Attr("long", h::count));
+                        out.put(name + ".mean", new Attr("double", h::mean));
+                        out.put(name + ".p50", new Attr("double", () -> h.quantile(0.5)));
+                        out.put(name + ".p99", new Attr("double", () -> h.quantile(0.99)));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrikalar ro'yxati: qiymatlarni o'zida saqlamaydi, komponentlarning mavjud hisoblagichlari va
+ * gistogrammalarini nom (va yorliqlar) bilan bog'laydi.
+ * <p>
+ * Komponentlar o'z hisoblagichlarini {@link java.util.concurrent.atomic.LongAdder} va {@link Histogram}
+ * sifatida o'zlari yuritadi, shuning uchun yozish yo'li registrga umuman tegmaydi. Ro'yxatga olish faqat
+ * ishga tushishda bo'ladi; o'qish ({@link #scrape}, JMX) kamdan-kam, shuning uchun oddiy sinxronlash yetarli.
+ */
+public final class MetricsRegistry {
+
+    enum Type {
+        COUNTER("counter"), GAUGE("gauge"), HISTOGRAM("histogram");
+
+        final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    /** Bitta qator (yoki gistogramma): yorliqlar va qiymat manbai. */
+    record Sample(Map<String, String> labels, String labelText, Object source) {}
+
+    static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final List<Sample> samples = new ArrayList<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /** O'sib boruvchi hisoblagich; {@code labels} — juft-juft: nom, qiymat. */
+    public MetricsRegistry counter(String name, String help, LongSupplier value, String... labels) {
+        return add(name, help, Type.COUNTER, value, labels);
+    }
+
+    public MetricsRegistry gauge(String name, String help, DoubleSupplier value, String... labels) {
+        return add(name, help, Type.GAUGE, value, labels);
+    }
+
+    public MetricsRegistry histogram(String name, String help, Histogram histogram, String... labels) {
+        return add(name, help, Type.HISTOGRAM, histogram, labels);
+    }
+
+    /**
+     * Prometheus matn formati (0.0.4).
+     */
+    public synchronized String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Family f : families.values()) {
+            sb.append("# HELP ").append(f.name).append(' ').append(escapeHelp(f.help)).append('\n');
+            sb.append("# TYPE ").append(f.name).append(' ').append(f.type.text).append('\n');
+            for (Sample s : f.samples) {
+                switch (f.type) {
+                    case COUNTER -> line(sb, f.name, s.labelText(), ((LongSupplier) s.source()).getAsLong());
+                    case GAUGE -> line(sb, f.name, s.labelText(), ((DoubleSupplier) s.source()).getAsDouble());
+                    case HISTOGRAM -> histogram(sb, f.name, s.labelText(), (Histogram) s.source());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    synchronized List<Family> families() {
+        return List.copyOf(families.values());
+    }
+
+    private synchronized MetricsRegistry add(String name, String help, Type type, Object source, String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Yorliqlar juft bo'lishi kerak: " + name);
+        }
+        Family f = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (f.type != type) {
+            throw new IllegalArgumentException("Metrika turi mos emas: " + name + " (" + f.type.text + ")");
+        }
+        Map<String, String> map = new LinkedHashMap<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            map.put(labels[i], labels[i + 1]);
+            if (!text.isEmpty()) text.append(',');
+            text.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+        }
+        f.samples.add(new Sample(Map.copyOf(map), text.toString(), source));
+        return this;
+    }
+
+    private static void histogram(StringBuilder sb, String name, String labels, Histogram h) {
+        long[] counts = h.counts();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            line(sb, name + "_bucket", prefix + "le=\"" + h.bucketLabel(i) + "\"", cumulative);
+        }
+        line(sb, name + "_sum", labels, h.sum());
+        line(sb, name + "_count", labels, cumulative);
+    }
+
+    private static void line(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name);
+        if (!labels.isEmpty()) sb.append('{').append(labels).append('}');
+        sb.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    private static String escapeHelp(String s) {
+        return s.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabel(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
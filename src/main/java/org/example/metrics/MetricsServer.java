@@ -0,0 +1,66 @@
+package org.example.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Prometheus uchun {@code GET /metrics} ni beruvchi kichik HTTP server.
+ */
+public class MetricsServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MetricsServer.class.getName());
+
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private final InetSocketAddress address;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    public MetricsServer(MetricsRegistry registry, InetSocketAddress address) {
+        this.registry = registry;
+        this.address = address;
+    }
+
+    public synchronized void start() throws IOException {
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        server.start();
+        LOGGER.info(() -> "Metrikalar: http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + PATH);
+    }
+
+    /** Haqiqiy port (0 berilgan bo'lsa ham). */
+    public synchronized int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().add("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.nativeimage;
+
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Registers every class of the Bot API model ({@code org.telegram.telegrambots.meta.api}) for reflection in the
+ * native image.
+ * <p>
+ * Jackson reads and writes these classes reflectively: {@code Update} and everything nested in it on the way in,
+ * {@code SendMessage} and {@code AnswerInlineQuery} on the way out, and {@code ApiResponse} from long polling.
+ * There are several hundred of them and the set changes with each telegrambots release, so they are picked up
+ * from the class path at build time instead of being listed in reflect-config.json.
+ */
+public final class TelegramApiFeature implements Feature {
+    private static final String PACKAGE = "org/telegram/telegrambots/meta/api/";
+
+    @Override
+    public String getDescription() {
+        return "Registers the Telegram Bot API model classes for Jackson";
+    }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        for (Path entry : access.getApplicationClassPath()) {
+            for (String name : classNames(entry)) {
+                Class<?> type = access.findClassByName(name);
+                if (type != null) {
+                    register(type);
+                }
+            }
+        }
+    }
+
+    private static void register(Class<?> type) {
+        try {
+            RuntimeReflection.register(type);
+            RuntimeReflection.registerAllDeclaredConstructors(type);
+            RuntimeReflection.registerAllDeclaredMethods(type);
+            RuntimeReflection.registerAllDeclaredFields(type);
+            RuntimeReflection.register(type.getDeclaredConstructors());
+            RuntimeReflection.register(type.getDeclaredMethods());
+            RuntimeReflection.register(type.getDeclaredFields());
+        } catch (LinkageError e) {
+            // a signature refers to an optional dependency that is not on the class path
+        }
+    }
+
+    private static List<String> classNames(Path entry) {
+        List<String> names = new ArrayList<>();
+        try {
+            if (Files.isDirectory(entry)) {
+                Path root = entry.resolve(PACKAGE);
+                if (Files.isDirectory(root)) {
+                    try (Stream<Path> files = Files.walk(root)) {
+                        files.map(p -> entry.relativize(p).toString().replace('\\', '/')).forEach(p -> addClass(names, p));
+                    }
+                }
+            } else if (entry.toString().endsWith(".jar") && Files.isRegularFile(entry)) {
+                try (JarFile jar = new JarFile(entry.toFile())) {
+                    for (JarEntry e : (Iterable<JarEntry>) jar.stream()::iterator) {
+                        addClass(names, e.getName());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list " + entry, e);
+        }
+        return names;
+    }
+
+    private static void addClass(List<String> names, String path) {
+        if (path.startsWith(PACKAGE) && path.endsWith(".class") && !path.endsWith("package-info.class")) {
+            names.add(path.substring(0, path.length() - ".class".length()).replace('/', '.'));
+        }
+    }
+}
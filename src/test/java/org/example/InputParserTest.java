@@ -0,0 +1,38 @@
+package org.example;
+
+import org.example.currency.FixedPoint;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputParserTest {
+
+    @Test
+    void joinsThousandsGroups() {
+        assertEquals(1_000_000 * FixedPoint.AMOUNT_ONE, InputParser.parse("1 000 000").amount());
+        assertEquals(100_050L, InputParser.parse("1 000,50 EUR").amount());
+    }
+
+    @Test
+    void thousandsGroupsThatOverflowAreInvalid() {
+        InputParser.Query query = InputParser.parse("1 000 000 000 000 000 000");
+        assertFalse(query.hasAmount());
+        assertTrue(query.isEmpty());
+
+        query = InputParser.parse("USD 1 000 000 000 000 000 000");
+        assertEquals("USD", query.ccy());
+        assertFalse(query.hasAmount());
+    }
+
+    @Test
+    void parsesAlertThresholdsAtRateScale() {
+        String args = "USD > 12 800,50";
+        assertEquals(12_800_500_000L, InputParser.parseNumber(args, 5, args.length(), FixedPoint.RATE_SCALE));
+        assertEquals(12_800_123_457L, InputParser.parseNumber(" 12.800,1234567", 0, 15, FixedPoint.RATE_SCALE));
+        assertEquals(FixedPoint.NONE, InputParser.parseNumber("12 800 EUR", 0, 10, FixedPoint.RATE_SCALE));
+        assertEquals(FixedPoint.NONE, InputParser.parseNumber("12 80", 0, 5, FixedPoint.RATE_SCALE));
+        assertEquals(FixedPoint.NONE, InputParser.parseNumber("  ", 0, 2, FixedPoint.RATE_SCALE));
+    }
+}
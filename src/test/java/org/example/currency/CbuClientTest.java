@@ -0,0 +1,121 @@
+package org.example.currency;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Conditional GET against a loopback stub that sends an ETag and honours {@code If-None-Match}: the client must
+ * send the ETag of the snapshot it holds, reuse it on 304 and switch to the new one after a 200. Without
+ * validators the stub always answers 200 and the client falls back to comparing a hash of the body.
+ */
+class CbuClientTest {
+    private static final String RATES = """
+            [{"id":1,"Code":"840","Ccy":"USD","CcyNm_UZ":"AQSH dollari","Nominal":"1","Rate":"%s","Date":"16.10.2026"}]""";
+
+    private HttpServer server;
+    /** {@code null}: neither ETag nor Last-Modified is sent. */
+    private volatile String etag = "\"v1\"";
+    private volatile String rate = "12650.35";
+    private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+    private final List<Integer> statuses = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/json/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void revalidatesWithTheLatestEtag() throws Exception {
+        CbuClient client = new CbuClient("http://127.0.0.1:" + server.getAddress().getPort() + "/json/", false);
+
+        FetchResult first = client.fetch(null);
+        assertTrue(first.changed());
+        RatesSnapshot v1 = first.snapshot();
+        assertEquals("12650.35", v1.find("USD").getRate());
+
+        FetchResult unchanged = client.fetch(v1);
+        assertFalse(unchanged.changed());
+
+        etag = "\"v2\"";
+        rate = "12700.00";
+        FetchResult second = client.fetch(v1);
+        assertTrue(second.changed());
+        RatesSnapshot v2 = second.snapshot();
+        assertEquals("12700.00", v2.find("USD").getRate());
+
+        assertFalse(client.fetch(v2).changed());
+
+        assertEquals(List.of(200, 304, 200, 304), statuses);
+        assertNull(ifNoneMatch.get(0));
+        assertEquals(List.of("\"v1\"", "\"v1\"", "\"v2\""), ifNoneMatch.subList(1, 4));
+    }
+
+    @Test
+    void detectsAnUnchangedBodyWithoutValidators() throws Exception {
+        etag = null;
+        CbuClient client = new CbuClient("http://127.0.0.1:" + server.getAddress().getPort() + "/json/", false);
+
+        FetchResult first = client.fetch(null);
+        assertTrue(first.changed());
+        RatesSnapshot v1 = first.snapshot();
+
+        assertFalse(client.fetch(v1).changed());
+
+        rate = "12700.00";
+        FetchResult second = client.fetch(v1);
+        assertTrue(second.changed());
+        assertEquals("12700.00", second.snapshot().find("USD").getRate());
+
+        assertFalse(client.fetch(second.snapshot()).changed());
+
+        assertEquals(List.of(200, 200, 200, 200), statuses);
+        assertEquals(Arrays.asList(null, null, null, null), ifNoneMatch);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String sent = exchange.getRequestHeaders().getFirst("If-None-Match");
+            ifNoneMatch.add(sent);
+            String current = etag;
+            if (current != null) {
+                exchange.getResponseHeaders().set("ETag", current);
+            }
+            if (current != null && current.equals(sent)) {
+                statuses.add(304);
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = RATES.formatted(rate).getBytes(StandardCharsets.UTF_8);
+            statuses.add(200);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.currency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientRatesSourceTest {
+
+    @Test
+    void probeThatThrowsRuntimeExceptionReopensTheBreaker() throws Exception {
+        AtomicBoolean broken = new AtomicBoolean(true);
+        RatesSource mirror = current -> {
+            if (broken.get()) {
+                throw new IllegalStateException("malformed payload");
+            }
+            return FetchResult.changed(RatesSnapshot.of(List.of()));
+        };
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        breaker.onFailure(); // OPEN, and the open period is already over
+        ResilientRatesSource source = new ResilientRatesSource(List.of(mirror), 1, Duration.ZERO, breaker);
+
+        assertThrows(IllegalStateException.class, () -> source.fetch(null)); // the HALF_OPEN probe
+        assertEquals(CircuitBreaker.State.OPEN, source.breakerState());
+
+        broken.set(false);
+        assertTrue(source.fetch(null).changed());
+        assertEquals(CircuitBreaker.State.CLOSED, source.breakerState());
+    }
+}